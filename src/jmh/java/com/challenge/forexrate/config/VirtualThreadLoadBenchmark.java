@@ -0,0 +1,201 @@
+package com.challenge.forexrate.config;
+
+import com.challenge.forexrate.ExchangeRateApplication;
+import io.netty.handler.codec.http.QueryStringDecoder;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+//the virtual mode needs a Java 21 runtime and every call holds four sockets, raise the open files limit:
+//mvn -P benchmark verify -DskipTests -Djmh.include=VirtualThreadLoadBenchmark -Djmh.java=/path/to/jdk-21/bin/java
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+public class VirtualThreadLoadBenchmark {
+
+    private static final LocalDate FIRST_DATE = LocalDate.of(2001, 1, 1);
+    private static final int DATES = 5000;
+
+    @Param({"platform", "virtual"})
+    public String threadMode;
+
+    @Param({"10000"})
+    public int calls;
+
+    @Param({"1000"})
+    public int upstreamLatencyMillis;
+
+    private final AtomicInteger upstreamInFlight = new AtomicInteger();
+    private final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+    private DisposableServer upstream;
+    private ConnectionProvider clientConnections;
+    private HttpClient client;
+    private ConfigurableApplicationContext applicationContext;
+    private int invocation;
+
+    //guarded by this
+    private int peakUpstreamInFlight;
+    private long baselineResidentBytes;
+    private long baselineHeapBytes;
+    private long peakResidentBytes;
+    private long peakHeapBytes;
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class LoadMetrics {
+
+        public int peakUpstreamInFlight;
+        public int peakLiveThreads;
+        public long residentBytesPerInFlightCall;
+        public long heapBytesPerInFlightCall;
+        public int failedCalls;
+    }
+
+    @Setup
+    public void setUp() {
+        upstream = HttpServer.create()
+                .port(0)
+                .route(routes -> routes.get("/history", (request, response) -> {
+                    QueryStringDecoder query = new QueryStringDecoder(request.uri());
+                    String endDate = query.parameters().get("end_at").get(0);
+                    String body = String.format("{\"rates\":{\"%s\":{\"%s\":1.25}},\"start_at\":\"%s\",\"base\":\"%s\",\"end_at\":\"%s\"}",
+                            endDate, query.parameters().get("symbols").get(0), query.parameters().get("start_at").get(0),
+                            query.parameters().get("base").get(0), endDate);
+                    recordUpstreamCallStarted();
+                    return Mono.delay(Duration.ofMillis(upstreamLatencyMillis))
+                            .then(response.header("Content-Type", "application/json").sendString(Mono.just(body)).then())
+                            .doFinally(signal -> upstreamInFlight.decrementAndGet());
+                }))
+                .bindNow();
+
+        applicationContext = SpringApplication.run(ExchangeRateApplication.class, "--server.port=0", "--logging.level.root=WARN",
+                "--exchangeratesapi.url=http://localhost:" + upstream.port(),
+                "--forexrate.virtual-threads.enabled=" + "virtual".equals(threadMode),
+                "--server.tomcat.max-connections=" + (calls + 100),
+                "--server.tomcat.accept-count=" + calls,
+                "--feign.httpclient.max-connections=" + calls,
+                "--feign.httpclient.max-connections-per-route=" + calls,
+                "--feign.client.config.foreignExchangeRateService.read-timeout=" + (upstreamLatencyMillis + 60_000),
+                "--report.prefetch.on-startup=false");
+
+        clientConnections = ConnectionProvider.builder("load")
+                .maxConnections(calls)
+                .pendingAcquireMaxCount(-1)
+                .build();
+        client = HttpClient.create(clientConnections)
+                .baseUrl("http://localhost:" + applicationContext.getEnvironment().getProperty("local.server.port"));
+    }
+
+    @TearDown
+    public void tearDown() {
+        applicationContext.close();
+        clientConnections.dispose();
+        upstream.disposeNow();
+    }
+
+    @Setup(Level.Invocation)
+    public void setUpInvocation() {
+        System.gc();
+        synchronized (this) {
+            peakUpstreamInFlight = 0;
+            baselineResidentBytes = readResidentBytes();
+            baselineHeapBytes = readHeapBytes();
+            peakResidentBytes = baselineResidentBytes;
+            peakHeapBytes = baselineHeapBytes;
+        }
+        threadMXBean.resetPeakThreadCount();
+        invocation++;
+    }
+
+    //every call is a report of its own date and target, so none is served from the store or the cache
+    @Benchmark
+    public void serveConcurrentSlowCalls(LoadMetrics loadMetrics) {
+        Integer failedCalls = Flux.range(0, calls)
+                .flatMap(call -> {
+                    String date = FIRST_DATE.plusDays(call % DATES).toString();
+                    String targetCurrency = "T" + invocation + "X" + call / DATES;
+                    return client.get()
+                            .uri("/api/exchange-rate/" + date + "/" + date + "/USD/" + targetCurrency)
+                            .responseSingle((response, body) -> body.asString()
+                                    .defaultIfEmpty("")
+                                    .map(ignored -> response.status().code() == 200 ? 0 : 1))
+                            .onErrorReturn(1);
+                }, calls)
+                .reduce(0, Integer::sum)
+                .block();
+
+        synchronized (this) {
+            loadMetrics.peakUpstreamInFlight = peakUpstreamInFlight;
+            loadMetrics.residentBytesPerInFlightCall = peakUpstreamInFlight == 0 ? 0 : (peakResidentBytes - baselineResidentBytes) / peakUpstreamInFlight;
+            loadMetrics.heapBytesPerInFlightCall = peakUpstreamInFlight == 0 ? 0 : (peakHeapBytes - baselineHeapBytes) / peakUpstreamInFlight;
+        }
+        loadMetrics.peakLiveThreads = threadMXBean.getPeakThreadCount();
+        loadMetrics.failedCalls = failedCalls;
+    }
+
+    private void recordUpstreamCallStarted() {
+        int inFlight = upstreamInFlight.incrementAndGet();
+        synchronized (this) {
+            if (inFlight > peakUpstreamInFlight) {
+                peakUpstreamInFlight = inFlight;
+                peakResidentBytes = Math.max(peakResidentBytes, readResidentBytes());
+                peakHeapBytes = Math.max(peakHeapBytes, readHeapBytes());
+            }
+        }
+    }
+
+    private static long readHeapBytes() {
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    //0 where /proc is not available
+    private static long readResidentBytes() {
+        Path status = Paths.get("/proc/self/status");
+        if (!Files.isReadable(status)) {
+            return 0;
+        }
+        try {
+            for (String line : Files.readAllLines(status)) {
+                if (line.startsWith("VmRSS:")) {
+                    return Long.parseLong(line.replaceAll("[^0-9]", "")) * 1024;
+                }
+            }
+            return 0;
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.challenge.forexrate.controller;
+
+import com.challenge.forexrate.ExchangeRateApplication;
+import com.challenge.forexrate.entity.ApiUsageLog;
+import com.challenge.forexrate.model.ExchangeRateReport;
+import com.toedter.spring.hateoas.jsonapi.MediaTypes;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.hateoas.CollectionModel;
+import org.springframework.hateoas.EntityModel;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.mock.http.MockHttpOutputMessage;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerAdapter;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ExchangeRateReportSerializationBenchmark {
+
+    private ConfigurableApplicationContext applicationContext;
+    private HttpMessageConverter<Object> jsonApiConverter;
+    private HttpMessageConverter<Object> cborConverter;
+    private EntityModel<ExchangeRateReport> exchangeRateReport;
+    private CollectionModel<ApiUsageLog> apiUsageLogs;
+
+    @Setup
+    public void setUp() throws IOException {
+        applicationContext = SpringApplication.run(ExchangeRateApplication.class, "--server.port=0", "--logging.level.root=WARN");
+        jsonApiConverter = findConverter(MediaTypes.JSON_API);
+        cborConverter = findConverter(MediaType.APPLICATION_CBOR);
+
+        exchangeRateReport = EntityModel.of(ExchangeRateReport.builder()
+                .id("USD_BRL_2020-02-05")
+                .rate(4.2287943391)
+                .averageRate(4.250857431175)
+                .trend("undefined")
+                .build());
+
+        List<ApiUsageLog> logs = new ArrayList<>();
+        for (long id = 1; id <= 100; id++) {
+            logs.add(new ApiUsageLog(id, LocalDateTime.of(2020, 2, 5, 12, 0).plusSeconds(id), LocalDate.of(2020, 2, 5), "USD", "BRL"));
+        }
+        apiUsageLogs = CollectionModel.of(logs);
+
+        System.out.printf("%nPayload bytes - report: JSON:API %d, CBOR %d - page of 100 logs: JSON:API %d, CBOR %d%n",
+                write(jsonApiConverter, exchangeRateReport, MediaTypes.JSON_API).length,
+                write(cborConverter, exchangeRateReport, MediaType.APPLICATION_CBOR).length,
+                write(jsonApiConverter, apiUsageLogs, MediaTypes.JSON_API).length,
+                write(cborConverter, apiUsageLogs, MediaType.APPLICATION_CBOR).length);
+    }
+
+    @TearDown
+    public void tearDown() {
+        applicationContext.close();
+    }
+
+    @Benchmark
+    public byte[] serializeReport() throws IOException {
+        return write(jsonApiConverter, exchangeRateReport, MediaTypes.JSON_API);
+    }
+
+    @Benchmark
+    public byte[] serializeReportAsCbor() throws IOException {
+        return write(cborConverter, exchangeRateReport, MediaType.APPLICATION_CBOR);
+    }
+
+    @Benchmark
+    public byte[] serializeLogs() throws IOException {
+        return write(jsonApiConverter, apiUsageLogs, MediaTypes.JSON_API);
+    }
+
+    @Benchmark
+    public byte[] serializeLogsAsCbor() throws IOException {
+        return write(cborConverter, apiUsageLogs, MediaType.APPLICATION_CBOR);
+    }
+
+    @SuppressWarnings("unchecked")
+    private HttpMessageConverter<Object> findConverter(MediaType mediaType) {
+        return (HttpMessageConverter<Object>) applicationContext.getBean(RequestMappingHandlerAdapter.class)
+                .getMessageConverters()
+                .stream()
+                .filter(converter -> converter.canWrite(EntityModel.class, mediaType))
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException("No message converter registered for " + mediaType));
+    }
+
+    private static byte[] write(HttpMessageConverter<Object> converter, Object model, MediaType mediaType) throws IOException {
+        MockHttpOutputMessage outputMessage = new MockHttpOutputMessage();
+        converter.write(model, mediaType, outputMessage);
+        return outputMessage.getBodyAsBytes();
+    }
+}
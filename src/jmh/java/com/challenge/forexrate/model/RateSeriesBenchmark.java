@@ -0,0 +1,58 @@
+package com.challenge.forexrate.model;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+//one day out of seven without rate
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class RateSeriesBenchmark {
+
+    @Param({"5", "50", "500", "5000"})
+    private int windowDays;
+
+    private RateSeries rateSeries;
+    private int fromEpochDay;
+    private int toEpochDay;
+
+    @Setup
+    public void setUp() {
+        LocalDate endDate = LocalDate.of(2020, 2, 8);
+        rateSeries = RateSeries.empty(endDate.minusDays(windowDays), endDate);
+        Random random = new Random(42);
+        for (int epochDay = rateSeries.getStartEpochDay(); epochDay <= rateSeries.getEndEpochDay(); epochDay++) {
+            if (epochDay % 7 != 0) {
+                rateSeries.set(epochDay, 4 + random.nextDouble());
+            }
+        }
+        fromEpochDay = rateSeries.getStartEpochDay();
+        toEpochDay = rateSeries.getEndEpochDay();
+    }
+
+    @Benchmark
+    public double average() {
+        return rateSeries.average(fromEpochDay, toEpochDay);
+    }
+
+    @Benchmark
+    public Trend trend() {
+        return rateSeries.trend(fromEpochDay, toEpochDay);
+    }
+}
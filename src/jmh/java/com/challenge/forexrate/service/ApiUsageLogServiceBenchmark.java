@@ -0,0 +1,64 @@
+package com.challenge.forexrate.service;
+
+import com.challenge.forexrate.ExchangeRateApplication;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ApiUsageLogServiceBenchmark {
+
+    private static final int BATCH_SIZE = 100;
+
+    private ConfigurableApplicationContext applicationContext;
+    private ApiUsageLogService apiUsageLogService;
+    private ApiUsageLogBatchWriter apiUsageLogBatchWriter;
+    private LocalDate requestedDate;
+
+    @Setup
+    public void setUp() {
+        applicationContext = SpringApplication.run(ExchangeRateApplication.class, "--server.port=0", "--logging.level.root=WARN",
+                "--usage-log.writer.batch-size=" + BATCH_SIZE);
+        apiUsageLogService = applicationContext.getBean(ApiUsageLogService.class);
+        apiUsageLogBatchWriter = applicationContext.getBean(ApiUsageLogBatchWriter.class);
+        requestedDate = LocalDate.of(2020, 2, 8);
+    }
+
+    @TearDown
+    public void tearDown() {
+        applicationContext.close();
+    }
+
+    @Benchmark
+    public void save() {
+        apiUsageLogService.save(requestedDate, "USD", "BRL");
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void saveAndFlush() {
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            apiUsageLogService.save(requestedDate, "USD", "BRL");
+        }
+        apiUsageLogBatchWriter.flush();
+    }
+}
@@ -0,0 +1,80 @@
+package com.challenge.forexrate.service;
+
+import com.challenge.forexrate.model.ExchangeRateReport;
+import com.challenge.forexrate.model.RateSeries;
+import com.challenge.forexrate.repository.ExchangeRateRepository;
+import com.challenge.forexrate.validator.ReportRequestDateValidator;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.exchangeratesapi.api.client.model.CurrencyRateHistory;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.reflect.Proxy;
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+//without report cache and with an empty store, every invocation loads and computes a report
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ExchangeRateServiceBenchmark {
+
+    private static final String BASE_CURRENCY = "USD";
+    private static final String TARGET_CURRENCY = "BRL";
+
+    @Param({"5", "50", "500"})
+    private int averageDaysAmount;
+
+    private ExchangeRateService exchangeRateService;
+    private LocalDate date;
+
+    @Setup
+    public void setUp() {
+        date = LocalDate.of(2020, 2, 8);
+
+        RateSeries.Builder rates = RateSeries.builder();
+        Random random = new Random(42);
+        for (LocalDate day = date.minusDays(averageDaysAmount + 2); !day.isAfter(date); day = day.plusDays(1)) {
+            rates.add(day, 4 + random.nextDouble());
+        }
+        CurrencyRateHistory currencyRateHistory = CurrencyRateHistory.builder()
+                .rates(Collections.singletonMap(TARGET_CURRENCY, rates.build()))
+                .build();
+
+        ReportRequestDateValidator reportRequestDateValidator = new ReportRequestDateValidator();
+        ReflectionTestUtils.invokeMethod(reportRequestDateValidator, "setSupportedStartingDate", LocalDate.of(2000, 1, 1));
+        UpstreamHistoryService upstreamHistoryService = new UpstreamHistoryService(params -> currencyRateHistory, null, CircuitBreaker.ofDefaults("exchangeratesapi"), new SimpleMeterRegistry());
+        ExchangeRateHistoryService exchangeRateHistoryService = new ExchangeRateHistoryService(upstreamHistoryService, null,
+                emptyExchangeRateRepository(), Runnable::run);
+        exchangeRateService = new ExchangeRateService(reportRequestDateValidator, exchangeRateHistoryService, null,
+                Caffeine.newBuilder().maximumSize(0).executor(Runnable::run).buildAsync(), new SimpleMeterRegistry());
+        exchangeRateService.setAverageDaysAmount(averageDaysAmount);
+    }
+
+    @Benchmark
+    public ExchangeRateReport getReport() {
+        return exchangeRateService.getReport(date, BASE_CURRENCY, TARGET_CURRENCY);
+    }
+
+    private static ExchangeRateRepository emptyExchangeRateRepository() {
+        return (ExchangeRateRepository) Proxy.newProxyInstance(ExchangeRateRepository.class.getClassLoader(), new Class<?>[]{ExchangeRateRepository.class},
+                (proxy, method, args) -> method.getName().startsWith("find") ? Collections.emptyList() : args == null ? null : args[0]);
+    }
+}
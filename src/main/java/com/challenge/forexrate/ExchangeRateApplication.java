@@ -4,11 +4,11 @@ import io.exchangeratesapi.api.client.ForeignExchangeRateService;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.cloud.openfeign.EnableFeignClients;
-import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
-@EnableAsync
 @EnableFeignClients(basePackageClasses = ForeignExchangeRateService.class)
+@EnableScheduling
 public class ExchangeRateApplication {
 
     public static void main(String[] args) {
@@ -0,0 +1,53 @@
+package com.challenge.forexrate.config;
+
+import io.exchangeratesapi.api.client.AsyncForeignExchangeRateService;
+import io.exchangeratesapi.api.client.ForeignExchangeRateClientConfiguration;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.netty.channel.ChannelOption;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+
+//shares the settings of the Feign client, pending acquires are unbounded as they hold no thread
+@Configuration
+public class AsyncUpstreamClientConfiguration {
+
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider upstreamConnectionProvider(@Value("${feign.httpclient.max-connections-per-route:50}") int maxConnections,
+                                                         @Value("${feign.httpclient.time-to-live:900}") long timeToLiveSeconds,
+                                                         @Value("${feign.client.config.foreignExchangeRateService.connect-timeout:2000}") long connectTimeoutMillis) {
+        return ConnectionProvider.builder("exchangeratesapi")
+                .maxConnections(maxConnections)
+                .pendingAcquireMaxCount(-1)
+                .pendingAcquireTimeout(Duration.ofMillis(connectTimeoutMillis))
+                .maxLifeTime(Duration.ofSeconds(timeToLiveSeconds))
+                .build();
+    }
+
+    @Bean
+    public AsyncForeignExchangeRateService asyncForeignExchangeRateService(WebClient.Builder webClientBuilder,
+                                                                           ConnectionProvider upstreamConnectionProvider,
+                                                                           @Value("${exchangeratesapi.url:https://api.exchangeratesapi.io}") String url,
+                                                                           @Value("${feign.client.config.foreignExchangeRateService.connect-timeout:2000}") int connectTimeoutMillis,
+                                                                           @Value("${feign.client.config.foreignExchangeRateService.read-timeout:5000}") long readTimeoutMillis,
+                                                                           @Value("${exchangeratesapi.retry.max-attempts:3}") int maxAttempts,
+                                                                           @Value("${exchangeratesapi.retry.initial-backoff-millis:100}") long initialBackoffMillis,
+                                                                           @Value("${exchangeratesapi.retry.max-backoff-millis:1000}") long maxBackoffMillis,
+                                                                           MeterRegistry meterRegistry) {
+        HttpClient httpClient = HttpClient.create(upstreamConnectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, connectTimeoutMillis)
+                .responseTimeout(Duration.ofMillis(readTimeoutMillis));
+        WebClient webClient = webClientBuilder
+                .baseUrl(url)
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .build();
+        return new AsyncForeignExchangeRateService(webClient, maxAttempts, Duration.ofMillis(initialBackoffMillis), Duration.ofMillis(maxBackoffMillis),
+                meterRegistry.counter(ForeignExchangeRateClientConfiguration.RETRY_COUNTER_NAME));
+    }
+}
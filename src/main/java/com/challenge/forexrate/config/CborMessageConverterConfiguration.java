@@ -0,0 +1,62 @@
+package com.challenge.forexrate.config;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import lombok.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.hateoas.CollectionModel;
+import org.springframework.hateoas.EntityModel;
+import org.springframework.hateoas.IanaLinkRelations;
+import org.springframework.hateoas.Link;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.Collection;
+
+//resources without the JSON:API envelope, the layout is described by schema/exchange-rate.cddl
+@Configuration
+public class CborMessageConverterConfiguration {
+
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder jackson2ObjectMapperBuilder) {
+        return new CompactCborHttpMessageConverter(jackson2ObjectMapperBuilder);
+    }
+
+    static class CompactCborHttpMessageConverter extends MappingJackson2CborHttpMessageConverter {
+
+        CompactCborHttpMessageConverter(Jackson2ObjectMapperBuilder jackson2ObjectMapperBuilder) {
+            //same modules and date formats as the JSON representation
+            super(jackson2ObjectMapperBuilder.createXmlMapper(false).factory(new CBORFactory()).build());
+        }
+
+        @Override
+        protected void writeInternal(Object object, Type type, HttpOutputMessage outputMessage) throws IOException {
+            super.writeInternal(toCompactModel(object), null, outputMessage);
+        }
+
+        private static Object toCompactModel(Object object) {
+            if (object instanceof EntityModel) {
+                return ((EntityModel<?>) object).getContent();
+            }
+            if (object instanceof CollectionModel) {
+                CollectionModel<?> collectionModel = (CollectionModel<?>) object;
+                return new CompactCollection(collectionModel.getContent(), collectionModel.getLink(IanaLinkRelations.NEXT)
+                        .map(Link::getHref)
+                        .orElse(null));
+            }
+            return object;
+        }
+    }
+
+    @Value
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    static class CompactCollection {
+
+        Collection<?> data;
+        String next;
+    }
+}
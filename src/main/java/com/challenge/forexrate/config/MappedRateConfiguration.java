@@ -0,0 +1,35 @@
+package com.challenge.forexrate.config;
+
+import com.challenge.forexrate.model.MappedRateHistory;
+import com.challenge.forexrate.service.MappedRateService;
+import com.challenge.forexrate.service.RateProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.concurrent.Executor;
+
+//the layout options only apply when the file is created
+@Configuration
+@ConditionalOnProperty(name = "report.mapped-rates.enabled", havingValue = "true")
+public class MappedRateConfiguration {
+
+    @Bean
+    public MappedRateHistory mappedRateHistory(@Value("${report.mapped-rates.path:rates.bin}") Path path,
+                                               @Value("${report.mapped-rates.currencies:64}") int currencies,
+                                               @Value("${report.mapped-rates.capacity-days:20000}") int capacityDays,
+                                               @Value("${report.mapped-rates.first-date:1/4/99}") LocalDate firstDate) throws IOException {
+        return MappedRateHistory.open(path, currencies, capacityDays, Math.toIntExact(firstDate.toEpochDay()));
+    }
+
+    @Bean
+    public MappedRateService mappedRateService(RateProvider rateProvider, MappedRateHistory mappedRateHistory,
+                                               @Value("${report.mapped-rates.backfill-chunk-days:365}") int backfillChunkDays,
+                                               Executor applicationTaskExecutor) {
+        return new MappedRateService(rateProvider, mappedRateHistory, backfillChunkDays, applicationTaskExecutor);
+    }
+}
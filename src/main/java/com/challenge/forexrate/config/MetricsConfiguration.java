@@ -0,0 +1,39 @@
+package com.challenge.forexrate.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.Collections;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+
+@Configuration
+public class MetricsConfiguration {
+
+    public static final String APPLICATION_TASK_EXECUTOR_NAME = "applicationTaskExecutor";
+    public static final String EXECUTOR_REJECTED_COUNTER_NAME = "executor.rejected";
+
+    //nothing is bound when the executor is not a pool, on virtual threads
+    @Bean
+    public MeterBinder applicationTaskExecutorMetrics(ObjectProvider<ThreadPoolTaskExecutor> applicationTaskExecutor) {
+        return registry -> applicationTaskExecutor.ifAvailable(applicationThreadPoolTaskExecutor -> {
+            ThreadPoolExecutor executor = applicationThreadPoolTaskExecutor.getThreadPoolExecutor();
+            new ExecutorServiceMetrics(executor, APPLICATION_TASK_EXECUTOR_NAME, Collections.<Tag>emptyList()).bindTo(registry);
+
+            Counter rejected = Counter.builder(EXECUTOR_REJECTED_COUNTER_NAME)
+                    .tag("name", APPLICATION_TASK_EXECUTOR_NAME)
+                    .register(registry);
+            RejectedExecutionHandler rejectedExecutionHandler = executor.getRejectedExecutionHandler();
+            executor.setRejectedExecutionHandler((task, pool) -> {
+                rejected.increment();
+                rejectedExecutionHandler.rejectedExecution(task, pool);
+            });
+        });
+    }
+}
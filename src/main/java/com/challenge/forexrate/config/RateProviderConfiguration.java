@@ -0,0 +1,20 @@
+package com.challenge.forexrate.config;
+
+import com.challenge.forexrate.service.EcbFileRateProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+@Configuration
+public class RateProviderConfiguration {
+
+    @Bean
+    @ConditionalOnProperty(name = "rates.provider", havingValue = "file")
+    public EcbFileRateProvider ecbFileRateProvider(@Value("${rates.file.path}") Path path) throws IOException {
+        return EcbFileRateProvider.load(path);
+    }
+}
@@ -0,0 +1,100 @@
+package com.challenge.forexrate.config;
+
+import com.challenge.forexrate.model.CrossRateTable;
+import com.challenge.forexrate.model.ExchangeRateReport;
+import com.challenge.forexrate.model.RateSeriesIndex;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+
+@Configuration
+public class ReportCacheConfiguration {
+
+    public static final String REPORT_CACHE_NAME = "reports";
+    public static final String CROSS_RATE_TABLE_CACHE_NAME = "cross-rate-tables";
+    public static final String RATE_INDEX_CACHE_NAME = "rate-indexes";
+
+    //rough footprint of a cached entry besides its id: node, report, boxed rates and trend reference
+    private static final int ENTRY_OVERHEAD_BYTES = 160;
+
+    @Bean
+    public AsyncCache<String, ExchangeRateReport> reportCache(@Value("${report.cache.maximum-size:16MB}") DataSize maximumSize,
+                                                         @Value("${report.cache.recent-expiration:1h}") Duration recentExpiration,
+                                                         MeterRegistry meterRegistry) {
+        AsyncCache<String, ExchangeRateReport> reportCache = Caffeine.newBuilder()
+                .maximumWeight(maximumSize.toBytes())
+                .weigher((String id, ExchangeRateReport report) -> ENTRY_OVERHEAD_BYTES + 2 * id.length())
+                .expireAfter(new ReportExpiry<>(recentExpiration))
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, reportCache.synchronous(), REPORT_CACHE_NAME);
+        return reportCache;
+    }
+
+    //a few hundred bytes a day, the default holds about 25 years
+    @Bean
+    public Cache<Integer, CrossRateTable> crossRateTableCache(@Value("${report.cross-rates.cache-days:10000}") long maximumDays,
+                                                              MeterRegistry meterRegistry) {
+        Cache<Integer, CrossRateTable> crossRateTableCache = Caffeine.newBuilder()
+                .maximumSize(maximumDays)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, crossRateTableCache, CROSS_RATE_TABLE_CACHE_NAME);
+        return crossRateTableCache;
+    }
+
+    //an index of a long window is a few kilobytes, so they are weighed by size
+    @Bean
+    public AsyncCache<String, RateSeriesIndex> rateIndexCache(@Value("${report.windows.cache.maximum-size:16MB}") DataSize maximumSize,
+                                                              @Value("${report.cache.recent-expiration:1h}") Duration recentExpiration,
+                                                              MeterRegistry meterRegistry) {
+        AsyncCache<String, RateSeriesIndex> rateIndexCache = Caffeine.newBuilder()
+                .maximumWeight(maximumSize.toBytes())
+                .weigher((String id, RateSeriesIndex index) -> (int) Math.min(Integer.MAX_VALUE, ENTRY_OVERHEAD_BYTES + 2 * id.length() + index.sizeInBytes()))
+                .expireAfter(new ReportExpiry<RateSeriesIndex>(recentExpiration))
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, rateIndexCache.synchronous(), RATE_INDEX_CACHE_NAME);
+        return rateIndexCache;
+    }
+
+    //the upstream may still revise the most recent day, past dates are only evicted by capacity
+    static class ReportExpiry<V> implements Expiry<String, V> {
+
+        private final long recentExpirationNanos;
+
+        ReportExpiry(Duration recentExpiration) {
+            this.recentExpirationNanos = recentExpiration.toNanos();
+        }
+
+        @Override
+        public long expireAfterCreate(String id, V value, long currentTime) {
+            LocalDate date = LocalDate.parse(id.substring(id.lastIndexOf('_') + 1));
+            if (date.isBefore(LocalDate.now().minus(1, ChronoUnit.DAYS))) {
+                return Long.MAX_VALUE;
+            }
+            return recentExpirationNanos;
+        }
+
+        @Override
+        public long expireAfterUpdate(String id, V value, long currentTime, long currentDuration) {
+            return expireAfterCreate(id, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String id, V value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.challenge.forexrate.config;
+
+import feign.FeignException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.micrometer.tagged.TaggedCircuitBreakerMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import java.time.Duration;
+import java.util.concurrent.CompletionException;
+
+@Configuration
+public class UpstreamCircuitBreakerConfiguration {
+
+    public static final String UPSTREAM_CIRCUIT_BREAKER_NAME = "exchangeratesapi";
+
+    private static final int TOO_MANY_REQUESTS = 429;
+
+    @Bean
+    public CircuitBreaker upstreamCircuitBreaker(@Value("${exchangeratesapi.circuit-breaker.failure-rate-threshold:50}") float failureRateThreshold,
+                                                 @Value("${exchangeratesapi.circuit-breaker.sliding-window-size:20}") int slidingWindowSize,
+                                                 @Value("${exchangeratesapi.circuit-breaker.minimum-number-of-calls:10}") int minimumNumberOfCalls,
+                                                 @Value("${exchangeratesapi.circuit-breaker.wait-duration-in-open-state:30s}") Duration waitDurationInOpenState,
+                                                 MeterRegistry meterRegistry) {
+        CircuitBreakerConfig circuitBreakerConfig = CircuitBreakerConfig.custom()
+                .failureRateThreshold(failureRateThreshold)
+                .slidingWindowSize(slidingWindowSize)
+                .minimumNumberOfCalls(minimumNumberOfCalls)
+                .waitDurationInOpenState(waitDurationInOpenState)
+                .permittedNumberOfCallsInHalfOpenState(1)
+                .recordException(UpstreamCircuitBreakerConfiguration::isUpstreamFailure)
+                .build();
+        CircuitBreakerRegistry circuitBreakerRegistry = CircuitBreakerRegistry.of(circuitBreakerConfig);
+        TaggedCircuitBreakerMetrics.ofCircuitBreakerRegistry(circuitBreakerRegistry).bindTo(meterRegistry);
+        return circuitBreakerRegistry.circuitBreaker(UPSTREAM_CIRCUIT_BREAKER_NAME);
+    }
+
+    //client errors such as an unsupported currency are answers of a healthy upstream
+    private static boolean isUpstreamFailure(Throwable throwable) {
+        Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null ? throwable.getCause() : throwable;
+        int status;
+        if (cause instanceof FeignException) {
+            status = ((FeignException) cause).status();
+        } else if (cause instanceof WebClientResponseException) {
+            status = ((WebClientResponseException) cause).getRawStatusCode();
+        } else {
+            return true;
+        }
+        return status < 0 || status == TOO_MANY_REQUESTS || status >= 500;
+    }
+}
@@ -0,0 +1,26 @@
+package com.challenge.forexrate.config;
+
+import com.challenge.forexrate.service.UpstreamHedger;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConditionalOnProperty(name = "exchangeratesapi.hedging.enabled", havingValue = "true")
+public class UpstreamHedgingConfiguration {
+
+    @Bean
+    public UpstreamHedger upstreamHedger(@Value("${exchangeratesapi.hedging.percentile:95}") double percentile,
+                                         @Value("${exchangeratesapi.hedging.minimum-delay:50ms}") Duration minimumDelay,
+                                         @Value("${exchangeratesapi.hedging.window-size:1000}") int windowSize,
+                                         @Value("${exchangeratesapi.hedging.minimum-samples:100}") int minimumSamples,
+                                         @Value("${exchangeratesapi.hedging.budget-ratio:0.05}") double budgetRatio,
+                                         @Value("${exchangeratesapi.hedging.maximum-burst:10}") double maximumBurst,
+                                         MeterRegistry meterRegistry) {
+        return new UpstreamHedger(percentile, minimumDelay, windowSize, minimumSamples, budgetRatio, maximumBurst, meterRegistry);
+    }
+}
@@ -0,0 +1,40 @@
+package com.challenge.forexrate.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+
+import java.util.concurrent.ExecutorService;
+
+//tomcat and the application task executor run every task on a new virtual thread, so blocking upstream calls no longer
+//exhaust a bounded pool. the property is project scoped, spring.threads.virtual.enabled is left to spring boot 3.2
+@Configuration
+@ConditionalOnProperty(name = "forexrate.virtual-threads.enabled", havingValue = "true")
+public class VirtualThreadConfiguration {
+
+    public VirtualThreadConfiguration() {
+        if (!VirtualThreads.isSupported()) {
+            throw new IllegalStateException(String.format("forexrate.virtual-threads.enabled needs a Java 21 runtime, the application runs on Java %s",
+                    System.getProperty("java.version")));
+        }
+    }
+
+    @Bean
+    public ExecutorService virtualThreadExecutor() {
+        return VirtualThreads.newThreadPerTaskExecutor("virtual-");
+    }
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandlerCustomizer(ExecutorService virtualThreadExecutor) {
+        return protocolHandler -> protocolHandler.setExecutor(virtualThreadExecutor);
+    }
+
+    //same name as the pooled executor spring boot configures by default, so it replaces it
+    @Bean(name = TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME)
+    public TaskExecutorAdapter applicationTaskExecutor(ExecutorService virtualThreadExecutor) {
+        return new TaskExecutorAdapter(virtualThreadExecutor);
+    }
+}
@@ -1,45 +1,184 @@
 package com.challenge.forexrate.controller;
 
 import com.challenge.forexrate.entity.ApiUsageLog;
+import com.challenge.forexrate.model.ApiUsageBucketCount;
+import com.challenge.forexrate.model.ApiUsageLogCursor;
+import com.challenge.forexrate.model.ApiUsagePairCount;
+import com.challenge.forexrate.model.UsageGranularity;
 import com.challenge.forexrate.service.ApiUsageLogService;
+import com.challenge.forexrate.service.ApiUsageStatisticsService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
 import com.toedter.spring.hateoas.jsonapi.MediaTypes;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.hateoas.CollectionModel;
+import org.springframework.hateoas.IanaLinkRelations;
+import org.springframework.hateoas.Link;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.util.List;
 
 @RestController
-@RequestMapping(value = "/api/exchange-rate/history", produces = MediaTypes.JSON_API_VALUE)
+@RequestMapping(value = "/api/exchange-rate/history", produces = {MediaTypes.JSON_API_VALUE, MediaType.APPLICATION_CBOR_VALUE})
 @RequiredArgsConstructor
 public class ExchangeRateApiLogController {
 
     private static final LocalTime BOD_LOCAL_TIME = LocalTime.of(0, 0);
     private static final LocalTime EOD_LOCAL_TIME = LocalTime.of(23, 59, 59, 999999);
+    private static final int MAX_TOP_PAIRS_LIMIT = 100;
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final String PAGE_AFTER_PARAM = "page[after]";
+    private static final String PAGE_SIZE_PARAM = "page[size]";
     private final ApiUsageLogService apiUsageLogService;
+    private final ApiUsageStatisticsService apiUsageStatisticsService;
+    private final ObjectMapper objectMapper;
+    private Duration closedDaysMaxAge;
 
     @GetMapping("/daily/{year:^\\d{4}$}/{month:^\\d{2}$}/{day:^\\d{2}$}")
-    public CollectionModel<ApiUsageLog> getLogs(@PathVariable Integer year,
-                                                @PathVariable Integer month,
-                                                @PathVariable Integer day) {
+    public ResponseEntity<CollectionModel<ApiUsageLog>> getLogs(@PathVariable Integer year,
+                                                                @PathVariable Integer month,
+                                                                @PathVariable Integer day,
+                                                                @RequestParam(name = PAGE_AFTER_PARAM, required = false) String after,
+                                                                @RequestParam(name = PAGE_SIZE_PARAM, defaultValue = "100") Integer size) {
         LocalDate date = LocalDate.of(year, month, day);
         LocalDateTime startDateTime = LocalDateTime.of(date, BOD_LOCAL_TIME);
         LocalDateTime endDateTime = LocalDateTime.of(date, EOD_LOCAL_TIME);
-        return CollectionModel.of(apiUsageLogService.findByRangeDateTime(startDateTime, endDateTime));
+        return buildResponse(date, getLogPage(startDateTime, endDateTime, after, size));
+    }
+
+    @GetMapping(value = "/daily/{year:^\\d{4}$}/{month:^\\d{2}$}/{day:^\\d{2}$}", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamLogs(@PathVariable Integer year,
+                                                            @PathVariable Integer month,
+                                                            @PathVariable Integer day) {
+        LocalDate date = LocalDate.of(year, month, day);
+        LocalDateTime startDateTime = LocalDateTime.of(date, BOD_LOCAL_TIME);
+        LocalDateTime endDateTime = LocalDateTime.of(date, EOD_LOCAL_TIME);
+        return streamLogs(date, startDateTime, endDateTime);
     }
 
     @GetMapping("/monthly/{year:^\\d{4}$}/{month:^\\d{2}$}")
-    public CollectionModel<ApiUsageLog> getLogs(@PathVariable Integer year,
-                                                @PathVariable Integer month) {
+    public ResponseEntity<CollectionModel<ApiUsageLog>> getLogs(@PathVariable Integer year,
+                                                                @PathVariable Integer month,
+                                                                @RequestParam(name = PAGE_AFTER_PARAM, required = false) String after,
+                                                                @RequestParam(name = PAGE_SIZE_PARAM, defaultValue = "100") Integer size) {
+        LocalDate startDate = LocalDate.of(year, month, 1);
+        LocalDate endDate = LocalDate.of(year, month, startDate.lengthOfMonth());
+        LocalDateTime startDateTime = LocalDateTime.of(startDate, BOD_LOCAL_TIME);
+        LocalDateTime endDateTime = LocalDateTime.of(endDate, EOD_LOCAL_TIME);
+        return buildResponse(endDate, getLogPage(startDateTime, endDateTime, after, size));
+    }
+
+    @GetMapping(value = "/monthly/{year:^\\d{4}$}/{month:^\\d{2}$}", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamLogs(@PathVariable Integer year,
+                                                            @PathVariable Integer month) {
         LocalDate startDate = LocalDate.of(year, month, 1);
         LocalDate endDate = LocalDate.of(year, month, startDate.lengthOfMonth());
         LocalDateTime startDateTime = LocalDateTime.of(startDate, BOD_LOCAL_TIME);
         LocalDateTime endDateTime = LocalDateTime.of(endDate, EOD_LOCAL_TIME);
-        return CollectionModel.of(apiUsageLogService.findByRangeDateTime(startDateTime, endDateTime));
+        return streamLogs(endDate, startDateTime, endDateTime);
+    }
+
+    @GetMapping("/summary/hourly/{year:^\\d{4}$}/{month:^\\d{2}$}/{day:^\\d{2}$}")
+    public ResponseEntity<CollectionModel<ApiUsageBucketCount>> getRequestCounts(@PathVariable Integer year,
+                                                                                 @PathVariable Integer month,
+                                                                                 @PathVariable Integer day) {
+        LocalDate date = LocalDate.of(year, month, day);
+        LocalDateTime startDateTime = LocalDateTime.of(date, BOD_LOCAL_TIME);
+        LocalDateTime endDateTime = LocalDateTime.of(date, EOD_LOCAL_TIME);
+        return buildResponse(date, CollectionModel.of(apiUsageStatisticsService.countByBucket(UsageGranularity.HOURLY, startDateTime, endDateTime)));
+    }
+
+    @GetMapping("/summary/daily/{year:^\\d{4}$}/{month:^\\d{2}$}")
+    public ResponseEntity<CollectionModel<ApiUsageBucketCount>> getRequestCounts(@PathVariable Integer year,
+                                                                                 @PathVariable Integer month) {
+        LocalDate startDate = LocalDate.of(year, month, 1);
+        LocalDate endDate = LocalDate.of(year, month, startDate.lengthOfMonth());
+        LocalDateTime startDateTime = LocalDateTime.of(startDate, BOD_LOCAL_TIME);
+        LocalDateTime endDateTime = LocalDateTime.of(endDate, EOD_LOCAL_TIME);
+        return buildResponse(endDate, CollectionModel.of(apiUsageStatisticsService.countByBucket(UsageGranularity.DAILY, startDateTime, endDateTime)));
+    }
+
+    @GetMapping("/summary/top-pairs/{year:^\\d{4}$}/{month:^\\d{2}$}")
+    public ResponseEntity<CollectionModel<ApiUsagePairCount>> getTopPairs(@PathVariable Integer year,
+                                                                          @PathVariable Integer month,
+                                                                          @RequestParam(defaultValue = "10") Integer limit) {
+        LocalDate startDate = LocalDate.of(year, month, 1);
+        LocalDate endDate = LocalDate.of(year, month, startDate.lengthOfMonth());
+        LocalDateTime startDateTime = LocalDateTime.of(startDate, BOD_LOCAL_TIME);
+        LocalDateTime endDateTime = LocalDateTime.of(endDate, EOD_LOCAL_TIME);
+        return buildResponse(endDate, CollectionModel.of(apiUsageStatisticsService.findTopPairs(startDateTime, endDateTime, Math.max(1, Math.min(limit, MAX_TOP_PAIRS_LIMIT)))));
+    }
+
+    private CollectionModel<ApiUsageLog> getLogPage(LocalDateTime startDateTime, LocalDateTime endDateTime, String after, Integer size) {
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        ApiUsageLogCursor afterCursor = after == null ? null : ApiUsageLogCursor.decode(after);
+        //one more log than the page size tells whether there is a next page
+        List<ApiUsageLog> apiUsageLogs = apiUsageLogService.findByRangeDateTime(startDateTime, endDateTime, afterCursor, pageSize + 1);
+        if (apiUsageLogs.size() <= pageSize) {
+            return CollectionModel.of(apiUsageLogs);
+        }
+
+        List<ApiUsageLog> page = apiUsageLogs.subList(0, pageSize);
+        String nextPage = ServletUriComponentsBuilder.fromCurrentRequestUri()
+                .queryParam(PAGE_AFTER_PARAM, ApiUsageLogCursor.of(page.get(pageSize - 1)).encode())
+                .queryParam(PAGE_SIZE_PARAM, pageSize)
+                .toUriString();
+        return CollectionModel.of(page).add(Link.of(nextPage, IanaLinkRelations.NEXT));
+    }
+
+    private ResponseEntity<StreamingResponseBody> streamLogs(LocalDate endDate, LocalDateTime startDateTime, LocalDateTime endDateTime) {
+        StreamingResponseBody body = outputStream -> {
+            try (SequenceWriter sequenceWriter = objectMapper.writer().withRootValueSeparator("\n").writeValues(outputStream)) {
+                apiUsageLogService.forEachByRangeDateTime(startDateTime, endDateTime, apiUsageLog -> {
+                    try {
+                        sequenceWriter.write(apiUsageLog);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .header(HttpHeaders.CACHE_CONTROL, buildCacheControl(endDate))
+                .body(body);
+    }
+
+    private <T> ResponseEntity<T> buildResponse(LocalDate endDate, T body) {
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CACHE_CONTROL, buildCacheControl(endDate))
+                .varyBy(HttpHeaders.ACCEPT)
+                .body(body);
+    }
+
+    //usage is private, and logs of closed days still go away with the retention, so they are never immutable
+    private String buildCacheControl(LocalDate endDate) {
+        if (endDate.isBefore(LocalDate.now())) {
+            return CacheControl.maxAge(closedDaysMaxAge).cachePrivate().getHeaderValue();
+        }
+        return CacheControl.noCache().cachePrivate().getHeaderValue();
+    }
+
+    @Autowired
+    void setClosedDaysMaxAge(@Value("${usage-log.http-cache.closed-days-max-age:1h}") Duration closedDaysMaxAge) {
+        this.closedDaysMaxAge = closedDaysMaxAge;
     }
-}
+}
\ No newline at end of file
@@ -1,33 +1,240 @@
 package com.challenge.forexrate.controller;
 
+import com.challenge.forexrate.exception.InvalidReportQueryException;
 import com.challenge.forexrate.model.ExchangeRateReport;
+import com.challenge.forexrate.model.ReportQuery;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
 import com.challenge.forexrate.service.ApiUsageLogService;
 import com.challenge.forexrate.service.ExchangeRateService;
 import com.toedter.spring.hateoas.jsonapi.MediaTypes;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.hateoas.CollectionModel;
 import org.springframework.hateoas.EntityModel;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.DigestUtils;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.stream.Stream;
 
+//reports before yesterday never change, their ETag is derived from the request so a 304 needs no report
 @RestController
-@RequestMapping(value = "/api/exchange-rate", produces = MediaTypes.JSON_API_VALUE)
+@RequestMapping(value = "/api/exchange-rate", produces = {MediaTypes.JSON_API_VALUE, MediaType.APPLICATION_CBOR_VALUE})
 @RequiredArgsConstructor
 public class ExchangeRateController {
 
     private final ExchangeRateService exchangeRateService;
     private final ApiUsageLogService apiUsageLogService;
+    private final ObjectMapper objectMapper;
+    private final GlobalExceptionHandler globalExceptionHandler;
+    private int maximumBulkQueries;
+    private Duration historicalMaxAge;
+    private Duration recentMaxAge;
+    private String representationVersion;
 
     @GetMapping("/{date:^\\d{4}-\\d{2}-\\d{2}$}/{baseCurrency}/{targetCurrency}")
-    public EntityModel<ExchangeRateReport> getReport(@PathVariable String date,
-                                                     @PathVariable String baseCurrency,
-                                                     @PathVariable String targetCurrency) {
+    public CompletableFuture<ResponseEntity<EntityModel<ExchangeRateReport>>> getReport(@PathVariable String date,
+                                                                                        @PathVariable String baseCurrency,
+                                                                                        @PathVariable String targetCurrency,
+                                                                                        @RequestParam(required = false) List<Integer> windows,
+                                                                                        ServletWebRequest webRequest) {
         LocalDate parsedDate = LocalDate.parse(date);
-        EntityModel<ExchangeRateReport> exchangeRateReport = EntityModel.of(exchangeRateService.getReport(parsedDate, baseCurrency, targetCurrency));
-        apiUsageLogService.save(parsedDate, baseCurrency, targetCurrency);
-        return exchangeRateReport;
+        List<Integer> requestedWindows = windows == null ? Collections.emptyList() : windows;
+        String historicalETag = isHistorical(parsedDate) ? buildETag(webRequest) : null;
+        if (checkNotModified(webRequest, historicalETag,
+                () -> exchangeRateService.validateRequest(parsedDate, baseCurrency, Collections.singletonList(targetCurrency), requestedWindows))) {
+            apiUsageLogService.save(parsedDate, baseCurrency, targetCurrency);
+            return CompletableFuture.completedFuture(buildResponse(HttpStatus.NOT_MODIFIED, parsedDate, historicalETag, null));
+        }
+
+        return exchangeRateService.getReportAsync(parsedDate, baseCurrency, targetCurrency, requestedWindows)
+                .thenApply(exchangeRateReport -> {
+                    apiUsageLogService.save(parsedDate, baseCurrency, targetCurrency);
+                    String eTag = historicalETag != null ? historicalETag : buildETag(webRequest, exchangeRateReport);
+                    return buildResponse(HttpStatus.OK, parsedDate, eTag, EntityModel.of(exchangeRateReport));
+                });
+    }
+
+    @GetMapping("/{date:^\\d{4}-\\d{2}-\\d{2}$}/{baseCurrency}")
+    public CompletableFuture<ResponseEntity<CollectionModel<ExchangeRateReport>>> getReports(@PathVariable String date,
+                                                                                             @PathVariable String baseCurrency,
+                                                                                             @RequestParam List<String> targets,
+                                                                                             @RequestParam(required = false) List<Integer> windows,
+                                                                                             ServletWebRequest webRequest) {
+        LocalDate parsedDate = LocalDate.parse(date);
+        List<Integer> requestedWindows = windows == null ? Collections.emptyList() : windows;
+        String historicalETag = isHistorical(parsedDate) ? buildETag(webRequest) : null;
+        if (checkNotModified(webRequest, historicalETag, () -> exchangeRateService.validateRequest(parsedDate, baseCurrency, targets, requestedWindows))) {
+            targets.forEach(targetCurrency -> apiUsageLogService.save(parsedDate, baseCurrency, targetCurrency));
+            return CompletableFuture.completedFuture(buildResponse(HttpStatus.NOT_MODIFIED, parsedDate, historicalETag, null));
+        }
+
+        return exchangeRateService.getReportsAsync(parsedDate, baseCurrency, targets, requestedWindows)
+                .thenApply(exchangeRateReports -> {
+                    targets.forEach(targetCurrency -> apiUsageLogService.save(parsedDate, baseCurrency, targetCurrency));
+                    String eTag = historicalETag != null ? historicalETag : buildETag(webRequest, exchangeRateReports);
+                    return buildResponse(HttpStatus.OK, parsedDate, eTag, CollectionModel.of(exchangeRateReports));
+                });
+    }
+
+    @GetMapping(value = "/{startDate:^\\d{4}-\\d{2}-\\d{2}$}/{endDate:^\\d{4}-\\d{2}-\\d{2}$}/{baseCurrency}/{targetCurrency}",
+            produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> getReports(@PathVariable String startDate,
+                                                            @PathVariable String endDate,
+                                                            @PathVariable String baseCurrency,
+                                                            @PathVariable String targetCurrency,
+                                                            ServletWebRequest webRequest) {
+        LocalDate parsedStartDate = LocalDate.parse(startDate);
+        LocalDate parsedEndDate = LocalDate.parse(endDate);
+        //the stream is not buffered, so only a fully historical range has an ETag
+        String historicalETag = isHistorical(parsedEndDate) ? buildETag(webRequest) : null;
+        if (checkNotModified(webRequest, historicalETag,
+                () -> exchangeRateService.validateRequest(parsedStartDate, parsedEndDate, baseCurrency, targetCurrency))) {
+            apiUsageLogService.save(parsedStartDate, baseCurrency, targetCurrency);
+            return buildResponse(HttpStatus.NOT_MODIFIED, parsedEndDate, historicalETag, null);
+        }
+
+        Stream<ExchangeRateReport> exchangeRateReports = exchangeRateService.getReports(parsedStartDate, parsedEndDate, baseCurrency, targetCurrency);
+        apiUsageLogService.save(parsedStartDate, baseCurrency, targetCurrency);
+
+        StreamingResponseBody body = outputStream -> {
+            try (SequenceWriter sequenceWriter = objectMapper.writer().withRootValueSeparator("\n").writeValues(outputStream)) {
+                Iterator<ExchangeRateReport> iterator = exchangeRateReports.iterator();
+                while (iterator.hasNext()) {
+                    sequenceWriter.write(iterator.next());
+                }
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .eTag(historicalETag)
+                .header(HttpHeaders.CACHE_CONTROL, buildCacheControl(parsedEndDate))
+                .body(body);
+    }
+
+    //each line is written as soon as it and every preceding one are computed
+    @PostMapping(consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> getReports(@RequestBody List<ReportQuery> queries) {
+        if (queries.size() > maximumBulkQueries) {
+            throw new InvalidReportQueryException(String.format("At most %d report queries are accepted per request", maximumBulkQueries));
+        }
+        List<CompletableFuture<ExchangeRateReport>> exchangeRateReports = exchangeRateService.getReportsAsync(queries);
+
+        StreamingResponseBody body = outputStream -> {
+            List<ReportQuery> answeredQueries = new ArrayList<>(queries.size());
+            try (SequenceWriter sequenceWriter = objectMapper.writer().withRootValueSeparator("\n").writeValues(outputStream)) {
+                for (int index = 0; index < exchangeRateReports.size(); index++) {
+                    CompletableFuture<ExchangeRateReport> exchangeRateReport = exchangeRateReports.get(index);
+                    if (!exchangeRateReport.isDone()) {
+                        sequenceWriter.flush();
+                    }
+                    try {
+                        sequenceWriter.write(exchangeRateReport.join());
+                        answeredQueries.add(queries.get(index));
+                    } catch (CompletionException e) {
+                        sequenceWriter.write(globalExceptionHandler.handle(e).getBody());
+                    }
+                }
+            } finally {
+                apiUsageLogService.saveAll(answeredQueries);
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
+    //same rule as the report cache
+    private static boolean isHistorical(LocalDate date) {
+        return date.isBefore(LocalDate.now().minus(1, ChronoUnit.DAYS));
+    }
+
+    //requests without a conditional header are validated when their report is computed, so it is timed
+    private static boolean checkNotModified(ServletWebRequest webRequest, String historicalETag, Runnable validation) {
+        String ifNoneMatch = webRequest.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (historicalETag == null || ifNoneMatch == null || ifNoneMatch.contains("*")) {
+            return false;
+        }
+        validation.run();
+        return webRequest.checkNotModified(historicalETag);
+    }
+
+    private String buildETag(ServletWebRequest webRequest, Object... content) {
+        StringBuilder tagged = new StringBuilder()
+                .append(representationVersion).append('\n')
+                .append(webRequest.getRequest().getRequestURI()).append('?')
+                .append(webRequest.getRequest().getQueryString()).append('\n')
+                .append(webRequest.getHeader(HttpHeaders.ACCEPT));
+        for (Object part : content) {
+            tagged.append('\n').append(part);
+        }
+        return '"' + DigestUtils.md5DigestAsHex(tagged.toString().getBytes(StandardCharsets.UTF_8)) + '"';
+    }
+
+    private <T> ResponseEntity<T> buildResponse(HttpStatus status, LocalDate date, String eTag, T body) {
+        return ResponseEntity.status(status)
+                .eTag(eTag)
+                .header(HttpHeaders.CACHE_CONTROL, buildCacheControl(date))
+                .varyBy(HttpHeaders.ACCEPT)
+                .body(body);
+    }
+
+    //CacheControl has no immutable directive yet
+    private String buildCacheControl(LocalDate date) {
+        if (isHistorical(date)) {
+            return CacheControl.maxAge(historicalMaxAge).cachePublic().getHeaderValue() + ", immutable";
+        }
+        return CacheControl.maxAge(recentMaxAge).cachePublic().getHeaderValue();
+    }
+
+    @Autowired
+    void setMaximumBulkQueries(@Value("${report.bulk.maximum-queries:10000}") int maximumBulkQueries) {
+        this.maximumBulkQueries = maximumBulkQueries;
+    }
+
+    @Autowired
+    void setHistoricalMaxAge(@Value("${report.http-cache.historical-max-age:365d}") Duration historicalMaxAge) {
+        this.historicalMaxAge = historicalMaxAge;
+    }
+
+    @Autowired
+    void setRecentMaxAge(@Value("${report.http-cache.recent-max-age:${report.cache.recent-expiration:1h}}") Duration recentMaxAge) {
+        this.recentMaxAge = recentMaxAge;
+    }
+
+    //historical reports are cached as immutable, so the build and the settings they are computed with are in their tags
+    @Autowired
+    void setRepresentationVersion(@Value("${report.http-cache.representation-version:}") String version,
+                                  @Value("${report.average.days-amount:5}") int averageDaysAmount,
+                                  @Value("${rates.provider:upstream}") String ratesProvider) {
+        this.representationVersion = String.join("/", version, String.valueOf(averageDaysAmount), ratesProvider);
+    }
+
+    String getRepresentationVersion() {
+        return representationVersion;
     }
 }
@@ -2,90 +2,135 @@ package com.challenge.forexrate.controller;
 
 import com.challenge.forexrate.exception.ExchangeRateDateNotFoundException;
 import com.challenge.forexrate.exception.ExchangeRateDateOutOfBoundsException;
+import com.challenge.forexrate.exception.InvalidPageCursorException;
+import com.challenge.forexrate.exception.InvalidReportQueryException;
+import com.challenge.forexrate.exception.InvalidWindowException;
+import com.challenge.forexrate.exception.UnsupportedCurrencyException;
+import com.challenge.forexrate.exception.UpstreamUnavailableException;
 import com.toedter.spring.hateoas.jsonapi.JsonApiError;
 import com.toedter.spring.hateoas.jsonapi.JsonApiErrors;
 import com.toedter.spring.hateoas.jsonapi.MediaTypes;
 import feign.FeignException;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
 import org.springframework.core.convert.ConversionFailedException;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.util.ReflectionUtils;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.method.annotation.ExceptionHandlerMethodResolver;
+import org.springframework.web.reactive.function.client.WebClientException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
 
+import java.lang.reflect.Method;
 import java.time.DateTimeException;
+import java.util.concurrent.CompletionException;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 @RestControllerAdvice
+@RequiredArgsConstructor
 public class GlobalExceptionHandler {
 
+    public static final String ERROR_COUNTER_NAME = "api.errors";
+
     private static final Pattern FAULTY_CURRENCY_PATTERN = Pattern.compile("\\{\"error\":\"(?:Base|Symbols) '(.+)' (?:is not supported|are invalid)\\.\"}");
 
+    private final ExceptionHandlerMethodResolver exceptionHandlerMethodResolver = new ExceptionHandlerMethodResolver(GlobalExceptionHandler.class);
+    private final MeterRegistry meterRegistry;
+
+    //for failures outside of a request handler, such as a single report of a bulk request
+    @SuppressWarnings("unchecked")
+    public ResponseEntity<JsonApiErrors> handle(Throwable throwable) {
+        Throwable exception = throwable instanceof CompletionException && throwable.getCause() != null ? throwable.getCause() : throwable;
+        Method handler = exceptionHandlerMethodResolver.resolveMethodByThrowable(exception);
+        if (handler == null || !handler.getParameterTypes()[0].isInstance(exception)) {
+            return handleUnknownError(new RuntimeException(exception.getMessage(), exception));
+        }
+        return (ResponseEntity<JsonApiErrors>) ReflectionUtils.invokeMethod(handler, this, exception);
+    }
+
     @ExceptionHandler(DateTimeException.class)
     public ResponseEntity<JsonApiErrors> handleInvalidDate(DateTimeException exception) {
-        return ResponseEntity.badRequest()
-                .header(HttpHeaders.CONTENT_TYPE, MediaTypes.JSON_API_VALUE)
-                .body(
-                        JsonApiErrors.create().withError(
-                                JsonApiError.create()
-                                        .withTitle("Invalid date")
-                                        .withStatus(String.valueOf(HttpStatus.BAD_REQUEST.value()))
-                                        .withDetail(exception.getMessage())));
+        return buildErrorResponse(HttpStatus.BAD_REQUEST, "Invalid date", exception.getMessage());
     }
 
     @ExceptionHandler(FeignException.class)
     public ResponseEntity<JsonApiErrors> handleFeignExceptionInvalidDate(FeignException exception) {
-        Matcher matcher = FAULTY_CURRENCY_PATTERN.matcher(exception.contentUTF8());
-        if (HttpStatus.BAD_REQUEST.value() == exception.status()
+        return handleUpstreamError(exception.status(), exception.contentUTF8());
+    }
+
+    @ExceptionHandler(WebClientException.class)
+    public ResponseEntity<JsonApiErrors> handleWebClientException(WebClientException exception) {
+        if (exception instanceof WebClientResponseException) {
+            WebClientResponseException responseException = (WebClientResponseException) exception;
+            return handleUpstreamError(responseException.getRawStatusCode(), responseException.getResponseBodyAsString());
+        }
+        return handleUpstreamError(-1, "");
+    }
+
+    private ResponseEntity<JsonApiErrors> handleUpstreamError(int status, String content) {
+        Matcher matcher = FAULTY_CURRENCY_PATTERN.matcher(content);
+        if (HttpStatus.BAD_REQUEST.value() == status
                 && matcher.find()) {
 
-            return ResponseEntity.badRequest()
-                    .header(HttpHeaders.CONTENT_TYPE, MediaTypes.JSON_API_VALUE)
-                    .body(
-                            JsonApiErrors.create().withError(
-                                    JsonApiError.create()
-                                            .withTitle("Not supported currency")
-                                            .withStatus(String.valueOf(HttpStatus.BAD_REQUEST.value()))
-                                            .withDetail(String.format("Used currency '%s' is not supported", matcher.group(1)))));
+            return buildErrorResponse(HttpStatus.BAD_REQUEST, "Not supported currency", String.format("Used currency '%s' is not supported", matcher.group(1)));
         }
 
         return handleUnknownError(new RuntimeException("Error occurred while fetching data from exchangeratesapi.io"));
     }
 
+    @ExceptionHandler(UnsupportedCurrencyException.class)
+    public ResponseEntity<JsonApiErrors> handleUnsupportedCurrency(UnsupportedCurrencyException exception) {
+        return buildErrorResponse(HttpStatus.BAD_REQUEST, "Not supported currency", exception.getMessage());
+    }
+
     @ExceptionHandler(ExchangeRateDateOutOfBoundsException.class)
     public ResponseEntity<JsonApiErrors> handleDateOutOfBounds(ExchangeRateDateOutOfBoundsException exception) {
-        return ResponseEntity.badRequest()
-                .header(HttpHeaders.CONTENT_TYPE, MediaTypes.JSON_API_VALUE)
-                .body(
-                        JsonApiErrors.create().withError(
-                                JsonApiError.create()
-                                        .withTitle("Date out of bounds")
-                                        .withStatus(String.valueOf(HttpStatus.BAD_REQUEST.value()))
-                                        .withDetail(exception.getMessage())));
+        return buildErrorResponse(HttpStatus.BAD_REQUEST, "Date out of bounds", exception.getMessage());
     }
 
     @ExceptionHandler(ExchangeRateDateNotFoundException.class)
     public ResponseEntity<JsonApiErrors> handleExchangeRateDateNotFound(ExchangeRateDateNotFoundException exception) {
-        return ResponseEntity.status(HttpStatus.NOT_FOUND)
-                .header(HttpHeaders.CONTENT_TYPE, MediaTypes.JSON_API_VALUE)
-                .body(
-                        JsonApiErrors.create().withError(
-                                JsonApiError.create()
-                                        .withTitle("Exchange rate not found")
-                                        .withStatus(String.valueOf(HttpStatus.NOT_FOUND.value()))
-                                        .withDetail(exception.getMessage())));
+        return buildErrorResponse(HttpStatus.NOT_FOUND, "Exchange rate not found", exception.getMessage());
+    }
+
+    @ExceptionHandler(UpstreamUnavailableException.class)
+    public ResponseEntity<JsonApiErrors> handleUpstreamUnavailable(UpstreamUnavailableException exception) {
+        return buildErrorResponse(HttpStatus.SERVICE_UNAVAILABLE, "Upstream unavailable", exception.getMessage());
+    }
+
+    @ExceptionHandler(InvalidPageCursorException.class)
+    public ResponseEntity<JsonApiErrors> handleInvalidPageCursor(InvalidPageCursorException exception) {
+        return buildErrorResponse(HttpStatus.BAD_REQUEST, "Invalid page cursor", exception.getMessage());
+    }
+
+    @ExceptionHandler(InvalidWindowException.class)
+    public ResponseEntity<JsonApiErrors> handleInvalidWindow(InvalidWindowException exception) {
+        return buildErrorResponse(HttpStatus.BAD_REQUEST, "Invalid window", exception.getMessage());
+    }
+
+    @ExceptionHandler(InvalidReportQueryException.class)
+    public ResponseEntity<JsonApiErrors> handleInvalidReportQuery(InvalidReportQueryException exception) {
+        return buildErrorResponse(HttpStatus.BAD_REQUEST, "Invalid report query", exception.getMessage());
     }
 
     @ExceptionHandler(RuntimeException.class)
     public ResponseEntity<JsonApiErrors> handleUnknownError(RuntimeException exception) {
-        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+        return buildErrorResponse(HttpStatus.INTERNAL_SERVER_ERROR, "Unknown error", exception.getMessage());
+    }
+
+    private ResponseEntity<JsonApiErrors> buildErrorResponse(HttpStatus status, String title, String detail) {
+        meterRegistry.counter(ERROR_COUNTER_NAME, "status", String.valueOf(status.value()), "error", title).increment();
+        return ResponseEntity.status(status)
                 .header(HttpHeaders.CONTENT_TYPE, MediaTypes.JSON_API_VALUE)
                 .body(
                         JsonApiErrors.create().withError(
                                 JsonApiError.create()
-                                        .withTitle("Unknown error")
-                                        .withStatus(String.valueOf(HttpStatus.INTERNAL_SERVER_ERROR.value()))
-                                        .withDetail(exception.getMessage())));
+                                        .withTitle(title)
+                                        .withStatus(String.valueOf(status.value()))
+                                        .withDetail(detail)));
     }
 }
@@ -5,24 +5,23 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
-import javax.persistence.Entity;
-import javax.persistence.GeneratedValue;
-import javax.persistence.Id;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 
-@Entity
+//stored with JDBC in the partition of its request date rather than mapped by JPA
 @NoArgsConstructor
 @AllArgsConstructor
 @Data
 @Builder
 public class ApiUsageLog {
-    @Id
-    @GeneratedValue
+    public static final String ID_SEQUENCE_NAME = "api_usage_log_seq";
+    public static final int ID_ALLOCATION_SIZE = 50;
+
+    //pooled-lo: each sequence value is the first id of a block of ID_ALLOCATION_SIZE ids, unique across partitions
     private Long id;
     private LocalDateTime requestDateTime;
     private LocalDate requestedDate;
     private String baseCurrency;
     private String targetCurrency;
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,38 @@
+package com.challenge.forexrate.entity;
+
+import com.challenge.forexrate.model.UsageGranularity;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.Id;
+import javax.persistence.IdClass;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+//counts are only incremented, in the transaction that writes the logs
+@Entity
+@IdClass(ApiUsageRollupId.class)
+@NoArgsConstructor
+@AllArgsConstructor
+@Data
+@Builder
+public class ApiUsageRollup {
+    @Id
+    @Enumerated(EnumType.STRING)
+    private UsageGranularity granularity;
+    @Id
+    private LocalDateTime bucketStart;
+    @Id
+    private String baseCurrency;
+    @Id
+    private String targetCurrency;
+    @Id
+    private LocalDate requestedDate;
+    private Long requestCount;
+
+}
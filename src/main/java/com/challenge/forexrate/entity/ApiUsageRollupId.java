@@ -0,0 +1,22 @@
+package com.challenge.forexrate.entity;
+
+import com.challenge.forexrate.model.UsageGranularity;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+@NoArgsConstructor
+@AllArgsConstructor
+@Data
+public class ApiUsageRollupId implements Serializable {
+    private UsageGranularity granularity;
+    private LocalDateTime bucketStart;
+    private String baseCurrency;
+    private String targetCurrency;
+    private LocalDate requestedDate;
+
+}
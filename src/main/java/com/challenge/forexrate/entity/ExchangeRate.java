@@ -0,0 +1,32 @@
+package com.challenge.forexrate.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.IdClass;
+import javax.persistence.Index;
+import javax.persistence.Table;
+import java.time.LocalDate;
+
+//a null rate marks a date the upstream has no quotation for
+@Entity
+@Table(indexes = @Index(columnList = "baseCurrency, targetCurrency, rateDate"))
+@IdClass(ExchangeRateId.class)
+@NoArgsConstructor
+@AllArgsConstructor
+@Data
+@Builder
+public class ExchangeRate {
+    @Id
+    private LocalDate rateDate;
+    @Id
+    private String baseCurrency;
+    @Id
+    private String targetCurrency;
+    private Double rate;
+
+}
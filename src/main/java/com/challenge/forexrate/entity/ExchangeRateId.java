@@ -0,0 +1,18 @@
+package com.challenge.forexrate.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+@NoArgsConstructor
+@AllArgsConstructor
+@Data
+public class ExchangeRateId implements Serializable {
+    private LocalDate rateDate;
+    private String baseCurrency;
+    private String targetCurrency;
+
+}
@@ -0,0 +1,7 @@
+package com.challenge.forexrate.exception;
+
+public class InvalidPageCursorException extends RuntimeException {
+    public InvalidPageCursorException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package com.challenge.forexrate.exception;
+
+public class InvalidReportQueryException extends RuntimeException {
+    public InvalidReportQueryException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package com.challenge.forexrate.exception;
+
+public class InvalidWindowException extends RuntimeException {
+    public InvalidWindowException(String message) {
+        super(message);
+    }
+}
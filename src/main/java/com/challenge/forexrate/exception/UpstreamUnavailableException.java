@@ -0,0 +1,7 @@
+package com.challenge.forexrate.exception;
+
+public class UpstreamUnavailableException extends RuntimeException {
+    public UpstreamUnavailableException(String message) {
+        super(message);
+    }
+}
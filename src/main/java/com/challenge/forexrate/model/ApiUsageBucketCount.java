@@ -0,0 +1,19 @@
+package com.challenge.forexrate.model;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+public class ApiUsageBucketCount {
+
+    private final String id;
+    private final LocalDateTime bucketStart;
+    private final Long requestCount;
+
+    public ApiUsageBucketCount(LocalDateTime bucketStart, Long requestCount) {
+        this.id = bucketStart.toString();
+        this.bucketStart = bucketStart;
+        this.requestCount = requestCount;
+    }
+}
@@ -0,0 +1,38 @@
+package com.challenge.forexrate.model;
+
+import com.challenge.forexrate.entity.ApiUsageLog;
+import com.challenge.forexrate.exception.InvalidPageCursorException;
+import lombok.Data;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+//(requestDateTime, id) position, exposed to clients as an opaque token
+@Data
+public class ApiUsageLogCursor {
+
+    private static final String SEPARATOR = "|";
+
+    private final LocalDateTime requestDateTime;
+    private final Long id;
+
+    public static ApiUsageLogCursor of(ApiUsageLog apiUsageLog) {
+        return new ApiUsageLogCursor(apiUsageLog.getRequestDateTime(), apiUsageLog.getId());
+    }
+
+    public static ApiUsageLogCursor decode(String token) {
+        try {
+            String cursor = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separatorIndex = cursor.indexOf(SEPARATOR);
+            return new ApiUsageLogCursor(LocalDateTime.parse(cursor.substring(0, separatorIndex)), Long.valueOf(cursor.substring(separatorIndex + 1)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException e) {
+            throw new InvalidPageCursorException(String.format("Invalid page cursor '%s'", token));
+        }
+    }
+
+    public String encode() {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString((requestDateTime + SEPARATOR + id).getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,19 @@
+package com.challenge.forexrate.model;
+
+import lombok.Data;
+
+@Data
+public class ApiUsagePairCount {
+
+    private final String id;
+    private final String baseCurrency;
+    private final String targetCurrency;
+    private final Long requestCount;
+
+    public ApiUsagePairCount(String baseCurrency, String targetCurrency, Long requestCount) {
+        this.id = baseCurrency + "_" + targetCurrency;
+        this.baseCurrency = baseCurrency;
+        this.targetCurrency = targetCurrency;
+        this.requestCount = requestCount;
+    }
+}
@@ -0,0 +1,77 @@
+package com.challenge.forexrate.model;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+//rates against the pivot currency by currency ordinal, ordinals are shared by every table so a day costs a few hundred bytes
+public class CrossRateTable {
+
+    public static final String PIVOT_CURRENCY = "EUR";
+
+    private static final Map<String, Integer> ORDINALS = new ConcurrentHashMap<>();
+    private static final CrossRateTable NO_QUOTATION = new CrossRateTable(new double[0]);
+
+    private final double[] rates;
+
+    private CrossRateTable(double[] rates) {
+        this.rates = rates;
+    }
+
+    public static CrossRateTable noQuotation() {
+        return NO_QUOTATION;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public boolean hasQuotation() {
+        return rates.length > 0;
+    }
+
+    public double get(String currency) {
+        if (!hasQuotation()) {
+            return Double.NaN;
+        }
+        if (PIVOT_CURRENCY.equals(currency)) {
+            return 1;
+        }
+        Integer ordinal = ORDINALS.get(currency);
+        return ordinal == null || ordinal >= rates.length ? Double.NaN : rates[ordinal];
+    }
+
+    public double getCrossRate(String baseCurrency, String targetCurrency) {
+        return get(targetCurrency) / get(baseCurrency);
+    }
+
+    private static int ordinal(String currency) {
+        Integer ordinal = ORDINALS.get(currency);
+        if (ordinal != null) {
+            return ordinal;
+        }
+        synchronized (ORDINALS) {
+            return ORDINALS.computeIfAbsent(currency, key -> ORDINALS.size());
+        }
+    }
+
+    public static class Builder {
+
+        private double[] rates = new double[0];
+
+        public Builder set(String currency, double rate) {
+            int ordinal = ordinal(currency);
+            if (ordinal >= rates.length) {
+                int length = rates.length;
+                rates = Arrays.copyOf(rates, Math.max(ordinal + 1, ORDINALS.size()));
+                Arrays.fill(rates, length, rates.length, Double.NaN);
+            }
+            rates[ordinal] = rate;
+            return this;
+        }
+
+        public CrossRateTable build() {
+            return new CrossRateTable(rates);
+        }
+    }
+}
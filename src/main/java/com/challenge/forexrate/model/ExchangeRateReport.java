@@ -1,14 +1,20 @@
 package com.challenge.forexrate.model;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.Builder;
 import lombok.Data;
 
+import java.util.Map;
+
 @Data
-@Builder
+@Builder(toBuilder = true)
 public class ExchangeRateReport {
 
     private final String id;
     private final Double rate;
     private final Double averageRate;
     private final String trend;
+    //statistics by window days, only when requested
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private final Map<Integer, RateWindowStatistics> windows;
 }
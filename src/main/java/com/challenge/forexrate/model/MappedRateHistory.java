@@ -0,0 +1,223 @@
+package com.challenge.forexrate.model;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+//rates against the pivot currency in a memory-mapped file, one row of currencies doubles per day from the first day,
+//so a rate is read straight from the mapping. Column 0 is the pivot currency, 1 on quoted days and NaN otherwise.
+//Days are only appended, and a day is visible once its whole row is written
+public class MappedRateHistory implements Closeable {
+
+    private static final int MAGIC = 0x52415445;
+    private static final int VERSION = 1;
+    private static final int CURRENCY_CODE_BYTES = 8;
+    private static final int MAGIC_OFFSET = 0;
+    private static final int VERSION_OFFSET = 4;
+    private static final int CURRENCIES_OFFSET = 8;
+    private static final int CAPACITY_DAYS_OFFSET = 12;
+    private static final int FIRST_EPOCH_DAY_OFFSET = 16;
+    private static final int DAY_COUNT_OFFSET = 20;
+    private static final int CURRENCY_COUNT_OFFSET = 24;
+    private static final int CURRENCY_CODES_OFFSET = 32;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer mapping;
+    private final DoubleBuffer rates;
+    private final int currencies;
+    private final int capacityDays;
+    private final int firstEpochDay;
+    private final Map<String, Integer> indexes = new ConcurrentHashMap<>();
+    private volatile int dayCount;
+
+    private MappedRateHistory(FileChannel channel, MappedByteBuffer mapping, int currencies, int capacityDays, int firstEpochDay) {
+        this.channel = channel;
+        this.mapping = mapping;
+        this.currencies = currencies;
+        this.capacityDays = capacityDays;
+        this.firstEpochDay = firstEpochDay;
+        mapping.position(dataOffset(currencies));
+        this.rates = mapping.slice().order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+        mapping.position(0);
+    }
+
+    //the layout of an existing file is kept whatever the given one
+    public static MappedRateHistory open(Path path, int currencies, int capacityDays, int firstEpochDay) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            boolean created = channel.size() == 0;
+            if (!created) {
+                MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, CURRENCY_CODES_OFFSET);
+                header.order(ByteOrder.LITTLE_ENDIAN);
+                if (header.getInt(MAGIC_OFFSET) != MAGIC || header.getInt(VERSION_OFFSET) != VERSION) {
+                    throw new IOException(String.format("Not a rate history file: %s", path));
+                }
+                currencies = header.getInt(CURRENCIES_OFFSET);
+                capacityDays = header.getInt(CAPACITY_DAYS_OFFSET);
+                firstEpochDay = header.getInt(FIRST_EPOCH_DAY_OFFSET);
+            }
+
+            long size = dataOffset(currencies) + (long) currencies * capacityDays * Double.BYTES;
+            MappedByteBuffer mapping = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            mapping.order(ByteOrder.LITTLE_ENDIAN);
+            MappedRateHistory history = new MappedRateHistory(channel, mapping, currencies, capacityDays, firstEpochDay);
+            if (created) {
+                history.writeHeader();
+            } else {
+                history.readHeader();
+            }
+            return history;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public int getFirstEpochDay() {
+        return firstEpochDay;
+    }
+
+    //the day before the first one when none is stored
+    public int getLastEpochDay() {
+        return firstEpochDay + dayCount - 1;
+    }
+
+    public int indexOf(String currency) {
+        Integer index = indexes.get(currency);
+        return index == null ? -1 : index;
+    }
+
+    public double get(int epochDay, int currencyIndex) {
+        int day = epochDay - firstEpochDay;
+        if (currencyIndex < 0 || day < 0 || day >= dayCount) {
+            return Double.NaN;
+        }
+        return rates.get(day * currencies + currencyIndex);
+    }
+
+    public double getCrossRate(int epochDay, int baseIndex, int targetIndex) {
+        return get(epochDay, targetIndex) / get(epochDay, baseIndex);
+    }
+
+    public boolean hasQuotation(int epochDay) {
+        return !Double.isNaN(get(epochDay, 0));
+    }
+
+    public void copyCrossRates(String baseCurrency, String targetCurrency, RateSeries rates) {
+        int baseIndex = indexOf(baseCurrency);
+        int targetIndex = indexOf(targetCurrency);
+        int lastEpochDay = Math.min(rates.getEndEpochDay(), getLastEpochDay());
+        for (int epochDay = Math.max(rates.getStartEpochDay(), firstEpochDay); epochDay <= lastEpochDay; epochDay++) {
+            rates.set(epochDay, getCrossRate(epochDay, baseIndex, targetIndex));
+        }
+    }
+
+    //days up to lastEpochDay without any rate are stored as days without quotation
+    public synchronized void append(int lastEpochDay, Map<String, RateSeries> ratesByCurrency) {
+        int fromDay = dayCount;
+        int toDay = lastEpochDay - firstEpochDay;
+        if (toDay < fromDay) {
+            return;
+        }
+        if (toDay >= capacityDays) {
+            throw new IllegalStateException(String.format("Rate history is full, it holds %d days from %s", capacityDays, LocalDate.ofEpochDay(firstEpochDay)));
+        }
+
+        for (int day = fromDay; day <= toDay; day++) {
+            int row = day * currencies;
+            for (int index = 0; index < currencies; index++) {
+                rates.put(row + index, Double.NaN);
+            }
+        }
+        for (Map.Entry<String, RateSeries> currencyRates : ratesByCurrency.entrySet()) {
+            RateSeries series = currencyRates.getValue();
+            int index = -1;
+            int lastDay = Math.min(toDay, series.getEndEpochDay() - firstEpochDay);
+            for (int day = Math.max(fromDay, series.getStartEpochDay() - firstEpochDay); day <= lastDay; day++) {
+                double rate = series.get(firstEpochDay + day);
+                if (!Double.isNaN(rate)) {
+                    index = index < 0 ? getOrAddIndex(currencyRates.getKey()) : index;
+                    rates.put(day * currencies + index, rate);
+                    rates.put(day * currencies, 1);
+                }
+            }
+        }
+
+        //rows are written before the day count that makes them visible
+        mapping.putInt(DAY_COUNT_OFFSET, toDay + 1);
+        dayCount = toDay + 1;
+    }
+
+    //appended days reach the file on force or close, the page cache keeps them across a crash of the process
+    public void force() {
+        mapping.force();
+    }
+
+    private int getOrAddIndex(String currency) {
+        Integer index = indexes.get(currency);
+        if (index != null) {
+            return index;
+        }
+        int currencyCount = indexes.size();
+        if (currencyCount == currencies) {
+            throw new IllegalStateException(String.format("Rate history has no column left for currency '%s', it holds %d currencies", currency, currencies));
+        }
+        byte[] code = currency.getBytes(StandardCharsets.US_ASCII);
+        if (code.length > CURRENCY_CODE_BYTES) {
+            throw new IllegalArgumentException(String.format("Invalid currency '%s'", currency));
+        }
+        for (int offset = 0; offset < CURRENCY_CODE_BYTES; offset++) {
+            mapping.put(CURRENCY_CODES_OFFSET + currencyCount * CURRENCY_CODE_BYTES + offset, offset < code.length ? code[offset] : 0);
+        }
+        mapping.putInt(CURRENCY_COUNT_OFFSET, currencyCount + 1);
+        indexes.put(currency, currencyCount);
+        return currencyCount;
+    }
+
+    private void writeHeader() {
+        mapping.putInt(MAGIC_OFFSET, MAGIC);
+        mapping.putInt(VERSION_OFFSET, VERSION);
+        mapping.putInt(CURRENCIES_OFFSET, currencies);
+        mapping.putInt(CAPACITY_DAYS_OFFSET, capacityDays);
+        mapping.putInt(FIRST_EPOCH_DAY_OFFSET, firstEpochDay);
+        mapping.putInt(DAY_COUNT_OFFSET, 0);
+        mapping.putInt(CURRENCY_COUNT_OFFSET, 0);
+        getOrAddIndex(CrossRateTable.PIVOT_CURRENCY);
+        mapping.force();
+    }
+
+    private void readHeader() {
+        int currencyCount = mapping.getInt(CURRENCY_COUNT_OFFSET);
+        for (int index = 0; index < currencyCount; index++) {
+            byte[] code = new byte[CURRENCY_CODE_BYTES];
+            int length = 0;
+            while (length < CURRENCY_CODE_BYTES && mapping.get(CURRENCY_CODES_OFFSET + index * CURRENCY_CODE_BYTES + length) != 0) {
+                code[length] = mapping.get(CURRENCY_CODES_OFFSET + index * CURRENCY_CODE_BYTES + length);
+                length++;
+            }
+            indexes.put(new String(code, 0, length, StandardCharsets.US_ASCII), index);
+        }
+        dayCount = mapping.getInt(DAY_COUNT_OFFSET);
+    }
+
+    //the data region starts after the currency codes, aligned on a double
+    private static int dataOffset(int currencies) {
+        int headerBytes = CURRENCY_CODES_OFFSET + currencies * CURRENCY_CODE_BYTES;
+        return (headerBytes + Double.BYTES - 1) / Double.BYTES * Double.BYTES;
+    }
+
+    @Override
+    public void close() throws IOException {
+        mapping.force();
+        channel.close();
+    }
+}
@@ -0,0 +1,157 @@
+package com.challenge.forexrate.model;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+
+//rates indexed by epoch day relative to the first day, sorted by construction, days without rate hold NaN
+public class RateSeries {
+
+    private final int startEpochDay;
+    private final double[] rates;
+
+    private RateSeries(int startEpochDay, double[] rates) {
+        this.startEpochDay = startEpochDay;
+        this.rates = rates;
+    }
+
+    public static RateSeries empty(LocalDate startDate, LocalDate endDate) {
+        int startEpochDay = Math.toIntExact(startDate.toEpochDay());
+        double[] rates = new double[Math.toIntExact(endDate.toEpochDay()) - startEpochDay + 1];
+        Arrays.fill(rates, Double.NaN);
+        return new RateSeries(startEpochDay, rates);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public int getStartEpochDay() {
+        return startEpochDay;
+    }
+
+    public int getEndEpochDay() {
+        return startEpochDay + rates.length - 1;
+    }
+
+    public int size() {
+        return rates.length;
+    }
+
+    //NaN if there is no rate or the day is out of the range
+    public double get(int epochDay) {
+        int index = epochDay - startEpochDay;
+        return index < 0 || index >= rates.length ? Double.NaN : rates[index];
+    }
+
+    public double get(LocalDate date) {
+        return get(Math.toIntExact(date.toEpochDay()));
+    }
+
+    public void set(int epochDay, double rate) {
+        rates[epochDay - startEpochDay] = rate;
+    }
+
+    //Integer.MIN_VALUE if there is no rate
+    public int getLastRateEpochDay() {
+        for (int index = rates.length - 1; index >= 0; index--) {
+            if (!Double.isNaN(rates[index])) {
+                return startEpochDay + index;
+            }
+        }
+        return Integer.MIN_VALUE;
+    }
+
+    //to exclusive, 0 if there is no rate
+    public double average(int fromEpochDay, int toEpochDay) {
+        return Arrays.stream(rates, clampIndex(fromEpochDay), clampIndex(toEpochDay))
+                .filter(rate -> !Double.isNaN(rate))
+                .average()
+                .orElse(0);
+    }
+
+    //to exclusive, null if there are less than two rates
+    public Trend trend(int fromEpochDay, int toEpochDay) {
+        Trend trend = null;
+        double previous = Double.NaN;
+        for (int index = clampIndex(fromEpochDay), end = clampIndex(toEpochDay); index < end; index++) {
+            double current = rates[index];
+            if (Double.isNaN(current)) {
+                continue;
+            }
+            if (!Double.isNaN(previous)) {
+                Trend pairTrend = previous < current ? Trend.ASCENDING : previous > current ? Trend.DESCENDING : Trend.CONSTANT;
+                if (trend != null && trend != pairTrend) {
+                    return Trend.UNDEFINED;
+                }
+                trend = pairTrend;
+            }
+            previous = current;
+        }
+        return trend;
+    }
+
+    private int clampIndex(int epochDay) {
+        return Math.max(0, Math.min(rates.length, epochDay - startEpochDay));
+    }
+
+    public static int parseEpochDay(String isoDate) {
+        if (isoDate.length() != 10 || isoDate.charAt(4) != '-' || isoDate.charAt(7) != '-') {
+            return Math.toIntExact(LocalDate.parse(isoDate).toEpochDay());
+        }
+        int year = digits(isoDate, 0, 4);
+        int month = digits(isoDate, 5, 7);
+        int day = digits(isoDate, 8, 10);
+        return Math.toIntExact(LocalDate.of(year, month, day).toEpochDay());
+    }
+
+    private static int digits(String text, int from, int to) {
+        int value = 0;
+        for (int index = from; index < to; index++) {
+            int digit = text.charAt(index) - '0';
+            if (digit < 0 || digit > 9) {
+                throw new IllegalArgumentException(String.format("Invalid date '%s'", text));
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    //rates are collected in any order and laid out by day once, when the series is built
+    public static class Builder {
+
+        private int[] epochDays = new int[16];
+        private double[] values = new double[16];
+        private int count;
+        private int minEpochDay = Integer.MAX_VALUE;
+        private int maxEpochDay = Integer.MIN_VALUE;
+
+        public Builder add(int epochDay, double rate) {
+            if (count == epochDays.length) {
+                epochDays = Arrays.copyOf(epochDays, count * 2);
+                values = Arrays.copyOf(values, count * 2);
+            }
+            epochDays[count] = epochDay;
+            values[count] = rate;
+            count++;
+            minEpochDay = Math.min(minEpochDay, epochDay);
+            maxEpochDay = Math.max(maxEpochDay, epochDay);
+            return this;
+        }
+
+        public Builder add(LocalDate date, double rate) {
+            return add(Math.toIntExact(date.toEpochDay()), rate);
+        }
+
+        public RateSeries build() {
+            if (count == 0) {
+                return new RateSeries(0, new double[0]);
+            }
+            double[] rates = new double[maxEpochDay - minEpochDay + 1];
+            Arrays.fill(rates, Double.NaN);
+            for (int index = 0; index < count; index++) {
+                rates[epochDays[index] - minEpochDay] = values[index];
+            }
+            return new RateSeries(minEpochDay, rates);
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.challenge.forexrate.model;
+
+import java.util.Arrays;
+
+//constant time aggregates of any day range: prefix sums for the average, deviation, volatility and trend, sparse
+//tables for the minimum and maximum. Rates are summed relative to the first one, so close rates keep their variance
+public class RateSeriesIndex {
+
+    private final int startEpochDay;
+    //amount of quoted days before each day of the series, the last element is the total
+    private final int[] quotedBefore;
+    private final double shift;
+    private final double[] sums;
+    private final double[] squareSums;
+    private final double[] returnSums;
+    private final double[] squareReturnSums;
+    private final int[] ascendingPairs;
+    private final int[] descendingPairs;
+    private final double[][] minimums;
+    private final double[][] maximums;
+
+    private RateSeriesIndex(int startEpochDay, int[] quotedBefore, double[] rates) {
+        this.startEpochDay = startEpochDay;
+        this.quotedBefore = quotedBefore;
+        int count = rates.length;
+        this.shift = count == 0 ? 0 : rates[0];
+
+        //prefix arrays hold the aggregate of the first i rates at index i, pair i is made of rates i - 1 and i
+        sums = new double[count + 1];
+        squareSums = new double[count + 1];
+        returnSums = new double[count + 1];
+        squareReturnSums = new double[count + 1];
+        ascendingPairs = new int[count + 1];
+        descendingPairs = new int[count + 1];
+        for (int index = 0; index < count; index++) {
+            double shifted = rates[index] - shift;
+            sums[index + 1] = sums[index] + shifted;
+            squareSums[index + 1] = squareSums[index] + shifted * shifted;
+            double logReturn = index == 0 ? 0 : Math.log(rates[index] / rates[index - 1]);
+            returnSums[index + 1] = returnSums[index] + logReturn;
+            squareReturnSums[index + 1] = squareReturnSums[index] + logReturn * logReturn;
+            ascendingPairs[index + 1] = ascendingPairs[index] + (index > 0 && rates[index - 1] < rates[index] ? 1 : 0);
+            descendingPairs[index + 1] = descendingPairs[index] + (index > 0 && rates[index - 1] > rates[index] ? 1 : 0);
+        }
+
+        //level k holds the extremum of the 2^k rates starting at each index
+        int levels = count == 0 ? 0 : 32 - Integer.numberOfLeadingZeros(count);
+        minimums = new double[levels][];
+        maximums = new double[levels][];
+        if (levels > 0) {
+            minimums[0] = rates;
+            maximums[0] = rates;
+        }
+        for (int level = 1; level < levels; level++) {
+            int half = 1 << (level - 1);
+            int length = count - (1 << level) + 1;
+            minimums[level] = new double[length];
+            maximums[level] = new double[length];
+            for (int index = 0; index < length; index++) {
+                minimums[level][index] = Math.min(minimums[level - 1][index], minimums[level - 1][index + half]);
+                maximums[level][index] = Math.max(maximums[level - 1][index], maximums[level - 1][index + half]);
+            }
+        }
+    }
+
+    public static RateSeriesIndex of(RateSeries rates) {
+        int days = rates.size();
+        int[] quotedBefore = new int[days + 1];
+        double[] quotedRates = new double[days];
+        int count = 0;
+        for (int day = 0; day < days; day++) {
+            quotedBefore[day] = count;
+            double rate = rates.get(rates.getStartEpochDay() + day);
+            if (!Double.isNaN(rate)) {
+                quotedRates[count++] = rate;
+            }
+        }
+        quotedBefore[days] = count;
+        return new RateSeriesIndex(rates.getStartEpochDay(), quotedBefore, Arrays.copyOf(quotedRates, count));
+    }
+
+    //toEpochDay is exclusive, days out of the series count as not quoted
+    public RateWindowStatistics statistics(int fromEpochDay, int toEpochDay) {
+        int from = quotedIndex(fromEpochDay);
+        int to = Math.max(from, quotedIndex(toEpochDay));
+        int count = to - from;
+        if (count == 0) {
+            return RateWindowStatistics.builder().quotedDays(0).build();
+        }
+
+        double shiftedAverage = (sums[to] - sums[from]) / count;
+        //a single rate has no deviation, the sums would only give their rounding error
+        double variance = (squareSums[to] - squareSums[from]) / count - shiftedAverage * shiftedAverage;
+        int pairs = count - 1;
+        //pairs of the window are the ones ending at from + 1 to to - 1
+        Double volatility = null;
+        if (pairs > 0) {
+            double averageReturn = (returnSums[to] - returnSums[from + 1]) / pairs;
+            double returnVariance = (squareReturnSums[to] - squareReturnSums[from + 1]) / pairs - averageReturn * averageReturn;
+            volatility = pairs > 1 ? Math.sqrt(Math.max(0, returnVariance)) : 0;
+        }
+        int level = 31 - Integer.numberOfLeadingZeros(count);
+        int secondStart = to - (1 << level);
+
+        return RateWindowStatistics.builder()
+                .quotedDays(count)
+                .averageRate(shift + shiftedAverage)
+                .minimumRate(Math.min(minimums[level][from], minimums[level][secondStart]))
+                .maximumRate(Math.max(maximums[level][from], maximums[level][secondStart]))
+                .standardDeviation(count > 1 ? Math.sqrt(Math.max(0, variance)) : 0)
+                .volatility(volatility)
+                .trend(trend(pairs, ascendingPairs[to] - ascendingPairs[from + 1], descendingPairs[to] - descendingPairs[from + 1]))
+                .build();
+    }
+
+    public long sizeInBytes() {
+        long size = 4L * quotedBefore.length + 8L * (sums.length * 4) + 4L * (ascendingPairs.length * 2);
+        for (int level = 1; level < minimums.length; level++) {
+            size += 16L * minimums[level].length;
+        }
+        return size;
+    }
+
+    private int quotedIndex(int epochDay) {
+        return quotedBefore[Math.max(0, Math.min(quotedBefore.length - 1, epochDay - startEpochDay))];
+    }
+
+    private static String trend(int pairs, int ascending, int descending) {
+        if (pairs < 1) {
+            return null;
+        }
+        if (ascending == pairs) {
+            return Trend.ASCENDING.getTrendName();
+        }
+        if (descending == pairs) {
+            return Trend.DESCENDING.getTrendName();
+        }
+        if (ascending == 0 && descending == 0) {
+            return Trend.CONSTANT.getTrendName();
+        }
+        return Trend.UNDEFINED.getTrendName();
+    }
+}
@@ -0,0 +1,18 @@
+package com.challenge.forexrate.model;
+
+import lombok.Builder;
+import lombok.Data;
+
+//volatility is the standard deviation of the daily log returns between quoted days, not annualized
+@Data
+@Builder
+public class RateWindowStatistics {
+
+    private final int quotedDays;
+    private final Double averageRate;
+    private final Double minimumRate;
+    private final Double maximumRate;
+    private final Double standardDeviation;
+    private final Double volatility;
+    private final String trend;
+}
@@ -0,0 +1,18 @@
+package com.challenge.forexrate.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+//the date is parsed like the one of a report path, so an invalid date only fails its own report
+@NoArgsConstructor
+@AllArgsConstructor
+@Data
+@Builder
+public class ReportQuery {
+
+    private String date;
+    private String baseCurrency;
+    private String targetCurrency;
+}
@@ -0,0 +1,20 @@
+package com.challenge.forexrate.model;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+public enum UsageGranularity {
+
+    HOURLY(ChronoUnit.HOURS),
+    DAILY(ChronoUnit.DAYS);
+
+    private final ChronoUnit bucketUnit;
+
+    UsageGranularity(ChronoUnit bucketUnit) {
+        this.bucketUnit = bucketUnit;
+    }
+
+    public LocalDateTime getBucketStart(LocalDateTime dateTime) {
+        return dateTime.truncatedTo(bucketUnit);
+    }
+}
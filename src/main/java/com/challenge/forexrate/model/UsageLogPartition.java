@@ -0,0 +1,60 @@
+package com.challenge.forexrate.model;
+
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+//logs requested from startDate included to endDate excluded
+@Data
+public class UsageLogPartition {
+
+    public static final String TABLE_NAME_PREFIX = "api_usage_log_";
+    private static final Pattern TABLE_NAME_PATTERN = Pattern.compile(TABLE_NAME_PREFIX + "(\\d{6}|\\d{8})", Pattern.CASE_INSENSITIVE);
+
+    private final UsageLogPeriod period;
+    private final LocalDate startDate;
+    private final LocalDate endDate;
+
+    public static UsageLogPartition of(UsageLogPeriod period, LocalDate date) {
+        LocalDate startDate = period.getStart(date);
+        return new UsageLogPartition(period, startDate, period.getEnd(startDate));
+    }
+
+    //empty if the table is not a partition table
+    public static Optional<UsageLogPartition> ofTableName(String tableName) {
+        Matcher matcher = TABLE_NAME_PATTERN.matcher(tableName);
+        if (!matcher.matches()) {
+            return Optional.empty();
+        }
+        String suffix = matcher.group(1);
+        UsageLogPeriod period = suffix.length() == 6 ? UsageLogPeriod.MONTHLY : UsageLogPeriod.DAILY;
+        try {
+            return Optional.of(of(period, period.parseSuffix(suffix)));
+        } catch (DateTimeParseException e) {
+            return Optional.empty();
+        }
+    }
+
+    public String getTableName() {
+        return TABLE_NAME_PREFIX + period.getSuffix(startDate);
+    }
+
+    public boolean contains(LocalDateTime dateTime) {
+        LocalDate date = dateTime.toLocalDate();
+        return !date.isBefore(startDate) && date.isBefore(endDate);
+    }
+
+    //both ends of the range included
+    public boolean overlaps(LocalDateTime startDateTime, LocalDateTime endDateTime) {
+        return startDateTime.toLocalDate().isBefore(endDate) && !endDateTime.toLocalDate().isBefore(startDate);
+    }
+
+    public boolean overlaps(UsageLogPartition partition) {
+        return partition.startDate.isBefore(endDate) && startDate.isBefore(partition.endDate);
+    }
+}
@@ -0,0 +1,39 @@
+package com.challenge.forexrate.model;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+
+//period of one partition table, identified by the start of the period in the table name suffix
+public enum UsageLogPeriod {
+
+    DAILY(ChronoUnit.DAYS, DateTimeFormatter.BASIC_ISO_DATE),
+    MONTHLY(ChronoUnit.MONTHS, DateTimeFormatter.ofPattern("yyyyMM"));
+
+    private final ChronoUnit unit;
+    private final DateTimeFormatter suffixFormatter;
+
+    UsageLogPeriod(ChronoUnit unit, DateTimeFormatter suffixFormatter) {
+        this.unit = unit;
+        this.suffixFormatter = suffixFormatter;
+    }
+
+    public LocalDate getStart(LocalDate date) {
+        return this == MONTHLY ? date.with(TemporalAdjusters.firstDayOfMonth()) : date;
+    }
+
+    //first day after the period
+    public LocalDate getEnd(LocalDate start) {
+        return start.plus(1, unit);
+    }
+
+    public String getSuffix(LocalDate start) {
+        return start.format(suffixFormatter);
+    }
+
+    public LocalDate parseSuffix(String suffix) {
+        return this == MONTHLY ? YearMonth.parse(suffix, suffixFormatter).atDay(1) : LocalDate.parse(suffix, suffixFormatter);
+    }
+}
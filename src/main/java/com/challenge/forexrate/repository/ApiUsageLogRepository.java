@@ -1,12 +1,286 @@
 package com.challenge.forexrate.repository;
 
 import com.challenge.forexrate.entity.ApiUsageLog;
-import org.springframework.data.repository.CrudRepository;
+import com.challenge.forexrate.model.UsageLogPartition;
+import com.challenge.forexrate.model.UsageLogPeriod;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
 
+import javax.annotation.PostConstruct;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
-public interface ApiUsageLogRepository extends CrudRepository<ApiUsageLog, Integer> {
+//one table per period, old logs are removed by dropping whole partitions, which neither scans nor locks the others
+@Repository
+public class ApiUsageLogRepository {
 
-    List<ApiUsageLog> findByRequestDateTimeBetween(LocalDateTime startDate, LocalDateTime endDate);
+    static final String CREATE_SEQUENCE_SQL = "create sequence if not exists " + ApiUsageLog.ID_SEQUENCE_NAME + " start with 1 increment by " + ApiUsageLog.ID_ALLOCATION_SIZE;
+    static final String CREATE_TABLE_SQL = "create table if not exists %s (id bigint not null primary key, request_date_time timestamp not null," +
+            " requested_date date not null, base_currency varchar(255) not null, target_currency varchar(255) not null)";
+    static final String CREATE_INDEX_SQL = "create index if not exists %1$s_request_date_time_id on %1$s (request_date_time, id)";
+    static final String DROP_TABLE_SQL = "drop table if exists %s";
+    static final String INSERT_SQL = "insert into %s (id, request_date_time, requested_date, base_currency, target_currency) values (?, ?, ?, ?, ?)";
+    static final String SELECT_SQL = "select id, request_date_time, requested_date, base_currency, target_currency from %s";
+    static final String RANGE_SQL = SELECT_SQL + " where request_date_time between ? and ? order by request_date_time, id";
+    static final String PAGE_SQL = SELECT_SQL + " where request_date_time between ? and ? order by request_date_time, id limit ?";
+    static final String PAGE_AFTER_SQL = SELECT_SQL + " where request_date_time between ? and ?" +
+            " and (request_date_time > ? or (request_date_time = ? and id > ?)) order by request_date_time, id limit ?";
+    private static final int STREAM_FETCH_SIZE = 500;
+    private static final RowMapper<ApiUsageLog> ROW_MAPPER = (resultSet, rowNum) -> mapRow(resultSet);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NavigableMap<LocalDate, UsageLogPartition> partitionsByStartDate = new ConcurrentSkipListMap<>();
+    private final AtomicLong lastRefreshNanos = new AtomicLong();
+    private volatile long partitionGeneration;
+    private UsageLogPeriod period;
+    private Duration refreshInterval;
+
+    public ApiUsageLogRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    void loadPartitions() {
+        jdbcTemplate.execute(CREATE_SEQUENCE_SQL);
+        refreshPartitions();
+    }
+
+    //other instances sharing the database create and drop partitions too, so the cached ones are only a hint.
+    //the catalog is scanned without blocking the writers, and scanned again if one of them ran meanwhile
+    void refreshPartitions() {
+        lastRefreshNanos.set(System.nanoTime());
+        long generation = partitionGeneration;
+        Map<LocalDate, UsageLogPartition> partitions = findPartitionTables();
+        synchronized (this) {
+            if (generation != partitionGeneration) {
+                partitions = findPartitionTables();
+            }
+            Map<LocalDate, UsageLogPartition> foundPartitions = partitions;
+            partitionsByStartDate.entrySet().removeIf(entry -> !entry.getValue().equals(foundPartitions.get(entry.getKey())));
+            partitionsByStartDate.putAll(partitions);
+        }
+    }
+
+    private Map<LocalDate, UsageLogPartition> findPartitionTables() {
+        List<String> tableNames = jdbcTemplate.execute((ConnectionCallback<List<String>>) connection -> {
+            List<String> names = new ArrayList<>();
+            try (ResultSet tables = connection.getMetaData().getTables(connection.getCatalog(), connection.getSchema(), null, null)) {
+                while (tables.next()) {
+                    names.add(tables.getString("TABLE_NAME"));
+                }
+            }
+            return names;
+        });
+        Map<LocalDate, UsageLogPartition> partitions = new HashMap<>();
+        for (String tableName : tableNames) {
+            UsageLogPartition.ofTableName(tableName).ifPresent(partition -> partitions.put(partition.getStartDate(), partition));
+        }
+        return partitions;
+    }
+
+    //ranges without logs on some days are the usual case, so reads rescan the catalog at most once per interval
+    private boolean refreshIfStale() {
+        long lastRefresh = lastRefreshNanos.get();
+        if (System.nanoTime() - lastRefresh < refreshInterval.toNanos() || !lastRefreshNanos.compareAndSet(lastRefresh, System.nanoTime())) {
+            return false;
+        }
+        refreshPartitions();
+        return true;
+    }
+
+    //partitions are created by DDL, call createPartitions before starting the transaction
+    public void insertAll(List<ApiUsageLog> apiUsageLogs) {
+        Map<UsageLogPartition, List<ApiUsageLog>> logsByPartition = new LinkedHashMap<>();
+        for (ApiUsageLog apiUsageLog : apiUsageLogs) {
+            logsByPartition.computeIfAbsent(getOrCreatePartition(apiUsageLog.getRequestDateTime()), partition -> new ArrayList<>()).add(apiUsageLog);
+        }
+        logsByPartition.forEach((partition, logs) ->
+                jdbcTemplate.batchUpdate(String.format(INSERT_SQL, partition.getTableName()), logs, logs.size(), (preparedStatement, apiUsageLog) -> {
+                    preparedStatement.setLong(1, apiUsageLog.getId());
+                    preparedStatement.setTimestamp(2, Timestamp.valueOf(apiUsageLog.getRequestDateTime()));
+                    preparedStatement.setDate(3, Date.valueOf(apiUsageLog.getRequestedDate()));
+                    preparedStatement.setString(4, apiUsageLog.getBaseCurrency());
+                    preparedStatement.setString(5, apiUsageLog.getTargetCurrency());
+                }));
+    }
+
+    public void createPartitions(List<ApiUsageLog> apiUsageLogs) {
+        for (ApiUsageLog apiUsageLog : apiUsageLogs) {
+            getOrCreatePartition(apiUsageLog.getRequestDateTime());
+        }
+    }
+
+    public List<ApiUsageLog> findByRequestDateTimeBetween(LocalDateTime startDate, LocalDateTime endDate) {
+        List<ApiUsageLog> apiUsageLogs = new ArrayList<>();
+        forEachByRequestDateTimeBetween(startDate, endDate, apiUsageLogs::add);
+        return apiUsageLogs;
+    }
+
+    public List<ApiUsageLog> findByRequestDateTimeBetween(LocalDateTime startDate, LocalDateTime endDate, int limit) {
+        List<ApiUsageLog> apiUsageLogs = new ArrayList<>(limit);
+        for (UsageLogPartition partition : findPartitions(startDate, endDate)) {
+            if (apiUsageLogs.size() == limit) {
+                break;
+            }
+            apiUsageLogs.addAll(jdbcTemplate.query(String.format(PAGE_SQL, partition.getTableName()), ROW_MAPPER,
+                    Timestamp.valueOf(startDate), Timestamp.valueOf(endDate), limit - apiUsageLogs.size()));
+        }
+        return apiUsageLogs;
+    }
+
+    public List<ApiUsageLog> findByRequestDateTimeBetweenAfter(LocalDateTime startDate, LocalDateTime endDate, LocalDateTime afterRequestDateTime, Long afterId, int limit) {
+        List<ApiUsageLog> apiUsageLogs = new ArrayList<>(limit);
+        LocalDateTime firstDateTime = afterRequestDateTime.isAfter(startDate) ? afterRequestDateTime : startDate;
+        for (UsageLogPartition partition : findPartitions(firstDateTime, endDate)) {
+            if (apiUsageLogs.size() == limit) {
+                break;
+            }
+            Timestamp afterTimestamp = Timestamp.valueOf(afterRequestDateTime);
+            apiUsageLogs.addAll(jdbcTemplate.query(String.format(PAGE_AFTER_SQL, partition.getTableName()), ROW_MAPPER,
+                    Timestamp.valueOf(startDate), Timestamp.valueOf(endDate), afterTimestamp, afterTimestamp, afterId, limit - apiUsageLogs.size()));
+        }
+        return apiUsageLogs;
+    }
+
+    public void forEachByRequestDateTimeBetween(LocalDateTime startDate, LocalDateTime endDate, Consumer<ApiUsageLog> action) {
+        for (UsageLogPartition partition : findPartitions(startDate, endDate)) {
+            jdbcTemplate.query(connection -> {
+                PreparedStatement preparedStatement = connection.prepareStatement(String.format(RANGE_SQL, partition.getTableName()));
+                preparedStatement.setFetchSize(STREAM_FETCH_SIZE);
+                preparedStatement.setTimestamp(1, Timestamp.valueOf(startDate));
+                preparedStatement.setTimestamp(2, Timestamp.valueOf(endDate));
+                return preparedStatement;
+            }, (RowCallbackHandler) resultSet -> action.accept(mapRow(resultSet)));
+        }
+    }
+
+    public void forEachInPartition(UsageLogPartition partition, Consumer<ApiUsageLog> action) {
+        forEachByRequestDateTimeBetween(partition.getStartDate().atStartOfDay(), partition.getEndDate().atStartOfDay().minusNanos(1), action);
+    }
+
+    public List<UsageLogPartition> findPartitions(LocalDateTime startDate, LocalDateTime endDate) {
+        if (endDate.isBefore(startDate)) {
+            return new ArrayList<>();
+        }
+        List<UsageLogPartition> partitions = findKnownPartitions(startDate, endDate);
+        //a day of the range without partition may have been logged by another instance
+        if (!covers(partitions, startDate.toLocalDate(), endDate.toLocalDate()) && refreshIfStale()) {
+            partitions = findKnownPartitions(startDate, endDate);
+        }
+        return partitions;
+    }
+
+    private List<UsageLogPartition> findKnownPartitions(LocalDateTime startDate, LocalDateTime endDate) {
+        List<UsageLogPartition> partitions = new ArrayList<>();
+        LocalDate firstStartDate = partitionsByStartDate.floorKey(startDate.toLocalDate());
+        for (UsageLogPartition partition : partitionsByStartDate.subMap(firstStartDate == null ? startDate.toLocalDate() : firstStartDate, true, endDate.toLocalDate(), true).values()) {
+            if (partition.overlaps(startDate, endDate)) {
+                partitions.add(partition);
+            }
+        }
+        return partitions;
+    }
+
+    private static boolean covers(List<UsageLogPartition> partitions, LocalDate startDate, LocalDate endDate) {
+        LocalDate nextDate = startDate;
+        for (UsageLogPartition partition : partitions) {
+            if (partition.getStartDate().isAfter(nextDate)) {
+                return false;
+            }
+            nextDate = partition.getEndDate();
+        }
+        return nextDate.isAfter(endDate);
+    }
+
+    //partitions holding logs requested before the given date only
+    public List<UsageLogPartition> findPartitionsEndingBy(LocalDate date) {
+        refreshPartitions();
+        List<UsageLogPartition> partitions = new ArrayList<>();
+        for (UsageLogPartition partition : partitionsByStartDate.headMap(date, false).values()) {
+            if (!partition.getEndDate().isAfter(date)) {
+                partitions.add(partition);
+            }
+        }
+        return partitions;
+    }
+
+    public synchronized void dropPartition(UsageLogPartition partition) {
+        jdbcTemplate.execute(String.format(DROP_TABLE_SQL, partition.getTableName()));
+        partitionsByStartDate.remove(partition.getStartDate(), partition);
+        partitionGeneration++;
+    }
+
+    private UsageLogPartition getOrCreatePartition(LocalDateTime requestDateTime) {
+        UsageLogPartition partition = findPartition(requestDateTime);
+        return partition != null ? partition : createPartition(requestDateTime);
+    }
+
+    private UsageLogPartition findPartition(LocalDateTime requestDateTime) {
+        Map.Entry<LocalDate, UsageLogPartition> floorEntry = partitionsByStartDate.floorEntry(requestDateTime.toLocalDate());
+        return floorEntry != null && floorEntry.getValue().contains(requestDateTime) ? floorEntry.getValue() : null;
+    }
+
+    private synchronized UsageLogPartition createPartition(LocalDateTime requestDateTime) {
+        UsageLogPartition existingPartition = findPartition(requestDateTime);
+        if (existingPartition != null) {
+            return existingPartition;
+        }
+        refreshPartitions();
+        existingPartition = findPartition(requestDateTime);
+        if (existingPartition != null) {
+            return existingPartition;
+        }
+
+        UsageLogPartition partition = UsageLogPartition.of(period, requestDateTime.toLocalDate());
+        boolean overlapping = partitionsByStartDate.subMap(partition.getStartDate(), true, partition.getEndDate(), false).values().stream()
+                .anyMatch(partition::overlaps);
+        if (overlapping) {
+            partition = UsageLogPartition.of(UsageLogPeriod.DAILY, requestDateTime.toLocalDate());
+        }
+        jdbcTemplate.execute(String.format(CREATE_TABLE_SQL, partition.getTableName()));
+        jdbcTemplate.execute(String.format(CREATE_INDEX_SQL, partition.getTableName()));
+        partitionsByStartDate.put(partition.getStartDate(), partition);
+        partitionGeneration++;
+        return partition;
+    }
+
+    private static ApiUsageLog mapRow(ResultSet resultSet) throws SQLException {
+        return ApiUsageLog.builder()
+                .id(resultSet.getLong(1))
+                .requestDateTime(resultSet.getTimestamp(2).toLocalDateTime())
+                .requestedDate(resultSet.getDate(3).toLocalDate())
+                .baseCurrency(resultSet.getString(4))
+                .targetCurrency(resultSet.getString(5))
+                .build();
+    }
+
+    @Autowired
+    void setPeriod(@Value("${usage-log.partitions.period:MONTHLY}") UsageLogPeriod period) {
+        this.period = period;
+    }
+
+    @Autowired
+    void setRefreshInterval(@Value("${usage-log.partitions.refresh-interval:10s}") Duration refreshInterval) {
+        this.refreshInterval = refreshInterval;
+    }
 }
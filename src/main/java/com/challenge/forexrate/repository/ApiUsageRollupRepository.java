@@ -0,0 +1,26 @@
+package com.challenge.forexrate.repository;
+
+import com.challenge.forexrate.entity.ApiUsageRollup;
+import com.challenge.forexrate.entity.ApiUsageRollupId;
+import com.challenge.forexrate.model.ApiUsageBucketCount;
+import com.challenge.forexrate.model.ApiUsagePairCount;
+import com.challenge.forexrate.model.UsageGranularity;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface ApiUsageRollupRepository extends CrudRepository<ApiUsageRollup, ApiUsageRollupId> {
+
+    @Query("select new com.challenge.forexrate.model.ApiUsageBucketCount(r.bucketStart, sum(r.requestCount)) from ApiUsageRollup r" +
+            " where r.granularity = :granularity and r.bucketStart between :startDateTime and :endDateTime" +
+            " group by r.bucketStart order by r.bucketStart")
+    List<ApiUsageBucketCount> countByBucket(UsageGranularity granularity, LocalDateTime startDateTime, LocalDateTime endDateTime);
+
+    @Query("select new com.challenge.forexrate.model.ApiUsagePairCount(r.baseCurrency, r.targetCurrency, sum(r.requestCount)) from ApiUsageRollup r" +
+            " where r.granularity = :granularity and r.bucketStart between :startDateTime and :endDateTime" +
+            " group by r.baseCurrency, r.targetCurrency order by sum(r.requestCount) desc, r.baseCurrency, r.targetCurrency")
+    List<ApiUsagePairCount> findTopPairs(UsageGranularity granularity, LocalDateTime startDateTime, LocalDateTime endDateTime, Pageable pageable);
+}
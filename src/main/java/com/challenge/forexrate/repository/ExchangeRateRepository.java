@@ -0,0 +1,14 @@
+package com.challenge.forexrate.repository;
+
+import com.challenge.forexrate.entity.ExchangeRate;
+import com.challenge.forexrate.entity.ExchangeRateId;
+import org.springframework.data.repository.CrudRepository;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+public interface ExchangeRateRepository extends CrudRepository<ExchangeRate, ExchangeRateId>, ExchangeRateRepositoryCustom {
+
+    List<ExchangeRate> findByBaseCurrencyAndTargetCurrencyInAndRateDateBetween(String baseCurrency, Collection<String> targetCurrencies, LocalDate startDate, LocalDate endDate);
+}
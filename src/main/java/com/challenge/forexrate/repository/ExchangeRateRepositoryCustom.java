@@ -0,0 +1,10 @@
+package com.challenge.forexrate.repository;
+
+import com.challenge.forexrate.entity.ExchangeRate;
+
+import java.util.List;
+
+public interface ExchangeRateRepositoryCustom {
+
+    void insertAllIfAbsent(List<ExchangeRate> exchangeRates);
+}
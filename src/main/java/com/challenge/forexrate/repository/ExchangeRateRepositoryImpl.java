@@ -0,0 +1,48 @@
+package com.challenge.forexrate.repository;
+
+import com.challenge.forexrate.entity.ExchangeRate;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Date;
+import java.sql.Types;
+import java.util.List;
+
+public class ExchangeRateRepositoryImpl implements ExchangeRateRepositoryCustom {
+
+    static final String INSERT_IF_ABSENT_SQL = "merge into exchange_rate t using (select cast(? as date) rate_date, cast(? as varchar(255)) base_currency," +
+            " cast(? as varchar(255)) target_currency, cast(? as double) rate) s" +
+            " on t.rate_date = s.rate_date and t.base_currency = s.base_currency and t.target_currency = s.target_currency" +
+            " when not matched then insert (rate_date, base_currency, target_currency, rate) values (s.rate_date, s.base_currency, s.target_currency, s.rate)";
+    private static final int BATCH_SIZE = 500;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public ExchangeRateRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void insertAllIfAbsent(List<ExchangeRate> exchangeRates) {
+        try {
+            batchInsertIfAbsent(exchangeRates);
+        } catch (DuplicateKeyException e) {
+            //a concurrent writer inserted some of the rates between the check and the insert of the merge,
+            //historical rates are immutable so they are skipped on retry
+            batchInsertIfAbsent(exchangeRates);
+        }
+    }
+
+    private void batchInsertIfAbsent(List<ExchangeRate> exchangeRates) {
+        jdbcTemplate.batchUpdate(INSERT_IF_ABSENT_SQL, exchangeRates, BATCH_SIZE, (preparedStatement, exchangeRate) -> {
+            preparedStatement.setDate(1, Date.valueOf(exchangeRate.getRateDate()));
+            preparedStatement.setString(2, exchangeRate.getBaseCurrency());
+            preparedStatement.setString(3, exchangeRate.getTargetCurrency());
+            if (exchangeRate.getRate() == null) {
+                preparedStatement.setNull(4, Types.DOUBLE);
+            } else {
+                preparedStatement.setDouble(4, exchangeRate.getRate());
+            }
+        });
+    }
+}
@@ -0,0 +1,88 @@
+package com.challenge.forexrate.service;
+
+import com.challenge.forexrate.entity.ApiUsageLog;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+
+public final class ApiUsageLogArchiveReader {
+
+    private ApiUsageLogArchiveReader() {
+    }
+
+    public static void read(Path path, Consumer<ApiUsageLog> action) throws IOException {
+        try (InputStream inputStream = Files.newInputStream(path)) {
+            read(inputStream, action);
+        }
+    }
+
+    //throws IOException if the stream is not an archive or is truncated
+    public static void read(InputStream inputStream, Consumer<ApiUsageLog> action) throws IOException {
+        DataInputStream input = new DataInputStream(new BufferedInputStream(new GZIPInputStream(inputStream)));
+        if (input.readInt() != ApiUsageLogArchiveWriter.MAGIC) {
+            throw new IOException("Not an api usage log archive");
+        }
+
+        int rows;
+        while ((rows = input.readInt()) > 0) {
+            long[] ids = readDeltas(input, rows);
+            long[] requestEpochSeconds = readDeltas(input, rows);
+            int[] requestNanos = readInts(input, rows);
+            int[] requestedEpochDays = readInts(input, rows);
+            String[] baseCurrencies = readDictionaryEncoded(input, rows);
+            String[] targetCurrencies = readDictionaryEncoded(input, rows);
+            for (int row = 0; row < rows; row++) {
+                action.accept(ApiUsageLog.builder()
+                        .id(ids[row])
+                        .requestDateTime(LocalDateTime.ofEpochSecond(requestEpochSeconds[row], requestNanos[row], ZoneOffset.UTC))
+                        .requestedDate(LocalDate.ofEpochDay(requestedEpochDays[row]))
+                        .baseCurrency(baseCurrencies[row])
+                        .targetCurrency(targetCurrencies[row])
+                        .build());
+            }
+        }
+    }
+
+    private static long[] readDeltas(DataInputStream input, int rows) throws IOException {
+        long[] column = new long[rows];
+        long previous = 0;
+        for (int row = 0; row < rows; row++) {
+            previous += input.readLong();
+            column[row] = previous;
+        }
+        return column;
+    }
+
+    private static int[] readInts(DataInputStream input, int rows) throws IOException {
+        int[] column = new int[rows];
+        for (int row = 0; row < rows; row++) {
+            column[row] = input.readInt();
+        }
+        return column;
+    }
+
+    private static String[] readDictionaryEncoded(DataInputStream input, int rows) throws IOException {
+        String[] dictionary = new String[input.readInt()];
+        for (int index = 0; index < dictionary.length; index++) {
+            dictionary[index] = input.readUTF();
+        }
+        String[] column = new String[rows];
+        for (int row = 0; row < rows; row++) {
+            int index = input.readInt();
+            if (index < 0 || index >= dictionary.length) {
+                throw new IOException(String.format("Invalid dictionary index %d", index));
+            }
+            column[row] = dictionary[index];
+        }
+        return column;
+    }
+}
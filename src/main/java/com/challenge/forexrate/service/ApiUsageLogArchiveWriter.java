@@ -0,0 +1,104 @@
+package com.challenge.forexrate.service;
+
+import com.challenge.forexrate.entity.ApiUsageLog;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+//gzip compressed columnar archive, buffered in row groups so memory stays flat, a group of zero rows ends it
+public class ApiUsageLogArchiveWriter implements Closeable {
+
+    static final int MAGIC = 0x41554c31;
+    static final int ROW_GROUP_SIZE = 65536;
+
+    private final DataOutputStream output;
+    private final long[] ids = new long[ROW_GROUP_SIZE];
+    private final long[] requestEpochSeconds = new long[ROW_GROUP_SIZE];
+    private final int[] requestNanos = new int[ROW_GROUP_SIZE];
+    private final int[] requestedEpochDays = new int[ROW_GROUP_SIZE];
+    private final String[] baseCurrencies = new String[ROW_GROUP_SIZE];
+    private final String[] targetCurrencies = new String[ROW_GROUP_SIZE];
+    private int rows;
+
+    public ApiUsageLogArchiveWriter(OutputStream outputStream) throws IOException {
+        this.output = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(outputStream)));
+        output.writeInt(MAGIC);
+    }
+
+    public void write(ApiUsageLog apiUsageLog) throws IOException {
+        LocalDateTime requestDateTime = apiUsageLog.getRequestDateTime();
+        ids[rows] = apiUsageLog.getId();
+        requestEpochSeconds[rows] = requestDateTime.toEpochSecond(ZoneOffset.UTC);
+        requestNanos[rows] = requestDateTime.getNano();
+        requestedEpochDays[rows] = Math.toIntExact(apiUsageLog.getRequestedDate().toEpochDay());
+        baseCurrencies[rows] = apiUsageLog.getBaseCurrency();
+        targetCurrencies[rows] = apiUsageLog.getTargetCurrency();
+        if (++rows == ROW_GROUP_SIZE) {
+            writeRowGroup();
+        }
+    }
+
+    private void writeRowGroup() throws IOException {
+        output.writeInt(rows);
+        writeDeltas(ids);
+        writeDeltas(requestEpochSeconds);
+        for (int row = 0; row < rows; row++) {
+            output.writeInt(requestNanos[row]);
+        }
+        for (int row = 0; row < rows; row++) {
+            output.writeInt(requestedEpochDays[row]);
+        }
+        writeDictionaryEncoded(baseCurrencies);
+        writeDictionaryEncoded(targetCurrencies);
+        rows = 0;
+    }
+
+    private void writeDeltas(long[] column) throws IOException {
+        long previous = 0;
+        for (int row = 0; row < rows; row++) {
+            output.writeLong(column[row] - previous);
+            previous = column[row];
+        }
+    }
+
+    private void writeDictionaryEncoded(String[] column) throws IOException {
+        Map<String, Integer> indexes = new HashMap<>();
+        List<String> dictionary = new ArrayList<>();
+        int[] encoded = new int[rows];
+        for (int row = 0; row < rows; row++) {
+            encoded[row] = indexes.computeIfAbsent(column[row], value -> {
+                dictionary.add(value);
+                return dictionary.size() - 1;
+            });
+        }
+        output.writeInt(dictionary.size());
+        for (String value : dictionary) {
+            output.writeUTF(value);
+        }
+        for (int row = 0; row < rows; row++) {
+            output.writeInt(encoded[row]);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (rows > 0) {
+                writeRowGroup();
+            }
+            output.writeInt(0);
+        } finally {
+            output.close();
+        }
+    }
+}
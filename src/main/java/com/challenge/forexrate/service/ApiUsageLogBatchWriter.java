@@ -0,0 +1,252 @@
+package com.challenge.forexrate.service;
+
+import com.challenge.forexrate.entity.ApiUsageLog;
+import com.challenge.forexrate.entity.ApiUsageRollupId;
+import com.challenge.forexrate.model.UsageGranularity;
+import com.challenge.forexrate.repository.ApiUsageLogRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+//usage logs are written in JDBC batches by a single drainer thread, with the rollups of each batch in its transaction
+//when the queue is full or the writer is stopped new logs are dropped and counted, request threads never wait for the database
+@Slf4j
+@Component
+public class ApiUsageLogBatchWriter implements SmartLifecycle {
+
+    static final String NEXT_ID_BLOCK_SQL = "select next value for " + ApiUsageLog.ID_SEQUENCE_NAME;
+    static final String MERGE_ROLLUP_SQL = "merge into api_usage_rollup r" +
+            " using (select cast(? as varchar) granularity, cast(? as timestamp) bucket_start, cast(? as varchar) base_currency," +
+            " cast(? as varchar) target_currency, cast(? as date) requested_date, cast(? as bigint) request_count) v" +
+            " on r.granularity = v.granularity and r.bucket_start = v.bucket_start and r.base_currency = v.base_currency" +
+            " and r.target_currency = v.target_currency and r.requested_date = v.requested_date" +
+            " when matched then update set r.request_count = r.request_count + v.request_count" +
+            " when not matched then insert (granularity, bucket_start, base_currency, target_currency, requested_date, request_count)" +
+            " values (v.granularity, v.bucket_start, v.base_currency, v.target_currency, v.requested_date, v.request_count)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ApiUsageLogRepository apiUsageLogRepository;
+    private final TransactionOperations transactionOperations;
+    private final Queue<ApiUsageLog> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queueSize = new AtomicInteger();
+    private final Counter writtenCounter;
+    private final Counter droppedCounter;
+    private final Counter failedCounter;
+    private int capacity;
+    private int batchSize;
+    private Duration linger;
+
+    //guarded by flush()
+    private long nextId;
+    private long lastIdOfBlock = -1;
+
+    private volatile Thread drainer;
+    private volatile boolean running;
+    private volatile boolean stopped;
+
+    public ApiUsageLogBatchWriter(JdbcTemplate jdbcTemplate, ApiUsageLogRepository apiUsageLogRepository, TransactionOperations transactionOperations,
+                                  MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.apiUsageLogRepository = apiUsageLogRepository;
+        this.transactionOperations = transactionOperations;
+        this.writtenCounter = meterRegistry.counter("usage.log.writer.written");
+        this.droppedCounter = meterRegistry.counter("usage.log.writer.dropped");
+        this.failedCounter = meterRegistry.counter("usage.log.writer.failed");
+        meterRegistry.gauge("usage.log.writer.queue.size", queueSize);
+    }
+
+    //returns false if the log was dropped
+    public boolean write(ApiUsageLog apiUsageLog) {
+        if (stopped) {
+            droppedCounter.increment();
+            return false;
+        }
+        if (queueSize.incrementAndGet() > capacity) {
+            queueSize.decrementAndGet();
+            droppedCounter.increment();
+            return false;
+        }
+        queue.offer(apiUsageLog);
+        flushIfStopped();
+
+        Thread currentDrainer = drainer;
+        if (currentDrainer != null && queueSize.get() >= batchSize) {
+            LockSupport.unpark(currentDrainer);
+        }
+        return true;
+    }
+
+    //returns the amount of logs queued, wakes the drainer once at most
+    public int writeAll(List<ApiUsageLog> apiUsageLogs) {
+        if (stopped) {
+            droppedCounter.increment(apiUsageLogs.size());
+            return 0;
+        }
+        int size = queueSize.addAndGet(apiUsageLogs.size());
+        int dropped = Math.min(apiUsageLogs.size(), Math.max(0, size - capacity));
+        if (dropped > 0) {
+            queueSize.addAndGet(-dropped);
+            droppedCounter.increment(dropped);
+        }
+        int queued = apiUsageLogs.size() - dropped;
+        for (int index = 0; index < queued; index++) {
+            queue.offer(apiUsageLogs.get(index));
+        }
+        flushIfStopped();
+
+        Thread currentDrainer = drainer;
+        if (currentDrainer != null && queued > 0 && queueSize.get() >= batchSize) {
+            LockSupport.unpark(currentDrainer);
+        }
+        return queued;
+    }
+
+    public synchronized void flush() {
+        List<ApiUsageLog> batch = new ArrayList<>(batchSize);
+        ApiUsageLog apiUsageLog;
+        while ((apiUsageLog = queue.poll()) != null) {
+            queueSize.decrementAndGet();
+            batch.add(apiUsageLog);
+            if (batch.size() == batchSize) {
+                insert(batch);
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+        if (!batch.isEmpty()) {
+            insert(batch);
+        }
+    }
+
+    private void flushIfStopped() {
+        //raced with stop(), its last flush may have missed the logs just queued
+        if (stopped) {
+            flush();
+        }
+    }
+
+    private void insert(List<ApiUsageLog> batch) {
+        try {
+            for (ApiUsageLog apiUsageLog : batch) {
+                apiUsageLog.setId(nextId());
+            }
+            apiUsageLogRepository.createPartitions(batch);
+            transactionOperations.executeWithoutResult(status -> {
+                apiUsageLogRepository.insertAll(batch);
+                mergeRollups(batch);
+            });
+            writtenCounter.increment(batch.size());
+        } catch (RuntimeException e) {
+            //whatever the failure, only this batch is lost, the single drainer thread must keep draining the queue
+            failedCounter.increment(batch.size());
+            log.error("Could not write {} api usage logs", batch.size(), e);
+        }
+    }
+
+    private void mergeRollups(List<ApiUsageLog> batch) {
+        Map<ApiUsageRollupId, Long> requestCounts = new HashMap<>();
+        for (ApiUsageLog apiUsageLog : batch) {
+            for (UsageGranularity granularity : UsageGranularity.values()) {
+                ApiUsageRollupId rollupId = new ApiUsageRollupId(granularity, granularity.getBucketStart(apiUsageLog.getRequestDateTime()),
+                        apiUsageLog.getBaseCurrency(), apiUsageLog.getTargetCurrency(), apiUsageLog.getRequestedDate());
+                requestCounts.merge(rollupId, 1L, Long::sum);
+            }
+        }
+        jdbcTemplate.batchUpdate(MERGE_ROLLUP_SQL, requestCounts.entrySet(), requestCounts.size(), (preparedStatement, requestCount) -> {
+            ApiUsageRollupId rollupId = requestCount.getKey();
+            preparedStatement.setString(1, rollupId.getGranularity().name());
+            preparedStatement.setTimestamp(2, Timestamp.valueOf(rollupId.getBucketStart()));
+            preparedStatement.setString(3, rollupId.getBaseCurrency());
+            preparedStatement.setString(4, rollupId.getTargetCurrency());
+            preparedStatement.setDate(5, Date.valueOf(rollupId.getRequestedDate()));
+            preparedStatement.setLong(6, requestCount.getValue());
+        });
+    }
+
+    private long nextId() {
+        if (nextId > lastIdOfBlock) {
+            nextId = jdbcTemplate.queryForObject(NEXT_ID_BLOCK_SQL, Long.class);
+            lastIdOfBlock = nextId + ApiUsageLog.ID_ALLOCATION_SIZE - 1;
+        }
+        return nextId++;
+    }
+
+    private void drain() {
+        while (running) {
+            if (queueSize.get() < batchSize) {
+                LockSupport.parkNanos(linger.toNanos());
+            }
+            flush();
+        }
+    }
+
+    @Override
+    public void start() {
+        stopped = false;
+        running = true;
+        drainer = new Thread(this::drain, "api-usage-log-writer");
+        drainer.setDaemon(true);
+        drainer.start();
+    }
+
+    @Override
+    public void stop() {
+        stopped = true;
+        running = false;
+        Thread currentDrainer = drainer;
+        drainer = null;
+        if (currentDrainer != null) {
+            LockSupport.unpark(currentDrainer);
+            try {
+                currentDrainer.join(TimeUnit.SECONDS.toMillis(10));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        flush();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        //stops after the web server, so logs of the last served requests are still written
+        return SmartLifecycle.DEFAULT_PHASE - 4096;
+    }
+
+    @Autowired
+    void setCapacity(@Value("${usage-log.writer.capacity:10000}") int capacity) {
+        this.capacity = capacity;
+    }
+
+    @Autowired
+    void setBatchSize(@Value("${usage-log.writer.batch-size:100}") int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    @Autowired
+    void setLinger(@Value("${usage-log.writer.linger:200ms}") Duration linger) {
+        this.linger = linger;
+    }
+}
@@ -0,0 +1,106 @@
+package com.challenge.forexrate.service;
+
+import com.challenge.forexrate.model.UsageLogPartition;
+import com.challenge.forexrate.repository.ApiUsageLogRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+//expired partitions are archived first when an archive directory is set, rollups are kept
+@Slf4j
+@Service
+public class ApiUsageLogRetentionService {
+
+    static final String ARCHIVE_FILE_EXTENSION = ".col.gz";
+
+    private final ApiUsageLogRepository apiUsageLogRepository;
+    private final Counter droppedCounter;
+    private final Counter archivedCounter;
+    private boolean enabled;
+    private Duration retention;
+    private String archiveDirectory;
+
+    public ApiUsageLogRetentionService(ApiUsageLogRepository apiUsageLogRepository, MeterRegistry meterRegistry) {
+        this.apiUsageLogRepository = apiUsageLogRepository;
+        this.droppedCounter = meterRegistry.counter("usage.log.partitions.dropped");
+        this.archivedCounter = meterRegistry.counter("usage.log.partitions.archived");
+    }
+
+    @Scheduled(cron = "${usage-log.retention.cron:0 30 0 * * *}")
+    public void expirePartitions() {
+        if (enabled) {
+            expirePartitions(LocalDate.now());
+        }
+    }
+
+    public List<UsageLogPartition> expirePartitions(LocalDate today) {
+        List<UsageLogPartition> droppedPartitions = new ArrayList<>();
+        for (UsageLogPartition partition : apiUsageLogRepository.findPartitionsEndingBy(today.minusDays(retention.toDays()))) {
+            try {
+                if (!archiveDirectory.isEmpty()) {
+                    archive(partition, Paths.get(archiveDirectory));
+                    archivedCounter.increment();
+                }
+                apiUsageLogRepository.dropPartition(partition);
+                droppedCounter.increment();
+                droppedPartitions.add(partition);
+                log.info("Dropped api usage log partition {}", partition.getTableName());
+            } catch (IOException | UncheckedIOException | DataAccessException e) {
+                log.error("Could not expire api usage log partition {}", partition.getTableName(), e);
+            }
+        }
+        return droppedPartitions;
+    }
+
+    private void archive(UsageLogPartition partition, Path directory) throws IOException {
+        Files.createDirectories(directory);
+        Path archive = directory.resolve(partition.getTableName() + ARCHIVE_FILE_EXTENSION);
+        Path temporaryArchive = directory.resolve(archive.getFileName() + ".tmp");
+        try (OutputStream outputStream = Files.newOutputStream(temporaryArchive);
+             ApiUsageLogArchiveWriter archiveWriter = new ApiUsageLogArchiveWriter(outputStream)) {
+            apiUsageLogRepository.forEachInPartition(partition, apiUsageLog -> {
+                try {
+                    archiveWriter.write(apiUsageLog);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temporaryArchive);
+            throw e;
+        }
+        Files.move(temporaryArchive, archive, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    @Autowired
+    void setEnabled(@Value("${usage-log.retention.enabled:false}") boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    @Autowired
+    void setRetention(@Value("${usage-log.retention.period:400d}") Duration retention) {
+        this.retention = retention;
+    }
+
+    @Autowired
+    void setArchiveDirectory(@Value("${usage-log.archive.directory:}") String archiveDirectory) {
+        this.archiveDirectory = archiveDirectory;
+    }
+}
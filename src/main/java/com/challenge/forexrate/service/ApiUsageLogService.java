@@ -1,24 +1,27 @@
 package com.challenge.forexrate.service;
 
 import com.challenge.forexrate.entity.ApiUsageLog;
+import com.challenge.forexrate.model.ApiUsageLogCursor;
+import com.challenge.forexrate.model.ReportQuery;
 import com.challenge.forexrate.repository.ApiUsageLogRepository;
 import lombok.RequiredArgsConstructor;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class ApiUsageLogService {
 
     private final ApiUsageLogRepository apiUsageLogRepository;
+    private final ApiUsageLogBatchWriter apiUsageLogBatchWriter;
 
-    @Async
     public void save(LocalDate date, String baseCurrency, String targetCurrency) {
-        apiUsageLogRepository.save(ApiUsageLog.builder()
+        apiUsageLogBatchWriter.write(ApiUsageLog.builder()
                 .requestDateTime(LocalDateTime.now())
                 .requestedDate(date)
                 .baseCurrency(baseCurrency)
@@ -26,7 +29,26 @@ public class ApiUsageLogService {
                 .build());
     }
 
-    public List<ApiUsageLog> findByRangeDateTime(LocalDateTime startDateTime, LocalDateTime endDateTime) {
-        return apiUsageLogRepository.findByRequestDateTimeBetween(startDateTime, endDateTime);
+    public void saveAll(List<ReportQuery> queries) {
+        LocalDateTime requestDateTime = LocalDateTime.now();
+        apiUsageLogBatchWriter.writeAll(queries.stream()
+                .map(query -> ApiUsageLog.builder()
+                        .requestDateTime(requestDateTime)
+                        .requestedDate(LocalDate.parse(query.getDate()))
+                        .baseCurrency(query.getBaseCurrency())
+                        .targetCurrency(query.getTargetCurrency())
+                        .build())
+                .collect(Collectors.toList()));
+    }
+
+    public List<ApiUsageLog> findByRangeDateTime(LocalDateTime startDateTime, LocalDateTime endDateTime, ApiUsageLogCursor after, int limit) {
+        if (after == null) {
+            return apiUsageLogRepository.findByRequestDateTimeBetween(startDateTime, endDateTime, limit);
+        }
+        return apiUsageLogRepository.findByRequestDateTimeBetweenAfter(startDateTime, endDateTime, after.getRequestDateTime(), after.getId(), limit);
+    }
+
+    public void forEachByRangeDateTime(LocalDateTime startDateTime, LocalDateTime endDateTime, Consumer<ApiUsageLog> action) {
+        apiUsageLogRepository.forEachByRequestDateTimeBetween(startDateTime, endDateTime, action);
     }
 }
@@ -0,0 +1,28 @@
+package com.challenge.forexrate.service;
+
+import com.challenge.forexrate.model.ApiUsageBucketCount;
+import com.challenge.forexrate.model.ApiUsagePairCount;
+import com.challenge.forexrate.model.UsageGranularity;
+import com.challenge.forexrate.repository.ApiUsageRollupRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+//served from the rollups, the cost depends on the amount of buckets and pairs rather than of requests
+@Service
+@RequiredArgsConstructor
+public class ApiUsageStatisticsService {
+
+    private final ApiUsageRollupRepository apiUsageRollupRepository;
+
+    public List<ApiUsageBucketCount> countByBucket(UsageGranularity granularity, LocalDateTime startDateTime, LocalDateTime endDateTime) {
+        return apiUsageRollupRepository.countByBucket(granularity, startDateTime, endDateTime);
+    }
+
+    public List<ApiUsagePairCount> findTopPairs(LocalDateTime startDateTime, LocalDateTime endDateTime, int limit) {
+        return apiUsageRollupRepository.findTopPairs(UsageGranularity.DAILY, startDateTime, endDateTime, PageRequest.of(0, limit));
+    }
+}
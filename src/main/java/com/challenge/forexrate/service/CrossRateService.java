@@ -0,0 +1,130 @@
+package com.challenge.forexrate.service;
+
+import com.challenge.forexrate.model.CrossRateTable;
+import com.challenge.forexrate.model.RateSeries;
+import com.github.benmanes.caffeine.cache.Cache;
+import io.exchangeratesapi.api.client.ForeignExchangeRateService;
+import io.exchangeratesapi.api.client.model.CurrencyRateHistory;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+//one upstream call fetches the full table of every missing day, upstream calls grow with days rather than pairs
+@Service
+@RequiredArgsConstructor
+public class CrossRateService {
+
+    private final RateProvider rateProvider;
+    private final Cache<Integer, CrossRateTable> crossRateTableCache;
+
+    public Map<String, RateSeries> getRates(LocalDate startDate, LocalDate endDate, String baseCurrency, Collection<String> targetCurrencies) {
+        CrossRateTable[] tables = findCachedTables(startDate, endDate);
+        ForeignExchangeRateService.QueryParams queryParams = buildMissingTablesQueryParams(startDate, tables);
+        if (queryParams != null) {
+            storeFetchedTables(startDate, tables, rateProvider.getHistory(queryParams));
+        }
+        return buildRates(startDate, endDate, tables, baseCurrency, targetCurrencies);
+    }
+
+    public CompletableFuture<Map<String, RateSeries>> getRatesAsync(LocalDate startDate, LocalDate endDate, String baseCurrency, Collection<String> targetCurrencies) {
+        CrossRateTable[] tables = findCachedTables(startDate, endDate);
+        ForeignExchangeRateService.QueryParams queryParams = buildMissingTablesQueryParams(startDate, tables);
+        if (queryParams == null) {
+            return CompletableFuture.completedFuture(buildRates(startDate, endDate, tables, baseCurrency, targetCurrencies));
+        }
+        return rateProvider.getHistoryAsync(queryParams)
+                .thenApply(history -> {
+                    storeFetchedTables(startDate, tables, history);
+                    return buildRates(startDate, endDate, tables, baseCurrency, targetCurrencies);
+                });
+    }
+
+    //indexed relative to startDate, null if missing
+    private CrossRateTable[] findCachedTables(LocalDate startDate, LocalDate endDate) {
+        int startEpochDay = Math.toIntExact(startDate.toEpochDay());
+        CrossRateTable[] tables = new CrossRateTable[Math.toIntExact(endDate.toEpochDay()) - startEpochDay + 1];
+        for (int day = 0; day < tables.length; day++) {
+            tables[day] = crossRateTableCache.getIfPresent(startEpochDay + day);
+        }
+        return tables;
+    }
+
+    //null if no day is missing
+    private ForeignExchangeRateService.QueryParams buildMissingTablesQueryParams(LocalDate startDate, CrossRateTable[] tables) {
+        int firstMissingDay = -1;
+        int lastMissingDay = -1;
+        for (int day = 0; day < tables.length; day++) {
+            if (tables[day] == null) {
+                firstMissingDay = firstMissingDay < 0 ? day : firstMissingDay;
+                lastMissingDay = day;
+            }
+        }
+        if (firstMissingDay < 0) {
+            return null;
+        }
+
+        return ForeignExchangeRateService.QueryParams.builder()
+                .start_at(startDate.plusDays(firstMissingDay))
+                .end_at(startDate.plusDays(lastMissingDay))
+                .base(CrossRateTable.PIVOT_CURRENCY)
+                .build();
+    }
+
+    private void storeFetchedTables(LocalDate startDate, CrossRateTable[] tables, CurrencyRateHistory history) {
+        int startEpochDay = Math.toIntExact(startDate.toEpochDay());
+        CrossRateTable.Builder[] builders = new CrossRateTable.Builder[tables.length];
+        int lastPublishedEpochDay = PublishedRates.lastPublishedEpochDay(history.getRates().values());
+        for (Map.Entry<String, RateSeries> currencyRates : history.getRates().entrySet()) {
+            RateSeries rates = currencyRates.getValue();
+            for (int epochDay = Math.max(startEpochDay, rates.getStartEpochDay()); epochDay <= rates.getEndEpochDay(); epochDay++) {
+                int day = epochDay - startEpochDay;
+                double rate = rates.get(epochDay);
+                if (day < tables.length && tables[day] == null && !Double.isNaN(rate)) {
+                    if (builders[day] == null) {
+                        builders[day] = CrossRateTable.builder();
+                    }
+                    builders[day].set(currencyRates.getKey(), rate);
+                }
+            }
+        }
+
+        for (int day = 0; day < tables.length; day++) {
+            int epochDay = startEpochDay + day;
+            if (builders[day] != null) {
+                tables[day] = builders[day].build();
+                crossRateTableCache.put(epochDay, tables[day]);
+            } else if (tables[day] == null && PublishedRates.isFinalWithoutQuotation(epochDay, lastPublishedEpochDay)) {
+                tables[day] = CrossRateTable.noQuotation();
+                crossRateTableCache.put(epochDay, tables[day]);
+            }
+        }
+    }
+
+    private Map<String, RateSeries> buildRates(LocalDate startDate, LocalDate endDate, CrossRateTable[] tables, String baseCurrency, Collection<String> targetCurrencies) {
+        checkQuoted(tables, baseCurrency);
+        targetCurrencies.forEach(targetCurrency -> checkQuoted(tables, targetCurrency));
+
+        int startEpochDay = Math.toIntExact(startDate.toEpochDay());
+        Map<String, RateSeries> ratesByTarget = new LinkedHashMap<>();
+        for (String targetCurrency : targetCurrencies) {
+            RateSeries rates = RateSeries.empty(startDate, endDate);
+            for (int day = 0; day < tables.length; day++) {
+                if (tables[day] != null) {
+                    rates.set(startEpochDay + day, tables[day].getCrossRate(baseCurrency, targetCurrency));
+                }
+            }
+            ratesByTarget.put(targetCurrency, rates);
+        }
+        return ratesByTarget;
+    }
+
+    private void checkQuoted(CrossRateTable[] tables, String currency) {
+        PublishedRates.checkQuoted(currency, 0, tables.length - 1,
+                day -> tables[day] != null && tables[day].hasQuotation(), day -> tables[day].get(currency));
+    }
+}
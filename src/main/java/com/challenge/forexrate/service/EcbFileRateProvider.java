@@ -0,0 +1,151 @@
+package com.challenge.forexrate.service;
+
+import com.challenge.forexrate.exception.UnsupportedCurrencyException;
+import com.challenge.forexrate.model.CrossRateTable;
+import com.challenge.forexrate.model.RateSeries;
+import io.exchangeratesapi.api.client.ForeignExchangeRateService;
+import io.exchangeratesapi.api.client.model.CurrencyRateHistory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+//serves an ECB history file such as eurofxref-hist.csv: a Date,USD,JPY,... header, then one line per published day
+//against the euro, N/A when a currency is not quoted. Pairs without the euro are derived from the two euro rates
+//the file is parsed once into heap-resident series, unlike the mapped rate history it is not served from disk
+public class EcbFileRateProvider implements RateProvider {
+
+    private static final String DATE_HEADER = "Date";
+    private static final String NOT_QUOTED = "N/A";
+
+    private final Map<String, RateSeries> ratesByCurrency;
+
+    EcbFileRateProvider(Map<String, RateSeries> ratesByCurrency) {
+        this.ratesByCurrency = ratesByCurrency;
+    }
+
+    public static EcbFileRateProvider load(Path path) throws IOException {
+        return parse(ByteBuffer.wrap(Files.readAllBytes(path)));
+    }
+
+    static EcbFileRateProvider parse(ByteBuffer csv) {
+        List<String> fields = new ArrayList<>();
+        if (!readFields(csv, fields) || !DATE_HEADER.equalsIgnoreCase(fields.get(0))) {
+            throw new IllegalArgumentException("Not an ECB history file, expected a 'Date,<currency>,...' header");
+        }
+        List<String> currencies = new ArrayList<>(fields.subList(1, fields.size()));
+        RateSeries.Builder[] builders = new RateSeries.Builder[currencies.size()];
+        Arrays.setAll(builders, column -> RateSeries.builder());
+        //the pivot currency is quoted on every published day
+        RateSeries.Builder pivotBuilder = RateSeries.builder();
+
+        while (readFields(csv, fields)) {
+            if (fields.get(0).isEmpty()) {
+                continue;
+            }
+            int epochDay = RateSeries.parseEpochDay(fields.get(0));
+            pivotBuilder.add(epochDay, 1);
+            for (int column = 1; column < fields.size() && column <= currencies.size(); column++) {
+                String rate = fields.get(column);
+                if (!rate.isEmpty() && !NOT_QUOTED.equals(rate)) {
+                    builders[column - 1].add(epochDay, Double.parseDouble(rate));
+                }
+            }
+        }
+
+        Map<String, RateSeries> ratesByCurrency = new HashMap<>();
+        for (int column = 0; column < currencies.size(); column++) {
+            RateSeries rates = builders[column].build();
+            //ECB files end every line with a separator, hence a last column without currency
+            if (!currencies.get(column).isEmpty() && rates.size() > 0) {
+                ratesByCurrency.put(currencies.get(column), rates);
+            }
+        }
+        ratesByCurrency.put(CrossRateTable.PIVOT_CURRENCY, pivotBuilder.build());
+        return new EcbFileRateProvider(ratesByCurrency);
+    }
+
+    //false at the end of the file
+    private static boolean readFields(ByteBuffer csv, List<String> fields) {
+        fields.clear();
+        if (!csv.hasRemaining()) {
+            return false;
+        }
+        StringBuilder field = new StringBuilder();
+        while (csv.hasRemaining()) {
+            char character = (char) csv.get();
+            if (character == '\n') {
+                break;
+            } else if (character == ',') {
+                fields.add(field.toString().trim());
+                field.setLength(0);
+            } else if (character != '\r') {
+                field.append(character);
+            }
+        }
+        fields.add(field.toString().trim());
+        return true;
+    }
+
+    @Override
+    public CurrencyRateHistory getHistory(ForeignExchangeRateService.QueryParams queryParams) {
+        RateSeries baseRates = getCurrencyRates(queryParams.getBase());
+        Collection<String> targetCurrencies = queryParams.getSymbols() == null || queryParams.getSymbols().isEmpty()
+                ? allCurrenciesExcept(queryParams.getBase())
+                : Arrays.asList(queryParams.getSymbols().split(","));
+        int startEpochDay = Math.toIntExact(queryParams.getStart_at().toEpochDay());
+        int endEpochDay = Math.toIntExact(queryParams.getEnd_at().toEpochDay());
+
+        Map<String, RateSeries> ratesByTarget = new HashMap<>();
+        for (String targetCurrency : targetCurrencies) {
+            RateSeries targetRates = getCurrencyRates(targetCurrency);
+            RateSeries.Builder rates = RateSeries.builder();
+            for (int epochDay = startEpochDay; epochDay <= endEpochDay; epochDay++) {
+                double rate = targetRates.get(epochDay) / baseRates.get(epochDay);
+                if (!Double.isNaN(rate)) {
+                    rates.add(epochDay, rate);
+                }
+            }
+            RateSeries builtRates = rates.build();
+            if (builtRates.size() > 0) {
+                ratesByTarget.put(targetCurrency, builtRates);
+            }
+        }
+        return CurrencyRateHistory.builder()
+                .rates(ratesByTarget)
+                .build();
+    }
+
+    @Override
+    public CompletableFuture<CurrencyRateHistory> getHistoryAsync(ForeignExchangeRateService.QueryParams queryParams) {
+        CompletableFuture<CurrencyRateHistory> history = new CompletableFuture<>();
+        try {
+            history.complete(getHistory(queryParams));
+        } catch (RuntimeException e) {
+            history.completeExceptionally(e);
+        }
+        return history;
+    }
+
+    private RateSeries getCurrencyRates(String currency) {
+        RateSeries rates = ratesByCurrency.get(currency);
+        if (rates == null) {
+            throw new UnsupportedCurrencyException(String.format("Used currency '%s' is not supported", currency));
+        }
+        return rates;
+    }
+
+    private Collection<String> allCurrenciesExcept(String baseCurrency) {
+        List<String> currencies = new ArrayList<>(ratesByCurrency.keySet());
+        currencies.remove(baseCurrency);
+        return currencies;
+    }
+}
@@ -0,0 +1,178 @@
+package com.challenge.forexrate.service;
+
+import com.challenge.forexrate.entity.ExchangeRate;
+import com.challenge.forexrate.model.RateSeries;
+import com.challenge.forexrate.repository.ExchangeRateRepository;
+import io.exchangeratesapi.api.client.ForeignExchangeRateService;
+import io.exchangeratesapi.api.client.model.CurrencyRateHistory;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+@Service
+@RequiredArgsConstructor
+public class ExchangeRateHistoryService {
+
+    private final RateProvider rateProvider;
+    private final CrossRateService crossRateService;
+    private final ExchangeRateRepository exchangeRateRepository;
+    private final Executor applicationTaskExecutor;
+    private MappedRateService mappedRateService;
+    private boolean crossRatesEnabled;
+
+    public Map<String, RateSeries> getRates(LocalDate startDate, LocalDate endDate, String baseCurrency, Collection<String> targetCurrencies) {
+        if (mappedRateService != null) {
+            return mappedRateService.getRates(startDate, endDate, baseCurrency, targetCurrencies);
+        }
+        if (crossRatesEnabled) {
+            return crossRateService.getRates(startDate, endDate, baseCurrency, targetCurrencies);
+        }
+
+        Map<String, RateSeries> ratesByTarget = new LinkedHashMap<>();
+        Map<String, BitSet> knownDaysByTarget = new HashMap<>();
+        Map<String, BitSet> missingDaysByTarget = findStoredRates(startDate, endDate, baseCurrency, targetCurrencies, ratesByTarget, knownDaysByTarget);
+
+        if (!missingDaysByTarget.isEmpty()) {
+            CurrencyRateHistory history = rateProvider.getHistory(buildMissingRatesQueryParams(startDate, missingDaysByTarget, baseCurrency));
+            storeFetchedRates(startDate, missingDaysByTarget, knownDaysByTarget, baseCurrency, ratesByTarget, history.getRates());
+        }
+        return ratesByTarget;
+    }
+
+    public CompletableFuture<Map<String, RateSeries>> getRatesAsync(LocalDate startDate, LocalDate endDate, String baseCurrency, Collection<String> targetCurrencies) {
+        if (mappedRateService != null) {
+            return mappedRateService.getRatesAsync(startDate, endDate, baseCurrency, targetCurrencies);
+        }
+        if (crossRatesEnabled) {
+            return crossRateService.getRatesAsync(startDate, endDate, baseCurrency, targetCurrencies);
+        }
+
+        Map<String, RateSeries> ratesByTarget = new LinkedHashMap<>();
+        Map<String, BitSet> knownDaysByTarget = new HashMap<>();
+        Map<String, BitSet> missingDaysByTarget = findStoredRates(startDate, endDate, baseCurrency, targetCurrencies, ratesByTarget, knownDaysByTarget);
+
+        if (missingDaysByTarget.isEmpty()) {
+            return CompletableFuture.completedFuture(ratesByTarget);
+        }
+        //the store is blocking, it never runs on the I/O threads of the client
+        return rateProvider.getHistoryAsync(buildMissingRatesQueryParams(startDate, missingDaysByTarget, baseCurrency))
+                .thenApplyAsync(history -> {
+                    storeFetchedRates(startDate, missingDaysByTarget, knownDaysByTarget, baseCurrency, ratesByTarget, history.getRates());
+                    return ratesByTarget;
+                }, applicationTaskExecutor);
+    }
+
+    //returns the days the store knows nothing about, as indexes relative to startDate
+    private Map<String, BitSet> findStoredRates(LocalDate startDate, LocalDate endDate, String baseCurrency, Collection<String> targetCurrencies,
+                                                Map<String, RateSeries> ratesByTarget, Map<String, BitSet> knownDaysByTarget) {
+        int startEpochDay = Math.toIntExact(startDate.toEpochDay());
+        int days = Math.toIntExact(endDate.toEpochDay()) - startEpochDay + 1;
+
+        targetCurrencies.forEach(targetCurrency -> {
+            ratesByTarget.put(targetCurrency, RateSeries.empty(startDate, endDate));
+            knownDaysByTarget.put(targetCurrency, new BitSet(days));
+        });
+        exchangeRateRepository.findByBaseCurrencyAndTargetCurrencyInAndRateDateBetween(baseCurrency, targetCurrencies, startDate, endDate)
+                .forEach(exchangeRate -> {
+                    int epochDay = Math.toIntExact(exchangeRate.getRateDate().toEpochDay());
+                    knownDaysByTarget.get(exchangeRate.getTargetCurrency()).set(epochDay - startEpochDay);
+                    if (exchangeRate.getRate() != null) {
+                        ratesByTarget.get(exchangeRate.getTargetCurrency()).set(epochDay, exchangeRate.getRate());
+                    }
+                });
+
+        Map<String, BitSet> missingDaysByTarget = new TreeMap<>();
+        knownDaysByTarget.forEach((targetCurrency, knownDays) -> {
+            BitSet missingDays = new BitSet(days);
+            missingDays.set(0, days);
+            missingDays.andNot(knownDays);
+            if (!missingDays.isEmpty()) {
+                missingDaysByTarget.put(targetCurrency, missingDays);
+            }
+        });
+        return missingDaysByTarget;
+    }
+
+    private ForeignExchangeRateService.QueryParams buildMissingRatesQueryParams(LocalDate startDate, Map<String, BitSet> missingDaysByTarget, String baseCurrency) {
+        int firstMissingDay = Integer.MAX_VALUE;
+        int lastMissingDay = Integer.MIN_VALUE;
+        for (BitSet missingDays : missingDaysByTarget.values()) {
+            firstMissingDay = Math.min(firstMissingDay, missingDays.nextSetBit(0));
+            lastMissingDay = Math.max(lastMissingDay, missingDays.length() - 1);
+        }
+
+        return buildForeignExchangeRateServiceParams(
+                startDate.plus(firstMissingDay, ChronoUnit.DAYS), startDate.plus(lastMissingDay, ChronoUnit.DAYS), baseCurrency, missingDaysByTarget.keySet());
+    }
+
+    //days are indexes relative to startDate
+    private void storeFetchedRates(LocalDate startDate, Map<String, BitSet> missingDaysByTarget, Map<String, BitSet> knownDaysByTarget, String baseCurrency,
+                                   Map<String, RateSeries> ratesByTarget, Map<String, RateSeries> fetchedRatesByTarget) {
+        int lastPublishedEpochDay = PublishedRates.lastPublishedEpochDay(fetchedRatesByTarget.values());
+
+        int startEpochDay = Math.toIntExact(startDate.toEpochDay());
+        List<ExchangeRate> newExchangeRates = new ArrayList<>();
+        for (Map.Entry<String, BitSet> missingDays : missingDaysByTarget.entrySet()) {
+            String targetCurrency = missingDays.getKey();
+            RateSeries rates = ratesByTarget.get(targetCurrency);
+            RateSeries fetchedRates = fetchedRatesByTarget.get(targetCurrency);
+            BitSet knownDays = knownDaysByTarget.get(targetCurrency);
+            //a stored day was published as well
+            int lastKnownEpochDay = knownDays.isEmpty()
+                    ? lastPublishedEpochDay
+                    : Math.max(lastPublishedEpochDay, startEpochDay + knownDays.length() - 1);
+
+            BitSet days = missingDays.getValue();
+            for (int day = days.nextSetBit(0); day >= 0; day = days.nextSetBit(day + 1)) {
+                int epochDay = startEpochDay + day;
+                double rate = fetchedRates == null ? Double.NaN : fetchedRates.get(epochDay);
+                boolean hasRate = !Double.isNaN(rate);
+                if (hasRate || PublishedRates.isFinalWithoutQuotation(epochDay, lastKnownEpochDay)) {
+                    rates.set(epochDay, rate);
+                    newExchangeRates.add(ExchangeRate.builder()
+                            .rateDate(LocalDate.ofEpochDay(epochDay))
+                            .baseCurrency(baseCurrency)
+                            .targetCurrency(targetCurrency)
+                            .rate(hasRate ? rate : null)
+                            .build());
+                }
+            }
+        }
+        if (!newExchangeRates.isEmpty()) {
+            exchangeRateRepository.insertAllIfAbsent(newExchangeRates);
+        }
+    }
+
+    private ForeignExchangeRateService.QueryParams buildForeignExchangeRateServiceParams(LocalDate startDate, LocalDate endDate, String baseCurrency, Collection<String> targetCurrencies) {
+        return ForeignExchangeRateService.QueryParams.builder()
+                .start_at(startDate)
+                .end_at(endDate)
+                .base(baseCurrency)
+                .symbols(String.join(",", targetCurrencies))
+                .build();
+    }
+
+    @Autowired(required = false)
+    void setMappedRateService(MappedRateService mappedRateService) {
+        this.mappedRateService = mappedRateService;
+    }
+
+    @Autowired
+    void setCrossRatesEnabled(@Value("${report.cross-rates.enabled:false}") boolean crossRatesEnabled) {
+        this.crossRatesEnabled = crossRatesEnabled;
+    }
+}
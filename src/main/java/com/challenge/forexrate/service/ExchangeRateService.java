@@ -1,11 +1,17 @@
 package com.challenge.forexrate.service;
 
 import com.challenge.forexrate.exception.ExchangeRateDateNotFoundException;
+import com.challenge.forexrate.exception.ExchangeRateDateOutOfBoundsException;
+import com.challenge.forexrate.exception.InvalidReportQueryException;
+import com.challenge.forexrate.exception.UnsupportedCurrencyException;
 import com.challenge.forexrate.model.ExchangeRateReport;
+import com.challenge.forexrate.model.RateSeries;
+import com.challenge.forexrate.model.ReportQuery;
 import com.challenge.forexrate.model.Trend;
 import com.challenge.forexrate.validator.ReportRequestDateValidator;
-import io.exchangeratesapi.api.client.ForeignExchangeRateService;
-import io.exchangeratesapi.api.client.model.DateCurrencyMapping;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
@@ -13,102 +19,395 @@ import org.springframework.stereotype.Service;
 
 import java.time.LocalDate;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
+//report requests are timed as a whole and by phase: validation, fetch and computation
 @Service
 @RequiredArgsConstructor
 public class ExchangeRateService {
 
+    public static final String REPORT_TIMER_NAME = "report.requests";
+    public static final String REPORT_PHASE_TIMER_NAME = "report.phases";
+
+    private static final Pattern CURRENCY_PATTERN = Pattern.compile("[A-Z]{3,8}");
+
     private final ReportRequestDateValidator reportRequestDateValidator;
-    private final ForeignExchangeRateService foreignExchangeRateService;
+    private final ExchangeRateHistoryService exchangeRateHistoryService;
+    private final RateWindowService rateWindowService;
+    private final AsyncCache<String, ExchangeRateReport> reportCache;
+    private final MeterRegistry meterRegistry;
     private int averageDaysAmount;
 
     public ExchangeRateReport getReport(LocalDate date, String baseCurrency, String targetCurrency) {
+        return getReports(date, baseCurrency, Collections.singletonList(targetCurrency)).get(0);
+    }
+
+    public List<ExchangeRateReport> getReports(LocalDate date, String baseCurrency, List<String> targetCurrencies) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            List<ExchangeRateReport> reports = loadReports(date, baseCurrency, targetCurrencies);
+            stopReportTimer(sample, null);
+            return reports;
+        } catch (RuntimeException | Error e) {
+            stopReportTimer(sample, e);
+            throw e;
+        }
+    }
+
+    private List<ExchangeRateReport> loadReports(LocalDate date, String baseCurrency, List<String> targetCurrencies) {
 
-        reportRequestDateValidator.validate(date);
+        validate(date);
 
-        ForeignExchangeRateService.QueryParams queryParams = buildForeignExchangeRateServiceParams(date, baseCurrency, targetCurrency);
+        List<CompletableFuture<ExchangeRateReport>> reports = new ArrayList<>(targetCurrencies.size());
+        List<ReportLoad> loads = reserveLoads(date, baseCurrency, targetCurrencies, reports);
+        if (!loads.isEmpty()) {
+            load(date, baseCurrency, loads);
+        }
+        return reports.stream()
+                .map(this::join)
+                .collect(Collectors.toList());
+    }
 
-        DateCurrencyMapping dateCurrencyMappingHistory = foreignExchangeRateService.getHistory(queryParams);
+    public CompletableFuture<ExchangeRateReport> getReportAsync(LocalDate date, String baseCurrency, String targetCurrency) {
+        return getReportsAsync(date, baseCurrency, Collections.singletonList(targetCurrency))
+                .thenApply(reports -> reports.get(0));
+    }
 
-        Double rate;
+    public CompletableFuture<List<ExchangeRateReport>> getReportsAsync(LocalDate date, String baseCurrency, List<String> targetCurrencies) {
+        Timer.Sample sample = Timer.start(meterRegistry);
         try {
-            rate = getRequestedDateExchangeRate(date, targetCurrency, dateCurrencyMappingHistory);
-        } catch (NullPointerException e) {
-            throw new ExchangeRateDateNotFoundException("Requested exchange rate date could not be found");
+            validate(date);
+        } catch (RuntimeException e) {
+            stopReportTimer(sample, e);
+            throw e;
         }
 
-        List<Double> ratesSortedByDate = getRatesSortedByDate(targetCurrency, dateCurrencyMappingHistory);
+        List<CompletableFuture<ExchangeRateReport>> reports = new ArrayList<>(targetCurrencies.size());
+        List<ReportLoad> loads = reserveLoads(date, baseCurrency, targetCurrencies, reports);
+        if (!loads.isEmpty()) {
+            loadAsync(getStartDate(date), date, baseCurrency, loads);
+        }
+        return CompletableFuture.allOf(reports.toArray(new CompletableFuture<?>[0]))
+                .thenApply(ignored -> reports.stream()
+                        .map(CompletableFuture::join)
+                        .collect(Collectors.toList()))
+                .whenComplete((loadedReports, throwable) -> stopReportTimer(sample, throwable));
+    }
 
-        return ExchangeRateReport.builder()
-                .id(baseCurrency + "_" + targetCurrency + "_" + date.toString())
-                .rate(rate)
-                .averageRate(calculateAverageRate(ratesSortedByDate))
-                .trend(calculateTrend(ratesSortedByDate))
-                .build();
+    public CompletableFuture<ExchangeRateReport> getReportAsync(LocalDate date, String baseCurrency, String targetCurrency, Collection<Integer> windows) {
+        return getReportsAsync(date, baseCurrency, Collections.singletonList(targetCurrency), windows)
+                .thenApply(reports -> reports.get(0));
     }
 
-    private ForeignExchangeRateService.QueryParams buildForeignExchangeRateServiceParams(LocalDate date, String baseCurrency, String targetCurrency) {
-        return ForeignExchangeRateService.QueryParams.builder()
-                //gets the requested date + days necessary for calculating the average
-                .start_at(date.minus(averageDaysAmount + 2, ChronoUnit.DAYS))
-                .end_at(date)
-                .base(baseCurrency)
-                .symbols(targetCurrency)
-                .build();
+    //the rates of the longest supported window are loaded first, the reports are computed from stored rates
+    public CompletableFuture<List<ExchangeRateReport>> getReportsAsync(LocalDate date, String baseCurrency, List<String> targetCurrencies,
+                                                                       Collection<Integer> windows) {
+        if (windows.isEmpty()) {
+            return getReportsAsync(date, baseCurrency, targetCurrencies);
+        }
+        validate(date);
+        rateWindowService.validate(windows);
+
+        return rateWindowService.getStatisticsAsync(date, baseCurrency, targetCurrencies, windows)
+                .thenCompose(statisticsByTarget -> getReportsAsync(date, baseCurrency, targetCurrencies)
+                        .thenApply(reports -> {
+                            List<ExchangeRateReport> windowedReports = new ArrayList<>(reports.size());
+                            for (int index = 0; index < reports.size(); index++) {
+                                windowedReports.add(reports.get(index).toBuilder()
+                                        .windows(statisticsByTarget.get(targetCurrencies.get(index)))
+                                        .build());
+                            }
+                            return windowedReports;
+                        }));
     }
 
-    private Double getRequestedDateExchangeRate(LocalDate date, String targetCurrency, DateCurrencyMapping dateCurrencyMappingHistory) {
-        return dateCurrencyMappingHistory.getRates().remove(date.toString()).get(targetCurrency);
+    //queries of a base whose rates overlap share one fetch, a failed merged fetch is retried per target currency
+    public List<CompletableFuture<ExchangeRateReport>> getReportsAsync(List<ReportQuery> queries) {
+        List<CompletableFuture<ExchangeRateReport>> reports = new ArrayList<>(queries.size());
+        Map<String, List<ReportLoad>> loadsByBase = new LinkedHashMap<>();
+        for (ReportQuery query : queries) {
+            LocalDate date;
+            try {
+                if (query.getDate() == null || query.getBaseCurrency() == null || query.getTargetCurrency() == null) {
+                    throw new InvalidReportQueryException("Report query should have a date, a base currency and a target currency");
+                }
+                date = LocalDate.parse(query.getDate());
+                validate(date);
+            } catch (RuntimeException e) {
+                CompletableFuture<ExchangeRateReport> failedReport = new CompletableFuture<>();
+                failedReport.completeExceptionally(e);
+                reports.add(failedReport);
+                continue;
+            }
+
+            List<ReportLoad> loads = loadsByBase.computeIfAbsent(query.getBaseCurrency(), baseCurrency -> new ArrayList<>());
+            loads.addAll(reserveLoads(date, query.getBaseCurrency(), Collections.singletonList(query.getTargetCurrency()), reports));
+        }
+
+        loadsByBase.forEach((baseCurrency, loads) -> {
+            loads.sort(Comparator.comparing(load -> load.date));
+            int spanStart = 0;
+            for (int index = 1; index <= loads.size(); index++) {
+                //spans of sorted dates overlap as long as the next one starts before the day after the current end
+                if (index == loads.size() || getStartDate(loads.get(index).date).isAfter(loads.get(index - 1).date.plusDays(1))) {
+                    List<ReportLoad> spanLoads = loads.subList(spanStart, index);
+                    loadAsync(getStartDate(spanLoads.get(0).date), spanLoads.get(spanLoads.size() - 1).date, baseCurrency, spanLoads, true);
+                    spanStart = index;
+                }
+            }
+        });
+        return reports;
     }
 
-    private List<Double> getRatesSortedByDate(String targetCurrency, DateCurrencyMapping dateCurrencyMappingHistory) {
-        return dateCurrencyMappingHistory.getRates()
-                .entrySet()
-                .stream()
-                .sorted(Map.Entry.comparingByKey())
-                .map(Map.Entry::getValue)
-                .map(currency -> currency.get(targetCurrency))
-                .collect(Collectors.toList());
+    public void prefetch(String baseCurrency, List<String> targetCurrencies) {
+        LocalDate today = LocalDate.now();
+        LocalDate latestDate = today.minus(1, ChronoUnit.DAYS);
+        exchangeRateHistoryService.getRates(getStartDate(latestDate), today, baseCurrency, targetCurrencies);
+        try {
+            //every report is loaded before the first failure is rethrown, so the others are cached anyway
+            loadReports(latestDate, baseCurrency, targetCurrencies);
+        } catch (ExchangeRateDateNotFoundException e) {
+            //no quotation on the latest date, weekends and holidays
+        }
+    }
+
+    public Stream<ExchangeRateReport> getReports(LocalDate startDate, LocalDate endDate, String baseCurrency, String targetCurrency) {
+
+        validate(startDate, endDate);
+
+        int windowDays = averageDaysAmount + 2;
+        RateSeries rates = phaseTimer("fetch").record(() -> exchangeRateHistoryService
+                .getRates(startDate.minus(windowDays, ChronoUnit.DAYS), endDate, baseCurrency, Collections.singleton(targetCurrency))
+                .get(targetCurrency));
+
+        int startEpochDay = Math.toIntExact(startDate.toEpochDay());
+        int endEpochDay = Math.toIntExact(endDate.toEpochDay());
+        MovingRateWindow window = new MovingRateWindow(windowDays);
+        for (int epochDay = rates.getStartEpochDay(); epochDay < startEpochDay; epochDay++) {
+            double rate = rates.get(epochDay);
+            if (!Double.isNaN(rate)) {
+                window.add(epochDay, rate);
+            }
+        }
+
+        Spliterator<ExchangeRateReport> reports = new Spliterators.AbstractSpliterator<ExchangeRateReport>(
+                endEpochDay - startEpochDay + 1, Spliterator.ORDERED | Spliterator.NONNULL) {
+
+            private int epochDay = startEpochDay;
+
+            @Override
+            public boolean tryAdvance(Consumer<? super ExchangeRateReport> action) {
+                while (epochDay <= endEpochDay) {
+                    int currentEpochDay = epochDay++;
+
+                    window.removeBefore(currentEpochDay - windowDays);
+                    double rate = rates.get(currentEpochDay);
+                    if (!Double.isNaN(rate)) {
+                        ExchangeRateReport report = ExchangeRateReport.builder()
+                                .id(buildId(LocalDate.ofEpochDay(currentEpochDay), baseCurrency, targetCurrency))
+                                .rate(rate)
+                                .averageRate(window.getAverageRate())
+                                .trend(window.getTrend())
+                                .build();
+                        window.add(currentEpochDay, rate);
+                        action.accept(report);
+                        return true;
+                    }
+                }
+                return false;
+            }
+        };
+        return StreamSupport.stream(reports, false);
+    }
+
+    //returns the loads this caller owns and has to complete
+    private List<ReportLoad> reserveLoads(LocalDate date, String baseCurrency, List<String> targetCurrencies,
+                                          List<CompletableFuture<ExchangeRateReport>> reports) {
+        List<ReportLoad> loads = new ArrayList<>();
+        for (String targetCurrency : targetCurrencies) {
+            CompletableFuture<ExchangeRateReport> load = new CompletableFuture<>();
+            CompletableFuture<ExchangeRateReport> report = reportCache.get(buildId(date, baseCurrency, targetCurrency), (key, executor) -> load);
+            if (report == load) {
+                //this caller owns the load, concurrent callers for the same id share its result or exception
+                loads.add(new ReportLoad(date, targetCurrency, load));
+            }
+            reports.add(report);
+        }
+        return loads;
     }
 
-    private double calculateAverageRate(List<Double> ratesSortedByDate) {
-        return ratesSortedByDate.stream()
-                .filter(Objects::nonNull)
-                .mapToDouble(Double::doubleValue)
-                .average()
-                .orElse(0);
+    private void load(LocalDate date, String baseCurrency, List<ReportLoad> loads) {
+        Map<String, RateSeries> ratesByTarget;
+        try {
+            ratesByTarget = phaseTimer("fetch").record(() -> exchangeRateHistoryService.getRates(getStartDate(date), date, baseCurrency, getTargetCurrencies(loads)));
+        } catch (RuntimeException | Error e) {
+            loads.forEach(load -> load.report.completeExceptionally(e));
+            return;
+        }
+        completeLoads(baseCurrency, loads, ratesByTarget);
     }
 
-    private String calculateTrend(List<Double> ratesSortedByDate) {
-        Trend trend = null;
-        for (int i = 0; i < ratesSortedByDate.size() - 1; i++) {
-            Double current = ratesSortedByDate.get(i);
-            Double next = ratesSortedByDate.get(i + 1);
+    private void loadAsync(LocalDate startDate, LocalDate endDate, String baseCurrency, List<ReportLoad> loads) {
+        loadAsync(startDate, endDate, baseCurrency, loads, false);
+    }
 
-            if (current < next && hasSameTrendOrNoTrend(trend, Trend.ASCENDING)) {
-                trend = Trend.ASCENDING;
-            } else if (current > next && (hasSameTrendOrNoTrend(trend, Trend.DESCENDING))) {
-                trend = Trend.DESCENDING;
-            } else if (current.equals(next) && (hasSameTrendOrNoTrend(trend, Trend.CONSTANT))) {
-                trend = Trend.CONSTANT;
+    private void loadAsync(LocalDate startDate, LocalDate endDate, String baseCurrency, List<ReportLoad> loads, boolean retryPerTarget) {
+        Set<String> targetCurrencies = getTargetCurrencies(loads);
+        Timer.Sample fetchSample = Timer.start(meterRegistry);
+        CompletableFuture<Map<String, RateSeries>> rates;
+        try {
+            rates = exchangeRateHistoryService.getRatesAsync(startDate, endDate, baseCurrency, targetCurrencies);
+        } catch (RuntimeException | Error e) {
+            rates = new CompletableFuture<>();
+            rates.completeExceptionally(e);
+        }
+        rates.whenComplete((ratesByTarget, throwable) -> {
+            fetchSample.stop(phaseTimer("fetch"));
+            if (throwable == null) {
+                completeLoads(baseCurrency, loads, ratesByTarget);
+            } else if (retryPerTarget && targetCurrencies.size() > 1) {
+                Map<String, List<ReportLoad>> loadsByTarget = loads.stream()
+                        .collect(Collectors.groupingBy(load -> load.targetCurrency, LinkedHashMap::new, Collectors.toList()));
+                loadsByTarget.values().forEach(targetLoads -> loadAsync(startDate, endDate, baseCurrency, targetLoads));
             } else {
-                trend = Trend.UNDEFINED;
-                break;
+                Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null ? throwable.getCause() : throwable;
+                loads.forEach(load -> load.report.completeExceptionally(cause));
+            }
+        });
+    }
+
+    private static Set<String> getTargetCurrencies(List<ReportLoad> loads) {
+        return loads.stream()
+                .map(load -> load.targetCurrency)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+    }
+
+    //the days necessary for calculating the average
+    private LocalDate getStartDate(LocalDate date) {
+        return date.minus(averageDaysAmount + 2, ChronoUnit.DAYS);
+    }
+
+    private void completeLoads(String baseCurrency, List<ReportLoad> loads, Map<String, RateSeries> ratesByTarget) {
+        Timer.Sample computeSample = Timer.start(meterRegistry);
+        Map<CompletableFuture<ExchangeRateReport>, Object> results = new LinkedHashMap<>();
+        loads.forEach(load -> {
+            try {
+                results.put(load.report, buildReport(buildId(load.date, baseCurrency, load.targetCurrency), load.date, ratesByTarget.get(load.targetCurrency)));
+            } catch (RuntimeException e) {
+                results.put(load.report, e);
             }
+        });
+        computeSample.stop(phaseTimer("compute"));
+
+        //completed once computed, so the time of the callers' continuations is not accounted to the computation
+        results.forEach((load, result) -> {
+            if (result instanceof RuntimeException) {
+                load.completeExceptionally((RuntimeException) result);
+            } else {
+                load.complete((ExchangeRateReport) result);
+            }
+        });
+    }
+
+    //checks a request without computing it, whether a well-formed currency is supported is only known once its rates are fetched
+    public void validateRequest(LocalDate date, String baseCurrency, Collection<String> targetCurrencies, Collection<Integer> windows) {
+        validate(date);
+        validateCurrency(baseCurrency);
+        targetCurrencies.forEach(this::validateCurrency);
+        rateWindowService.validate(windows);
+    }
+
+    public void validateRequest(LocalDate startDate, LocalDate endDate, String baseCurrency, String targetCurrency) {
+        validate(startDate, endDate);
+        validateCurrency(baseCurrency);
+        validateCurrency(targetCurrency);
+    }
+
+    private void validate(LocalDate date) {
+        phaseTimer("validate").record(() -> reportRequestDateValidator.validate(date));
+    }
+
+    private void validate(LocalDate startDate, LocalDate endDate) {
+        validate(startDate);
+        validate(endDate);
+        if (startDate.isAfter(endDate)) {
+            throw new ExchangeRateDateOutOfBoundsException(String.format("Exchange rate start date %s should not be after end date %s", startDate, endDate));
         }
+    }
+
+    private void validateCurrency(String currency) {
+        if (!CURRENCY_PATTERN.matcher(currency).matches()) {
+            throw new UnsupportedCurrencyException(String.format("Used currency '%s' is not supported", currency));
+        }
+    }
+
+    private Timer phaseTimer(String phase) {
+        return meterRegistry.timer(REPORT_PHASE_TIMER_NAME, "phase", phase);
+    }
+
+    private void stopReportTimer(Timer.Sample sample, Throwable throwable) {
+        Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null ? throwable.getCause() : throwable;
+        sample.stop(meterRegistry.timer(REPORT_TIMER_NAME, "exception", cause == null ? "none" : cause.getClass().getSimpleName()));
+    }
+
+    private String buildId(LocalDate date, String baseCurrency, String targetCurrency) {
+        return baseCurrency + "_" + targetCurrency + "_" + date.toString();
+    }
+
+    private ExchangeRateReport join(CompletableFuture<ExchangeRateReport> report) {
+        try {
+            return report.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw e;
+        }
+    }
 
-        if (trend != null) {
-            return trend.getTrendName();
+    private ExchangeRateReport buildReport(String id, LocalDate date, RateSeries rates) {
+        int epochDay = Math.toIntExact(date.toEpochDay());
+        double rate = rates.get(epochDay);
+        if (Double.isNaN(rate)) {
+            throw new ExchangeRateDateNotFoundException("Requested exchange rate date could not be found");
         }
-        return null;
+
+        int startEpochDay = Math.toIntExact(getStartDate(date).toEpochDay());
+        Trend trend = rates.trend(startEpochDay, epochDay);
+        return ExchangeRateReport.builder()
+                .id(id)
+                .rate(rate)
+                .averageRate(rates.average(startEpochDay, epochDay))
+                .trend(trend == null ? null : trend.getTrendName())
+                .build();
     }
 
-    private boolean hasSameTrendOrNoTrend(Trend previousTrend, Trend currentTrend) {
-        return currentTrend == previousTrend || previousTrend == null;
+    @RequiredArgsConstructor
+    private static class ReportLoad {
+
+        private final LocalDate date;
+        private final String targetCurrency;
+        private final CompletableFuture<ExchangeRateReport> report;
     }
 
     @Autowired
@@ -0,0 +1,126 @@
+package com.challenge.forexrate.service;
+
+import com.challenge.forexrate.model.CrossRateTable;
+import com.challenge.forexrate.model.MappedRateHistory;
+import com.challenge.forexrate.model.RateSeries;
+import io.exchangeratesapi.api.client.ForeignExchangeRateService;
+import io.exchangeratesapi.api.client.model.CurrencyRateHistory;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+//backfilled off the request path in chunks, at startup and after each daily publication, days not stored yet have no rate
+@Slf4j
+@RequiredArgsConstructor
+public class MappedRateService implements ApplicationRunner {
+
+    private final RateProvider rateProvider;
+    private final MappedRateHistory mappedRateHistory;
+    private final int backfillChunkDays;
+    private final Executor applicationTaskExecutor;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        backfill();
+    }
+
+    @Scheduled(cron = "${report.mapped-rates.backfill-cron:0 20 16 * * MON-FRI}", zone = "${report.prefetch.zone:Europe/Berlin}")
+    public void backfill() {
+        backfill(LocalDate.now());
+    }
+
+    //a failed chunk is logged and never fails startup, the next run resumes after the last stored day
+    void backfill(LocalDate endDate) {
+        int lastEpochDay = mappedRateHistory.getLastEpochDay();
+        try {
+            while (lastEpochDay < endDate.toEpochDay()) {
+                LocalDate chunkStartDate = LocalDate.ofEpochDay(lastEpochDay + 1L);
+                LocalDate chunkEndDate = chunkStartDate.plusDays(backfillChunkDays - 1L);
+                append(rateProvider.getHistory(buildQueryParams(chunkStartDate, chunkEndDate.isBefore(endDate) ? chunkEndDate : endDate)));
+                mappedRateHistory.force();
+                if (mappedRateHistory.getLastEpochDay() == lastEpochDay) {
+                    //nothing published after the last stored day yet
+                    return;
+                }
+                lastEpochDay = mappedRateHistory.getLastEpochDay();
+            }
+        } catch (RuntimeException e) {
+            log.warn("Could not backfill the rate history after {}", LocalDate.ofEpochDay(lastEpochDay), e);
+        }
+    }
+
+    public Map<String, RateSeries> getRates(LocalDate startDate, LocalDate endDate, String baseCurrency, Collection<String> targetCurrencies) {
+        ForeignExchangeRateService.QueryParams queryParams = buildMissingDaysQueryParams(endDate);
+        if (queryParams != null) {
+            append(rateProvider.getHistory(queryParams));
+        }
+        return buildRates(startDate, endDate, baseCurrency, targetCurrencies);
+    }
+
+    public CompletableFuture<Map<String, RateSeries>> getRatesAsync(LocalDate startDate, LocalDate endDate, String baseCurrency, Collection<String> targetCurrencies) {
+        ForeignExchangeRateService.QueryParams queryParams = buildMissingDaysQueryParams(endDate);
+        if (queryParams == null) {
+            return CompletableFuture.completedFuture(buildRates(startDate, endDate, baseCurrency, targetCurrencies));
+        }
+        //the append locks the history, it never runs on the I/O threads of the client
+        return rateProvider.getHistoryAsync(queryParams)
+                .thenApplyAsync(history -> {
+                    append(history);
+                    return buildRates(startDate, endDate, baseCurrency, targetCurrencies);
+                }, applicationTaskExecutor);
+    }
+
+    //null when nothing is missing, or when too much is and it is left to the backfill
+    private ForeignExchangeRateService.QueryParams buildMissingDaysQueryParams(LocalDate endDate) {
+        int firstMissingEpochDay = mappedRateHistory.getLastEpochDay() + 1;
+        long missingDays = endDate.toEpochDay() - firstMissingEpochDay + 1;
+        if (missingDays <= 0 || missingDays > backfillChunkDays) {
+            return null;
+        }
+        return buildQueryParams(LocalDate.ofEpochDay(firstMissingEpochDay), endDate);
+    }
+
+    private ForeignExchangeRateService.QueryParams buildQueryParams(LocalDate startDate, LocalDate endDate) {
+        return ForeignExchangeRateService.QueryParams.builder()
+                .start_at(startDate)
+                .end_at(endDate)
+                .base(CrossRateTable.PIVOT_CURRENCY)
+                .build();
+    }
+
+    private void append(CurrencyRateHistory history) {
+        int lastPublishedEpochDay = PublishedRates.lastPublishedEpochDay(history.getRates().values());
+        if (lastPublishedEpochDay != Integer.MIN_VALUE) {
+            mappedRateHistory.append(lastPublishedEpochDay, history.getRates());
+        }
+    }
+
+    private Map<String, RateSeries> buildRates(LocalDate startDate, LocalDate endDate, String baseCurrency, Collection<String> targetCurrencies) {
+        int startEpochDay = Math.toIntExact(startDate.toEpochDay());
+        int endEpochDay = Math.toIntExact(endDate.toEpochDay());
+        checkQuoted(startEpochDay, endEpochDay, baseCurrency);
+        targetCurrencies.forEach(targetCurrency -> checkQuoted(startEpochDay, endEpochDay, targetCurrency));
+
+        Map<String, RateSeries> ratesByTarget = new LinkedHashMap<>();
+        for (String targetCurrency : targetCurrencies) {
+            RateSeries rates = RateSeries.empty(startDate, endDate);
+            mappedRateHistory.copyCrossRates(baseCurrency, targetCurrency, rates);
+            ratesByTarget.put(targetCurrency, rates);
+        }
+        return ratesByTarget;
+    }
+
+    private void checkQuoted(int startEpochDay, int endEpochDay, String currency) {
+        int index = mappedRateHistory.indexOf(currency);
+        PublishedRates.checkQuoted(currency, startEpochDay, endEpochDay, mappedRateHistory::hasQuotation, epochDay -> mappedRateHistory.get(epochDay, index));
+    }
+}
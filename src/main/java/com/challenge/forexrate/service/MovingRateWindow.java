@@ -0,0 +1,92 @@
+package com.challenge.forexrate.service;
+
+import com.challenge.forexrate.model.Trend;
+
+//average and trend are maintained incrementally, moving the window by one day is O(1) whatever its size
+class MovingRateWindow {
+
+    private final int[] epochDays;
+    private final double[] rates;
+    private int head;
+    private int size;
+
+    //compensated sum, keeps the rounding error of repeated additions and removals bounded
+    private double sum;
+    private double sumCompensation;
+
+    private int ascendingPairs;
+    private int descendingPairs;
+    private int constantPairs;
+
+    MovingRateWindow(int capacity) {
+        this.epochDays = new int[capacity];
+        this.rates = new double[capacity];
+    }
+
+    void add(int epochDay, double rate) {
+        if (size > 0) {
+            countPair(rates[index(size - 1)], rate, 1);
+        }
+        epochDays[index(size)] = epochDay;
+        rates[index(size)] = rate;
+        size++;
+        addToSum(rate);
+    }
+
+    void removeBefore(int epochDay) {
+        while (size > 0 && epochDays[head] < epochDay) {
+            double rate = rates[head];
+            head = index(1);
+            size--;
+            if (size > 0) {
+                countPair(rate, rates[head], -1);
+            }
+            addToSum(-rate);
+        }
+    }
+
+    double getAverageRate() {
+        return size == 0 ? 0 : (sum + sumCompensation) / size;
+    }
+
+    String getTrend() {
+        int pairs = size - 1;
+        if (pairs < 1) {
+            return null;
+        }
+        if (ascendingPairs == pairs) {
+            return Trend.ASCENDING.getTrendName();
+        }
+        if (descendingPairs == pairs) {
+            return Trend.DESCENDING.getTrendName();
+        }
+        if (constantPairs == pairs) {
+            return Trend.CONSTANT.getTrendName();
+        }
+        return Trend.UNDEFINED.getTrendName();
+    }
+
+    private int index(int offset) {
+        return (head + offset) % rates.length;
+    }
+
+    private void countPair(double current, double next, int delta) {
+        if (current < next) {
+            ascendingPairs += delta;
+        } else if (current > next) {
+            descendingPairs += delta;
+        } else {
+            constantPairs += delta;
+        }
+    }
+
+    private void addToSum(double value) {
+        double newSum = sum + value;
+        if (Math.abs(sum) >= Math.abs(value)) {
+            sumCompensation += (sum - newSum) + value;
+        } else {
+            sumCompensation += (value - newSum) + sum;
+        }
+        sum = newSum;
+    }
+}
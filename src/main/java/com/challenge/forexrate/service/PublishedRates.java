@@ -0,0 +1,45 @@
+package com.challenge.forexrate.service;
+
+import com.challenge.forexrate.exception.UnsupportedCurrencyException;
+import com.challenge.forexrate.model.RateSeries;
+
+import java.util.Collection;
+import java.util.function.IntPredicate;
+import java.util.function.IntToDoubleFunction;
+
+//What the rates published by the upstream say, shared by every store of fetched rates
+final class PublishedRates {
+
+    private PublishedRates() {
+    }
+
+    //Integer.MIN_VALUE when nothing is published
+    static int lastPublishedEpochDay(Collection<RateSeries> fetchedRates) {
+        int lastPublishedEpochDay = Integer.MIN_VALUE;
+        for (RateSeries rates : fetchedRates) {
+            lastPublishedEpochDay = Math.max(lastPublishedEpochDay, rates.getLastRateEpochDay());
+        }
+        return lastPublishedEpochDay;
+    }
+
+    //a date without quotation is only final once the upstream has published a later one
+    static boolean isFinalWithoutQuotation(int epochDay, int lastPublishedEpochDay) {
+        return epochDay < lastPublishedEpochDay;
+    }
+
+    //a range without any quotation says nothing about the currency, its reports are simply not found
+    static void checkQuoted(String currency, int fromDay, int toDay, IntPredicate hasQuotation, IntToDoubleFunction rate) {
+        boolean quotedRange = false;
+        for (int day = fromDay; day <= toDay; day++) {
+            if (hasQuotation.test(day)) {
+                if (!Double.isNaN(rate.applyAsDouble(day))) {
+                    return;
+                }
+                quotedRange = true;
+            }
+        }
+        if (quotedRange) {
+            throw new UnsupportedCurrencyException(String.format("Used currency '%s' is not supported", currency));
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.challenge.forexrate.service;
+
+import io.exchangeratesapi.api.client.ForeignExchangeRateService;
+import io.exchangeratesapi.api.client.model.CurrencyRateHistory;
+
+import java.util.concurrent.CompletableFuture;
+
+//selected with rates.provider, upstream or file, both answer history queries the way the remote API does
+public interface RateProvider {
+
+    CurrencyRateHistory getHistory(ForeignExchangeRateService.QueryParams queryParams);
+
+    CompletableFuture<CurrencyRateHistory> getHistoryAsync(ForeignExchangeRateService.QueryParams queryParams);
+}
@@ -0,0 +1,70 @@
+package com.challenge.forexrate.service;
+
+import com.challenge.forexrate.exception.InvalidWindowException;
+import com.challenge.forexrate.model.RateSeriesIndex;
+import com.challenge.forexrate.model.RateWindowStatistics;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+
+//the longest supported lookback is indexed once per pair and date, a window of n days covers the n days before the date
+@Service
+@RequiredArgsConstructor
+public class RateWindowService {
+
+    private final ExchangeRateHistoryService exchangeRateHistoryService;
+    private final AsyncCache<String, RateSeriesIndex> rateIndexCache;
+    private int maximumWindowDays;
+
+    public void validate(Collection<Integer> windows) {
+        for (Integer window : windows) {
+            if (window == null || window < 1 || window > maximumWindowDays) {
+                throw new InvalidWindowException(String.format("Window should be between 1 and %d days", maximumWindowDays));
+            }
+        }
+    }
+
+    public CompletableFuture<Map<String, Map<Integer, RateWindowStatistics>>> getStatisticsAsync(LocalDate date, String baseCurrency,
+                                                                                                 List<String> targetCurrencies, Collection<Integer> windows) {
+        Map<String, String> targetsById = new LinkedHashMap<>();
+        targetCurrencies.forEach(targetCurrency -> targetsById.put(baseCurrency + "_" + targetCurrency + "_" + date, targetCurrency));
+
+        return rateIndexCache.getAll(targetsById.keySet(), (missingIds, executor) -> {
+            List<String> missingTargets = new ArrayList<>();
+            missingIds.forEach(id -> missingTargets.add(targetsById.get(id)));
+            return exchangeRateHistoryService.getRatesAsync(date.minusDays(maximumWindowDays), date, baseCurrency, missingTargets)
+                    .thenApply(ratesByTarget -> {
+                        Map<String, RateSeriesIndex> indexesById = new HashMap<>();
+                        missingIds.forEach(id -> indexesById.put(id, RateSeriesIndex.of(ratesByTarget.get(targetsById.get(id)))));
+                        return indexesById;
+                    });
+        }).thenApply(indexesById -> {
+            int epochDay = Math.toIntExact(date.toEpochDay());
+            Map<String, Map<Integer, RateWindowStatistics>> statisticsByTarget = new LinkedHashMap<>();
+            targetsById.forEach((id, targetCurrency) -> {
+                RateSeriesIndex index = indexesById.get(id);
+                Map<Integer, RateWindowStatistics> statisticsByWindow = new TreeMap<>();
+                windows.forEach(window -> statisticsByWindow.put(window, index.statistics(epochDay - window, epochDay)));
+                statisticsByTarget.put(targetCurrency, statisticsByWindow);
+            });
+            return statisticsByTarget;
+        });
+    }
+
+    @Autowired
+    void setMaximumWindowDays(@Value("${report.windows.maximum-days:365}") int maximumWindowDays) {
+        this.maximumWindowDays = maximumWindowDays;
+    }
+}
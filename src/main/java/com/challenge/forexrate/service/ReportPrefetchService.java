@@ -0,0 +1,103 @@
+package com.challenge.forexrate.service;
+
+import com.challenge.forexrate.model.ApiUsagePairCount;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+//also runs at startup, application runners complete before the application is ready
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ReportPrefetchService implements ApplicationRunner {
+
+    private final ExchangeRateService exchangeRateService;
+    private final ApiUsageStatisticsService apiUsageStatisticsService;
+    private List<String> configuredPairs;
+    private int topPairsLimit;
+    private Duration usageLookback;
+    private boolean onStartup;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (onStartup) {
+            prefetch();
+        }
+    }
+
+    //ECB reference rates are released around 16:00 CET on working days
+    @Scheduled(cron = "${report.prefetch.cron:0 15 16 * * MON-FRI}", zone = "${report.prefetch.zone:Europe/Berlin}")
+    public void prefetch() {
+        Map<String, Set<String>> targetsByBase;
+        try {
+            targetsByBase = findHotPairs();
+        } catch (RuntimeException e) {
+            log.warn("Could not find currency pairs to prefetch", e);
+            return;
+        }
+
+        targetsByBase.forEach((baseCurrency, targetCurrencies) -> {
+            try {
+                exchangeRateService.prefetch(baseCurrency, new ArrayList<>(targetCurrencies));
+            } catch (RuntimeException e) {
+                log.warn("Could not prefetch rates of {} to {}", baseCurrency, targetCurrencies, e);
+            }
+        });
+    }
+
+    private Map<String, Set<String>> findHotPairs() {
+        Map<String, Set<String>> targetsByBase = new LinkedHashMap<>();
+        for (String pair : configuredPairs) {
+            if (pair.trim().isEmpty()) {
+                continue;
+            }
+            String[] currencies = pair.trim().split("_");
+            if (currencies.length != 2) {
+                throw new IllegalArgumentException(String.format("Invalid currency pair '%s', expected BASE_TARGET", pair));
+            }
+            targetsByBase.computeIfAbsent(currencies[0], baseCurrency -> new LinkedHashSet<>()).add(currencies[1]);
+        }
+
+        if (topPairsLimit > 0) {
+            LocalDateTime now = LocalDateTime.now();
+            for (ApiUsagePairCount pairCount : apiUsageStatisticsService.findTopPairs(now.minus(usageLookback), now, topPairsLimit)) {
+                targetsByBase.computeIfAbsent(pairCount.getBaseCurrency(), baseCurrency -> new LinkedHashSet<>()).add(pairCount.getTargetCurrency());
+            }
+        }
+        return targetsByBase;
+    }
+
+    @Autowired
+    void setConfiguredPairs(@Value("${report.prefetch.pairs:}") List<String> configuredPairs) {
+        this.configuredPairs = configuredPairs;
+    }
+
+    @Autowired
+    void setTopPairsLimit(@Value("${report.prefetch.top-pairs:20}") int topPairsLimit) {
+        this.topPairsLimit = topPairsLimit;
+    }
+
+    @Autowired
+    void setUsageLookback(@Value("${report.prefetch.usage-lookback:7d}") Duration usageLookback) {
+        this.usageLookback = usageLookback;
+    }
+
+    @Autowired
+    void setOnStartup(@Value("${report.prefetch.on-startup:true}") boolean onStartup) {
+        this.onStartup = onStartup;
+    }
+}
@@ -0,0 +1,141 @@
+package com.challenge.forexrate.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.io.Closeable;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+//fires an identical call once a call is slower than the given latency percentile, the first success answers
+//hedges spend a budget earned by every call, so they stop when the upstream slows down as a whole
+public class UpstreamHedger implements Closeable {
+
+    public static final String HEDGES_FIRED_COUNTER_NAME = "exchangeratesapi.client.hedges.fired";
+    public static final String HEDGES_WON_COUNTER_NAME = "exchangeratesapi.client.hedges.won";
+    public static final String HEDGES_DENIED_COUNTER_NAME = "exchangeratesapi.client.hedges.denied";
+
+    private final double percentile;
+    private final long minimumDelayNanos;
+    private final int minimumSamples;
+    private final double budgetRatio;
+    private final double maximumBurst;
+    private final long[] latencies;
+    private final int refreshInterval;
+    private final ScheduledExecutorService scheduler;
+    private final Counter firedCounter;
+    private final Counter wonCounter;
+    private final Counter deniedCounter;
+    private long recordedLatencies;
+    private long hedgeDelayNanos = -1;
+    private double budget;
+
+    public UpstreamHedger(double percentile, Duration minimumDelay, int windowSize, int minimumSamples, double budgetRatio, double maximumBurst,
+                          MeterRegistry meterRegistry) {
+        this.percentile = percentile;
+        this.minimumDelayNanos = minimumDelay.toNanos();
+        this.minimumSamples = Math.max(1, Math.min(minimumSamples, windowSize));
+        this.budgetRatio = budgetRatio;
+        this.maximumBurst = maximumBurst;
+        this.latencies = new long[windowSize];
+        this.refreshInterval = Math.max(1, windowSize / 16);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "upstream-hedger");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.firedCounter = meterRegistry.counter(HEDGES_FIRED_COUNTER_NAME);
+        this.wonCounter = meterRegistry.counter(HEDGES_WON_COUNTER_NAME);
+        this.deniedCounter = meterRegistry.counter(HEDGES_DENIED_COUNTER_NAME);
+    }
+
+    public <T> CompletableFuture<T> call(Supplier<CompletableFuture<T>> call) {
+        long delayNanos = earnBudget();
+        CompletableFuture<T> result = new CompletableFuture<>();
+        AtomicInteger pendingAttempts = new AtomicInteger(1);
+        attempt(call, result, pendingAttempts, false);
+        if (delayNanos >= 0 && !result.isDone()) {
+            ScheduledFuture<?> hedge = scheduler.schedule(() -> {
+                if (result.isDone()) {
+                    return;
+                }
+                if (!spendBudget()) {
+                    deniedCounter.increment();
+                    return;
+                }
+                //the primary may have failed since the check, completing the result with no attempt left pending
+                if (pendingAttempts.getAndUpdate(attempts -> attempts == 0 ? 0 : attempts + 1) == 0) {
+                    refundBudget();
+                    return;
+                }
+                firedCounter.increment();
+                attempt(call, result, pendingAttempts, true);
+            }, delayNanos, TimeUnit.NANOSECONDS);
+            result.whenComplete((value, throwable) -> hedge.cancel(false));
+        }
+        return result;
+    }
+
+    private <T> CompletableFuture<T> attempt(Supplier<CompletableFuture<T>> call, CompletableFuture<T> result, AtomicInteger pendingAttempts, boolean hedge) {
+        long start = System.nanoTime();
+        CompletableFuture<T> attempt;
+        try {
+            attempt = call.get();
+        } catch (RuntimeException e) {
+            attempt = new CompletableFuture<>();
+            attempt.completeExceptionally(e);
+        }
+        return attempt.whenComplete((value, throwable) -> {
+            if (throwable == null) {
+                recordLatency(System.nanoTime() - start);
+                if (result.complete(value) && hedge) {
+                    wonCounter.increment();
+                }
+            } else if (pendingAttempts.decrementAndGet() == 0) {
+                result.completeExceptionally(throwable);
+            }
+        });
+    }
+
+    //returns the current hedge delay, -1 while too few latencies are recorded
+    synchronized long earnBudget() {
+        budget = Math.min(maximumBurst, budget + budgetRatio);
+        return hedgeDelayNanos;
+    }
+
+    synchronized boolean spendBudget() {
+        if (budget < 1) {
+            return false;
+        }
+        budget--;
+        return true;
+    }
+
+    synchronized void refundBudget() {
+        budget = Math.min(maximumBurst, budget + 1);
+    }
+
+    //the delay is only refreshed every few latencies, sorting the window on every call is not worth it
+    synchronized void recordLatency(long latencyNanos) {
+        latencies[(int) (recordedLatencies % latencies.length)] = latencyNanos;
+        recordedLatencies++;
+        if (recordedLatencies >= minimumSamples && (recordedLatencies - minimumSamples) % refreshInterval == 0) {
+            long[] window = Arrays.copyOf(latencies, (int) Math.min(recordedLatencies, latencies.length));
+            Arrays.sort(window);
+            int index = (int) Math.ceil(percentile / 100 * window.length) - 1;
+            hedgeDelayNanos = Math.max(minimumDelayNanos, window[Math.max(0, Math.min(index, window.length - 1))]);
+        }
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+}
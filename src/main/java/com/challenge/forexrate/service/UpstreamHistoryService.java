@@ -0,0 +1,108 @@
+package com.challenge.forexrate.service;
+
+import com.challenge.forexrate.exception.UpstreamUnavailableException;
+import feign.FeignException;
+import io.exchangeratesapi.api.client.AsyncForeignExchangeRateService;
+import io.exchangeratesapi.api.client.ForeignExchangeRateService;
+import io.exchangeratesapi.api.client.model.CurrencyRateHistory;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+//blocking calls are never hedged, a hedge would need a thread of its own
+@Service
+@ConditionalOnProperty(name = "rates.provider", havingValue = "upstream", matchIfMissing = true)
+@RequiredArgsConstructor
+public class UpstreamHistoryService implements RateProvider {
+
+    public static final String UPSTREAM_TIMER_NAME = "exchangeratesapi.client.requests";
+
+    private static final String UPSTREAM_UNAVAILABLE_MESSAGE = "Exchange rates provider is temporarily unavailable, please retry later";
+    private static final String OK_STATUS = "200";
+    private static final String IO_ERROR_STATUS = "IO_ERROR";
+
+    private final ForeignExchangeRateService foreignExchangeRateService;
+    private final AsyncForeignExchangeRateService asyncForeignExchangeRateService;
+    private final CircuitBreaker upstreamCircuitBreaker;
+    private final MeterRegistry meterRegistry;
+    private UpstreamHedger upstreamHedger;
+
+    @Override
+    public CurrencyRateHistory getHistory(ForeignExchangeRateService.QueryParams queryParams) {
+        try {
+            return upstreamCircuitBreaker.executeSupplier(() -> {
+                Timer.Sample sample = Timer.start(meterRegistry);
+                try {
+                    CurrencyRateHistory history = foreignExchangeRateService.getHistory(queryParams);
+                    stopUpstreamTimer(sample, "blocking", null);
+                    return history;
+                } catch (RuntimeException e) {
+                    stopUpstreamTimer(sample, "blocking", e);
+                    throw e;
+                }
+            });
+        } catch (CallNotPermittedException e) {
+            throw new UpstreamUnavailableException(UPSTREAM_UNAVAILABLE_MESSAGE);
+        }
+    }
+
+    @Override
+    public CompletableFuture<CurrencyRateHistory> getHistoryAsync(ForeignExchangeRateService.QueryParams queryParams) {
+        if (upstreamHedger != null) {
+            return upstreamHedger.call(() -> getUnhedgedHistoryAsync(queryParams));
+        }
+        return getUnhedgedHistoryAsync(queryParams);
+    }
+
+    private CompletableFuture<CurrencyRateHistory> getUnhedgedHistoryAsync(ForeignExchangeRateService.QueryParams queryParams) {
+        CompletableFuture<CurrencyRateHistory> history = new CompletableFuture<>();
+        upstreamCircuitBreaker.executeCompletionStage(() -> {
+            Timer.Sample sample = Timer.start(meterRegistry);
+            return asyncForeignExchangeRateService.getHistory(queryParams)
+                    .whenComplete((currencyRateHistory, throwable) -> stopUpstreamTimer(sample, "async", throwable));
+        })
+                .whenComplete((currencyRateHistory, throwable) -> {
+                    Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null ? throwable.getCause() : throwable;
+                    if (cause == null) {
+                        history.complete(currencyRateHistory);
+                    } else if (cause instanceof CallNotPermittedException) {
+                        history.completeExceptionally(new UpstreamUnavailableException(UPSTREAM_UNAVAILABLE_MESSAGE));
+                    } else {
+                        history.completeExceptionally(cause);
+                    }
+                });
+        return history;
+    }
+
+    @Autowired(required = false)
+    void setUpstreamHedger(UpstreamHedger upstreamHedger) {
+        this.upstreamHedger = upstreamHedger;
+    }
+
+    private void stopUpstreamTimer(Timer.Sample sample, String client, Throwable throwable) {
+        sample.stop(meterRegistry.timer(UPSTREAM_TIMER_NAME, "client", client, "status", status(throwable)));
+    }
+
+    private static String status(Throwable throwable) {
+        Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null ? throwable.getCause() : throwable;
+        if (cause == null) {
+            return OK_STATUS;
+        }
+        if (cause instanceof FeignException && ((FeignException) cause).status() > 0) {
+            return String.valueOf(((FeignException) cause).status());
+        }
+        if (cause instanceof WebClientResponseException) {
+            return String.valueOf(((WebClientResponseException) cause).getRawStatusCode());
+        }
+        return IO_ERROR_STATUS;
+    }
+}
@@ -0,0 +1,117 @@
+package io.exchangeratesapi.api.client;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+import io.exchangeratesapi.api.client.model.CurrencyRateHistory;
+import io.exchangeratesapi.api.client.model.CurrencyRateHistoryReader;
+import io.micrometer.core.instrument.Counter;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.util.retry.Retry;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+//each chunk of the body is parsed as it arrives and released, so the body is not bounded by the codec buffer
+public class AsyncForeignExchangeRateService {
+
+    private static final int TOO_MANY_REQUESTS = 429;
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final WebClient webClient;
+    private final Retry retry;
+
+    public AsyncForeignExchangeRateService(WebClient webClient, int maxAttempts, Duration initialBackoff, Duration maxBackoff, Counter retryCounter) {
+        this.webClient = webClient;
+        this.retry = Retry.backoff(maxAttempts - 1L, initialBackoff)
+                .maxBackoff(maxBackoff)
+                .jitter(1)
+                .filter(AsyncForeignExchangeRateService::isRetryable)
+                .doBeforeRetry(retrySignal -> retryCounter.increment())
+                .onRetryExhaustedThrow((retryBackoffSpec, retrySignal) -> retrySignal.failure());
+    }
+
+    public CompletableFuture<CurrencyRateHistory> getHistory(ForeignExchangeRateService.QueryParams params) {
+        return webClient.get()
+                .uri(uriBuilder -> uriBuilder
+                        .path("/history")
+                        .queryParam("start_at", params.getStart_at())
+                        .queryParam("end_at", params.getEnd_at())
+                        .queryParam("base", params.getBase())
+                        .queryParamIfPresent("symbols", Optional.ofNullable(params.getSymbols()))
+                        .build())
+                .retrieve()
+                .bodyToFlux(DataBuffer.class)
+                .reduceWith(() -> new HistoryFeed(params), HistoryFeed::feed)
+                .map(HistoryFeed::finish)
+                .retryWhen(retry)
+                .toFuture();
+    }
+
+    private static boolean isRetryable(Throwable throwable) {
+        if (throwable instanceof WebClientRequestException) {
+            return true;
+        }
+        if (throwable instanceof WebClientResponseException) {
+            int status = ((WebClientResponseException) throwable).getRawStatusCode();
+            return status >= 500 || status == TOO_MANY_REQUESTS;
+        }
+        return false;
+    }
+
+    private static class HistoryFeed {
+
+        private final JsonParser parser;
+        private final CurrencyRateHistoryReader reader;
+
+        HistoryFeed(ForeignExchangeRateService.QueryParams params) {
+            try {
+                this.parser = JSON_FACTORY.createNonBlockingByteArrayParser();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            this.reader = new CurrencyRateHistoryReader(params.getStart_at(), params.getEnd_at(), HistoryDecoder.parseSymbols(params.getSymbols()));
+        }
+
+        //releases the chunk once fed
+        HistoryFeed feed(DataBuffer chunk) {
+            try {
+                byte[] bytes = new byte[chunk.readableByteCount()];
+                chunk.read(bytes);
+                ((ByteArrayFeeder) parser.getNonBlockingInputFeeder()).feedInput(bytes, 0, bytes.length);
+                readAvailableTokens();
+                return this;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } finally {
+                DataBufferUtils.release(chunk);
+            }
+        }
+
+        CurrencyRateHistory finish() {
+            try {
+                ((ByteArrayFeeder) parser.getNonBlockingInputFeeder()).endOfInput();
+                readAvailableTokens();
+                parser.close();
+                return reader.build();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private void readAvailableTokens() throws IOException {
+            JsonToken token;
+            while ((token = parser.nextToken()) != null && token != JsonToken.NOT_AVAILABLE) {
+                reader.read(parser, token);
+            }
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package io.exchangeratesapi.api.client;
+
+import feign.Retryer;
+import feign.codec.Decoder;
+import feign.codec.ErrorDecoder;
+import feign.optionals.OptionalDecoder;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.http.HttpMessageConverters;
+import org.springframework.cloud.openfeign.support.ResponseEntityDecoder;
+import org.springframework.cloud.openfeign.support.SpringDecoder;
+import org.springframework.context.annotation.Bean;
+
+//not a @Configuration so it only applies to this client, values are plain numbers as the client context has no conversion service
+public class ForeignExchangeRateClientConfiguration {
+
+    public static final String RETRY_COUNTER_NAME = "exchangeratesapi.client.retries";
+
+    @Bean
+    public Retryer retryer(@Value("${exchangeratesapi.retry.max-attempts:3}") int maxAttempts,
+                           @Value("${exchangeratesapi.retry.initial-backoff-millis:100}") long initialBackoffMillis,
+                           @Value("${exchangeratesapi.retry.max-backoff-millis:1000}") long maxBackoffMillis,
+                           MeterRegistry meterRegistry) {
+        return new JitterRetryer(maxAttempts, initialBackoffMillis, maxBackoffMillis, meterRegistry.counter(RETRY_COUNTER_NAME));
+    }
+
+    @Bean
+    public Decoder feignDecoder(ObjectFactory<HttpMessageConverters> messageConverters) {
+        return new OptionalDecoder(new ResponseEntityDecoder(new HistoryDecoder(new SpringDecoder(messageConverters))));
+    }
+
+    @Bean
+    public ErrorDecoder errorDecoder() {
+        return new RetryableStatusErrorDecoder();
+    }
+}
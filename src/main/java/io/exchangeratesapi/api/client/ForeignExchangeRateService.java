@@ -1,6 +1,6 @@
 package io.exchangeratesapi.api.client;
 
-import io.exchangeratesapi.api.client.model.DateCurrencyMapping;
+import io.exchangeratesapi.api.client.model.CurrencyRateHistory;
 import lombok.Builder;
 import lombok.Data;
 import org.springframework.cloud.openfeign.FeignClient;
@@ -11,11 +11,12 @@ import java.time.LocalDate;
 
 @FeignClient(value = "foreignExchangeRateService",
         url = "${exchangeratesapi.url:https://api.exchangeratesapi.io}",
-        path = "history")
+        path = "history",
+        configuration = ForeignExchangeRateClientConfiguration.class)
 public interface ForeignExchangeRateService {
 
     @GetMapping
-    DateCurrencyMapping getHistory(@SpringQueryMap QueryParams params);
+    CurrencyRateHistory getHistory(@SpringQueryMap QueryParams params);
 
     @Data
     @Builder
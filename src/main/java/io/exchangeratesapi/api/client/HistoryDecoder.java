@@ -0,0 +1,63 @@
+package io.exchangeratesapi.api.client;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import feign.Response;
+import feign.codec.DecodeException;
+import feign.codec.Decoder;
+import io.exchangeratesapi.api.client.model.CurrencyRateHistory;
+import io.exchangeratesapi.api.client.model.CurrencyRateHistoryDeserializer;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.util.UriComponentsBuilder;
+import org.springframework.web.util.UriUtils;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+//the upstream may answer with more than was asked for, those values are skipped without being parsed
+public class HistoryDecoder implements Decoder {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final Decoder delegate;
+
+    public HistoryDecoder(Decoder delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public Object decode(Response response, Type type) throws IOException {
+        if (type != CurrencyRateHistory.class || response.body() == null) {
+            return delegate.decode(response, type);
+        }
+
+        MultiValueMap<String, String> queryParams = UriComponentsBuilder.fromUriString(response.request().url()).build().getQueryParams();
+        try (JsonParser parser = JSON_FACTORY.createParser(response.body().asInputStream())) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new DecodeException(response.status(), "History response is not a json object", response.request());
+            }
+            return CurrencyRateHistoryDeserializer.readHistory(parser,
+                    parseDate(queryParams.getFirst("start_at")),
+                    parseDate(queryParams.getFirst("end_at")),
+                    parseSymbols(queryParams.getFirst("symbols")));
+        }
+    }
+
+    private static LocalDate parseDate(String date) {
+        return date == null ? null : LocalDate.parse(date);
+    }
+
+    //null if every currency was requested
+    static Set<String> parseSymbols(String symbols) {
+        if (symbols == null || symbols.isEmpty()) {
+            return null;
+        }
+        return new HashSet<>(Arrays.asList(UriUtils.decode(symbols, StandardCharsets.UTF_8).split(",")));
+    }
+}
@@ -0,0 +1,56 @@
+package io.exchangeratesapi.api.client;
+
+import feign.RetryableException;
+import feign.Retryer;
+import io.micrometer.core.instrument.Counter;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+//full jitter, so clients that failed together do not retry together
+public class JitterRetryer implements Retryer {
+
+    private final int maxAttempts;
+    private final long initialBackoffMillis;
+    private final long maxBackoffMillis;
+    private final Counter retryCounter;
+    private int attempt = 1;
+
+    public JitterRetryer(int maxAttempts, long initialBackoffMillis, long maxBackoffMillis, Counter retryCounter) {
+        this.maxAttempts = maxAttempts;
+        this.initialBackoffMillis = initialBackoffMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+        this.retryCounter = retryCounter;
+    }
+
+    @Override
+    public void continueOrPropagate(RetryableException e) {
+        if (attempt++ >= maxAttempts) {
+            throw e;
+        }
+
+        long backoffMillis = ThreadLocalRandom.current().nextLong(backoffCeilingMillis(attempt - 1) + 1);
+        if (e.retryAfter() != null) {
+            long retryAfterMillis = e.retryAfter().getTime() - System.currentTimeMillis();
+            backoffMillis = Math.min(maxBackoffMillis, Math.max(backoffMillis, retryAfterMillis));
+        }
+
+        try {
+            Thread.sleep(backoffMillis);
+        } catch (InterruptedException interruptedException) {
+            Thread.currentThread().interrupt();
+            throw e;
+        }
+        retryCounter.increment();
+    }
+
+    private long backoffCeilingMillis(int retry) {
+        //initial * 2^(retry - 1), without overflowing on large attempt counts
+        int shift = Math.min(retry - 1, 30);
+        return Math.min(maxBackoffMillis, initialBackoffMillis << shift);
+    }
+
+    @Override
+    public Retryer clone() {
+        return new JitterRetryer(maxAttempts, initialBackoffMillis, maxBackoffMillis, retryCounter);
+    }
+}
@@ -0,0 +1,30 @@
+package io.exchangeratesapi.api.client;
+
+import feign.FeignException;
+import feign.Request;
+import feign.Response;
+import feign.RetryableException;
+import feign.codec.ErrorDecoder;
+
+//other errors are decoded as usual so their status and body stay available to the callers
+public class RetryableStatusErrorDecoder implements ErrorDecoder {
+
+    private static final int TOO_MANY_REQUESTS = 429;
+
+    private final ErrorDecoder delegate = new ErrorDecoder.Default();
+
+    @Override
+    public Exception decode(String methodKey, Response response) {
+        Exception exception = delegate.decode(methodKey, response);
+        if (exception instanceof RetryableException || !isRetryable(response)) {
+            return exception;
+        }
+        FeignException feignException = (FeignException) exception;
+        return new RetryableException(response.status(), feignException.getMessage(), response.request().httpMethod(), feignException, null, response.request());
+    }
+
+    private boolean isRetryable(Response response) {
+        return response.request().httpMethod() == Request.HttpMethod.GET
+                && (response.status() >= 500 || response.status() == TOO_MANY_REQUESTS);
+    }
+}
@@ -0,0 +1,19 @@
+package io.exchangeratesapi.api.client.model;
+
+import com.challenge.forexrate.model.RateSeries;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@JsonDeserialize(using = CurrencyRateHistoryDeserializer.class)
+public class CurrencyRateHistory {
+    private Map<String, RateSeries> rates;
+}
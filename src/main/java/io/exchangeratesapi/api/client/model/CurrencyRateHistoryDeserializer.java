@@ -0,0 +1,37 @@
+package io.exchangeratesapi.api.client.model;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.Set;
+
+//Reads the rates keyed by date then by currency straight into one RateSeries per currency, without building
+//the intermediate maps of the json tree
+public class CurrencyRateHistoryDeserializer extends StdDeserializer<CurrencyRateHistory> {
+
+    public CurrencyRateHistoryDeserializer() {
+        super(CurrencyRateHistory.class);
+    }
+
+    @Override
+    public CurrencyRateHistory deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+        if (!parser.isExpectedStartObjectToken()) {
+            return (CurrencyRateHistory) context.handleUnexpectedToken(CurrencyRateHistory.class, parser);
+        }
+        return readHistory(parser, null, null, null);
+    }
+
+    public static CurrencyRateHistory readHistory(JsonParser parser, LocalDate startDate, LocalDate endDate, Set<String> currencies) throws IOException {
+        CurrencyRateHistoryReader reader = new CurrencyRateHistoryReader(startDate, endDate, currencies);
+        JsonToken token = parser.currentToken();
+        while (token != null) {
+            reader.read(parser, token);
+            token = reader.isComplete() ? null : parser.nextToken();
+        }
+        return reader.build();
+    }
+}
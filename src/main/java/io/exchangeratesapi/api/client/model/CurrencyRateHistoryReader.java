@@ -0,0 +1,102 @@
+package io.exchangeratesapi.api.client.model;
+
+import com.challenge.forexrate.model.RateSeries;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+//Reads a history object one token at a time, so it can be fed by a blocking parser as well as by a non-blocking
+//one, as the chunks of the body arrive. Only the requested days and currencies are kept, the other values are
+//skipped without being converted to numbers.
+public class CurrencyRateHistoryReader {
+
+    private static final String RATES_FIELD = "rates";
+    private static final int ROOT_DEPTH = 1;
+    private static final int RATES_DEPTH = 2;
+    private static final int DAY_DEPTH = 3;
+
+    private final int startEpochDay;
+    private final int endEpochDay;
+    private final Set<String> currencies;
+    private final Map<String, RateSeries.Builder> seriesBuilders = new HashMap<>();
+    private int depth;
+    private int skippedDepth;
+    private boolean ratesField;
+    private int epochDay;
+    private boolean complete;
+
+    //a null bound or null currencies keeps everything on that side
+    public CurrencyRateHistoryReader(LocalDate startDate, LocalDate endDate, Set<String> currencies) {
+        this.startEpochDay = startDate == null ? Integer.MIN_VALUE : Math.toIntExact(startDate.toEpochDay());
+        this.endEpochDay = endDate == null ? Integer.MAX_VALUE : Math.toIntExact(endDate.toEpochDay());
+        this.currencies = currencies;
+    }
+
+    //called with every token of the parser, starting with the one opening the history object
+    public void read(JsonParser parser, JsonToken token) throws IOException {
+        if (complete) {
+            throw new IOException("Unexpected content after the history object");
+        }
+        if (skippedDepth > 0) {
+            skippedDepth += token.isStructStart() ? 1 : token.isStructEnd() ? -1 : 0;
+            return;
+        }
+        if (depth == 0) {
+            if (token != JsonToken.START_OBJECT) {
+                throw new IOException("History response is not a json object");
+            }
+            depth = ROOT_DEPTH;
+        } else if (token == JsonToken.END_OBJECT) {
+            depth--;
+            complete = depth == 0;
+        } else if (token == JsonToken.FIELD_NAME) {
+            readFieldName(parser.getCurrentName());
+        } else {
+            readValue(parser, token);
+        }
+    }
+
+    private void readFieldName(String name) {
+        if (depth == ROOT_DEPTH) {
+            ratesField = RATES_FIELD.equals(name);
+        } else if (depth == RATES_DEPTH) {
+            epochDay = RateSeries.parseEpochDay(name);
+        }
+    }
+
+    private void readValue(JsonParser parser, JsonToken token) throws IOException {
+        boolean keptObject = token == JsonToken.START_OBJECT
+                && (depth == ROOT_DEPTH && ratesField || depth == RATES_DEPTH && epochDay >= startEpochDay && epochDay <= endEpochDay);
+        if (keptObject) {
+            depth++;
+        } else if (token.isStructStart()) {
+            skippedDepth = 1;
+        } else if (depth == DAY_DEPTH && token.isNumeric()) {
+            String currency = parser.getCurrentName();
+            if (currencies == null || currencies.contains(currency)) {
+                seriesBuilders.computeIfAbsent(currency, key -> RateSeries.builder())
+                        .add(epochDay, parser.getDoubleValue());
+            }
+        }
+    }
+
+    public boolean isComplete() {
+        return complete;
+    }
+
+    public CurrencyRateHistory build() throws IOException {
+        if (!complete) {
+            throw new IOException("History response is truncated");
+        }
+        Map<String, RateSeries> rates = new HashMap<>();
+        seriesBuilders.forEach((currency, seriesBuilder) -> rates.put(currency, seriesBuilder.build()));
+        return CurrencyRateHistory.builder()
+                .rates(rates)
+                .build();
+    }
+}
@@ -0,0 +1,101 @@
+package com.challenge.forexrate.config;
+
+import com.challenge.forexrate.model.RateSeries;
+import com.github.tomakehurst.wiremock.client.WireMock;
+import io.exchangeratesapi.api.client.ForeignExchangeRateService;
+import io.exchangeratesapi.api.client.model.CurrencyRateHistory;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.cloud.contract.wiremock.AutoConfigureWireMock;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.annotation.Resource;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.okJson;
+import static com.github.tomakehurst.wiremock.client.WireMock.stubFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
+import static org.assertj.core.api.Assertions.assertThat;
+
+//the build targets Java 8, the mode itself is only available on a Java 21 runtime
+@EnabledIfSystemProperty(named = "java.specification.version", matches = "2[1-9]|[3-9]\\d")
+@AutoConfigureWireMock(port = 0)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@TestPropertySource(properties = {
+        "exchangeratesapi.url=http://localhost:${wiremock.server.port}",
+        "forexrate.virtual-threads.enabled=true"
+})
+class VirtualThreadConfigurationTest {
+
+    private static final String HISTORY_RESPONSE = "{\"rates\":{\"2020-02-05\":{\"BRL\":4.2287943391}},\"start_at\":\"2020-02-05\",\"base\":\"USD\",\"end_at\":\"2020-02-05\"}";
+
+    @Autowired
+    private TestRestTemplate testRestTemplate;
+
+    @Resource(name = TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME)
+    private AsyncTaskExecutor applicationTaskExecutor;
+
+    @Autowired
+    private ForeignExchangeRateService foreignExchangeRateService;
+
+    @Test
+    void shouldHandleRequestsOnVirtualThreads() {
+        //When
+        String threadKind = testRestTemplate.getForObject("/test/thread-kind", String.class);
+
+        //Then
+        assertThat(threadKind).isEqualTo("virtual");
+    }
+
+    @Test
+    void shouldCallUpstreamOnVirtualThreadOfApplicationTaskExecutor() throws Exception {
+        //Given
+        stubFor(WireMock.get(urlPathEqualTo("/history")).willReturn(okJson(HISTORY_RESPONSE)));
+        ForeignExchangeRateService.QueryParams queryParams = ForeignExchangeRateService.QueryParams.builder()
+                .base("USD")
+                .symbols("BRL")
+                .start_at(LocalDate.of(2020, 2, 5))
+                .end_at(LocalDate.of(2020, 2, 5))
+                .build();
+
+        //When
+        boolean[] virtual = new boolean[1];
+        CurrencyRateHistory history = applicationTaskExecutor.submit(() -> {
+            virtual[0] = VirtualThreads.isVirtual(Thread.currentThread());
+            return foreignExchangeRateService.getHistory(queryParams);
+        }).get(10, TimeUnit.SECONDS);
+
+        //Then
+        assertThat(virtual[0]).isTrue();
+        RateSeries brl = history.getRates().get("BRL");
+        assertThat(brl.get(LocalDate.of(2020, 2, 5))).isEqualTo(4.2287943391);
+    }
+
+    @TestConfiguration
+    static class ThreadKindConfiguration {
+
+        @Bean
+        ThreadKindController threadKindController() {
+            return new ThreadKindController();
+        }
+    }
+
+    @RestController
+    static class ThreadKindController {
+
+        @GetMapping("/test/thread-kind")
+        String getThreadKind() {
+            return VirtualThreads.isVirtual(Thread.currentThread()) ? "virtual" : "platform";
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.challenge.forexrate.config;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class VirtualThreadsTest {
+
+    @Test
+    void shouldRunTasksOnNamedVirtualThreads() throws Exception {
+        //Given
+        assumeTrue(VirtualThreads.isSupported(), "Runtime without virtual threads");
+        ExecutorService executor = VirtualThreads.newThreadPerTaskExecutor("virtual-");
+
+        //When
+        Thread actualThread;
+        try {
+            actualThread = executor.submit(Thread::currentThread).get(10, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdown();
+        }
+
+        //Then
+        assertThat(VirtualThreads.isVirtual(actualThread)).isTrue();
+        assertThat(actualThread.getName()).isEqualTo("virtual-0");
+    }
+
+    @Test
+    void shouldFailToCreateExecutorWithoutVirtualThreads() {
+        //Given
+        assumeFalse(VirtualThreads.isSupported(), "Runtime with virtual threads");
+
+        //When
+        Throwable throwable = catchThrowable(() -> VirtualThreads.newThreadPerTaskExecutor("virtual-"));
+
+        //Then
+        assertThat(throwable).isInstanceOf(IllegalStateException.class)
+                .hasMessageStartingWith("Virtual threads need Java 21 or later");
+        assertThat(VirtualThreads.isVirtual(Thread.currentThread())).isFalse();
+    }
+}
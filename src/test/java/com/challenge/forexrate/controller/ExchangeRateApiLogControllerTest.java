@@ -1,6 +1,9 @@
 package com.challenge.forexrate.controller;
 
 import com.challenge.forexrate.entity.ApiUsageLog;
+import com.challenge.forexrate.service.ApiUsageLogBatchWriter;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
 import com.github.tomakehurst.wiremock.client.WireMock;
 import org.hamcrest.core.Is;
 import org.junit.jupiter.api.Test;
@@ -8,6 +11,8 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.cloud.contract.wiremock.AutoConfigureWireMock;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
@@ -20,10 +25,16 @@ import static com.github.tomakehurst.wiremock.client.WireMock.equalTo;
 import static com.github.tomakehurst.wiremock.client.WireMock.okJson;
 import static com.github.tomakehurst.wiremock.client.WireMock.stubFor;
 import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
+import static org.hamcrest.Matchers.containsString;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.hasItem;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @AutoConfigureMockMvc
@@ -34,6 +45,9 @@ class ExchangeRateApiLogControllerTest {
     @Autowired
     private MockMvc mockMvc;
 
+    @Autowired
+    private ApiUsageLogBatchWriter apiUsageLogBatchWriter;
+
     @Test
     void shouldReturnLogsForDailyUsageReport() throws Exception {
         //Given
@@ -47,12 +61,18 @@ class ExchangeRateApiLogControllerTest {
                 .willReturn(okJson("{\"rates\":{\"2020-02-03\":{\"BRL\":4.2626061811},\"2020-02-05\":{\"BRL\":4.2287943391},\"2020-01-31\":{\"BRL\":4.2668295331},\"2020-01-30\":{\"BRL\":4.2466225406},\"2020-02-04\":{\"BRL\":4.2273714699}},\"start_at\":\"2020-01-30\",\"base\":\"USD\",\"end_at\":\"2020-02-05\"}")));
 
         //When
-        this.mockMvc.perform(get("/api/exchange-rate/2020-02-05/USD/BRL"))
+        MvcResult mvcResult = this.mockMvc.perform(get("/api/exchange-rate/2020-02-05/USD/BRL"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        this.mockMvc.perform(asyncDispatch(mvcResult))
                 .andDo(print())
 
                 //Then
                 .andExpect(status().isOk());
 
+        apiUsageLogBatchWriter.flush();
+
         //When
         this.mockMvc.perform(get("/api/exchange-rate/history/daily/{date}", today.format(DateTimeFormatter.ofPattern("yyyy/MM/dd"))))
                 .andDo(print())
@@ -91,12 +111,18 @@ class ExchangeRateApiLogControllerTest {
                 .willReturn(okJson("{\"rates\":{\"2020-02-03\":{\"BRL\":4.2626061811},\"2020-02-05\":{\"BRL\":4.2287943391},\"2020-01-31\":{\"BRL\":4.2668295331},\"2020-01-30\":{\"BRL\":4.2466225406},\"2020-02-04\":{\"BRL\":4.2273714699}},\"start_at\":\"2020-01-30\",\"base\":\"USD\",\"end_at\":\"2020-02-05\"}")));
 
         //When
-        this.mockMvc.perform(get("/api/exchange-rate/2020-02-05/USD/BRL"))
+        MvcResult mvcResult = this.mockMvc.perform(get("/api/exchange-rate/2020-02-05/USD/BRL"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        this.mockMvc.perform(asyncDispatch(mvcResult))
                 .andDo(print())
 
                 //Then
                 .andExpect(status().isOk());
 
+        apiUsageLogBatchWriter.flush();
+
         //When
         this.mockMvc.perform(get("/api/exchange-rate/history/monthly/{date}", today.format(DateTimeFormatter.ofPattern("yyyy/MM"))))
                 .andDo(print())
@@ -108,6 +134,171 @@ class ExchangeRateApiLogControllerTest {
                 .andExpect(jsonPath("data[0].attributes.targetCurrency", Is.is("BRL")));
     }
 
+    @Test
+    void shouldReturnUsageSummariesFromRollups() throws Exception {
+        //Given
+        LocalDate today = LocalDate.now();
+
+        stubFor(WireMock.get(urlPathEqualTo("/history"))
+                .withQueryParam("start_at", equalTo("2020-01-29"))
+                .withQueryParam("end_at", equalTo("2020-02-05"))
+                .withQueryParam("base", equalTo("USD"))
+                .withQueryParam("symbols", equalTo("BRL"))
+                .willReturn(okJson("{\"rates\":{\"2020-02-03\":{\"BRL\":4.2626061811},\"2020-02-05\":{\"BRL\":4.2287943391},\"2020-01-31\":{\"BRL\":4.2668295331},\"2020-01-30\":{\"BRL\":4.2466225406},\"2020-02-04\":{\"BRL\":4.2273714699}},\"start_at\":\"2020-01-30\",\"base\":\"USD\",\"end_at\":\"2020-02-05\"}")));
+
+        this.mockMvc.perform(asyncDispatch(this.mockMvc.perform(get("/api/exchange-rate/2020-02-05/USD/BRL")).andReturn()))
+                .andExpect(status().isOk());
+
+        apiUsageLogBatchWriter.flush();
+
+        //When
+        this.mockMvc.perform(get("/api/exchange-rate/history/summary/daily/{date}", today.format(DateTimeFormatter.ofPattern("yyyy/MM"))))
+                .andDo(print())
+
+                //Then
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("data[*].id", hasItem(today.atStartOfDay().toString())));
+
+        //When
+        this.mockMvc.perform(get("/api/exchange-rate/history/summary/top-pairs/{date}", today.format(DateTimeFormatter.ofPattern("yyyy/MM"))))
+                .andDo(print())
+
+                //Then
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("data[*].id", hasItem("USD_BRL")));
+    }
+
+    @Test
+    void shouldReturnLinkToNextPageOfDailyUsageReport() throws Exception {
+        //Given
+        LocalDate today = LocalDate.now();
+
+        stubFor(WireMock.get(urlPathEqualTo("/history"))
+                .withQueryParam("start_at", equalTo("2020-01-29"))
+                .withQueryParam("end_at", equalTo("2020-02-05"))
+                .withQueryParam("base", equalTo("USD"))
+                .withQueryParam("symbols", equalTo("BRL"))
+                .willReturn(okJson("{\"rates\":{\"2020-02-03\":{\"BRL\":4.2626061811},\"2020-02-05\":{\"BRL\":4.2287943391},\"2020-01-31\":{\"BRL\":4.2668295331},\"2020-01-30\":{\"BRL\":4.2466225406},\"2020-02-04\":{\"BRL\":4.2273714699}},\"start_at\":\"2020-01-30\",\"base\":\"USD\",\"end_at\":\"2020-02-05\"}")));
+
+        this.mockMvc.perform(asyncDispatch(this.mockMvc.perform(get("/api/exchange-rate/2020-02-05/USD/BRL")).andReturn()))
+                .andExpect(status().isOk());
+        this.mockMvc.perform(asyncDispatch(this.mockMvc.perform(get("/api/exchange-rate/2020-02-05/USD/BRL")).andReturn()))
+                .andExpect(status().isOk());
+
+        apiUsageLogBatchWriter.flush();
+
+        //When
+        this.mockMvc.perform(get("/api/exchange-rate/history/daily/{date}", today.format(DateTimeFormatter.ofPattern("yyyy/MM/dd")))
+                .param("page[size]", "1"))
+                .andDo(print())
+
+                //Then
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("data.length()", Is.is(1)))
+                .andExpect(jsonPath("links.next", containsString("page%5Bafter%5D=")));
+    }
+
+    @Test
+    void shouldReturnPageOfDailyUsageReportAsCbor() throws Exception {
+        //Given
+        LocalDate today = LocalDate.now();
+
+        stubFor(WireMock.get(urlPathEqualTo("/history"))
+                .withQueryParam("start_at", equalTo("2020-01-29"))
+                .withQueryParam("end_at", equalTo("2020-02-05"))
+                .withQueryParam("base", equalTo("USD"))
+                .withQueryParam("symbols", equalTo("BRL"))
+                .willReturn(okJson("{\"rates\":{\"2020-02-03\":{\"BRL\":4.2626061811},\"2020-02-05\":{\"BRL\":4.2287943391},\"2020-01-31\":{\"BRL\":4.2668295331},\"2020-01-30\":{\"BRL\":4.2466225406},\"2020-02-04\":{\"BRL\":4.2273714699}},\"start_at\":\"2020-01-30\",\"base\":\"USD\",\"end_at\":\"2020-02-05\"}")));
+
+        this.mockMvc.perform(asyncDispatch(this.mockMvc.perform(get("/api/exchange-rate/2020-02-05/USD/BRL")).andReturn()))
+                .andExpect(status().isOk());
+        this.mockMvc.perform(asyncDispatch(this.mockMvc.perform(get("/api/exchange-rate/2020-02-05/USD/BRL")).andReturn()))
+                .andExpect(status().isOk());
+
+        apiUsageLogBatchWriter.flush();
+
+        //When
+        MvcResult mvcResult = this.mockMvc.perform(get("/api/exchange-rate/history/daily/{date}", today.format(DateTimeFormatter.ofPattern("yyyy/MM/dd")))
+                .param("page[size]", "1")
+                .accept(MediaType.APPLICATION_CBOR))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+                .andReturn();
+
+        //Then
+        JsonNode actualPage = new CBORMapper().readTree(mvcResult.getResponse().getContentAsByteArray());
+        assertThat(actualPage.get("data")).hasSize(1);
+        assertThat(actualPage.get("data").get(0).get("requestedDate").asText()).isEqualTo("2020-02-05");
+        assertThat(actualPage.get("next").asText()).contains("page%5Bafter%5D=");
+    }
+
+    @Test
+    void shouldCacheUsageOfClosedDaysPrivately() throws Exception {
+        //When
+        this.mockMvc.perform(get("/api/exchange-rate/history/daily/2020/02/05").accept(MediaType.APPLICATION_CBOR))
+                .andDo(print())
+
+                //Then
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "max-age=3600, private"))
+                .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT));
+
+        //When
+        this.mockMvc.perform(get("/api/exchange-rate/history/daily/{date}", LocalDate.now().format(DateTimeFormatter.ofPattern("yyyy/MM/dd")))
+                        .accept(MediaType.APPLICATION_NDJSON))
+                .andDo(print())
+
+                //Then
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache, private"));
+    }
+
+    @Test
+    void shouldReturnBadRequestOnInvalidPageCursor() throws Exception {
+        //Given
+        String expectedResponse = "{\"errors\":[{\"status\":\"400\",\"title\":\"Invalid page cursor\",\"detail\":\"Invalid page cursor 'unknown'\"}]}";
+
+        //When
+        this.mockMvc.perform(get("/api/exchange-rate/history/daily/2020/02/05").param("page[after]", "unknown"))
+                .andDo(print())
+
+                //Then
+                .andExpect(status().isBadRequest())
+                .andExpect(content().json(expectedResponse));
+    }
+
+    @Test
+    void shouldStreamLogsOfMonthlyUsageReport() throws Exception {
+        //Given
+        LocalDate today = LocalDate.now();
+
+        stubFor(WireMock.get(urlPathEqualTo("/history"))
+                .withQueryParam("start_at", equalTo("2020-01-29"))
+                .withQueryParam("end_at", equalTo("2020-02-05"))
+                .withQueryParam("base", equalTo("USD"))
+                .withQueryParam("symbols", equalTo("BRL"))
+                .willReturn(okJson("{\"rates\":{\"2020-02-03\":{\"BRL\":4.2626061811},\"2020-02-05\":{\"BRL\":4.2287943391},\"2020-01-31\":{\"BRL\":4.2668295331},\"2020-01-30\":{\"BRL\":4.2466225406},\"2020-02-04\":{\"BRL\":4.2273714699}},\"start_at\":\"2020-01-30\",\"base\":\"USD\",\"end_at\":\"2020-02-05\"}")));
+
+        this.mockMvc.perform(asyncDispatch(this.mockMvc.perform(get("/api/exchange-rate/2020-02-05/USD/BRL")).andReturn()))
+                .andExpect(status().isOk());
+
+        apiUsageLogBatchWriter.flush();
+
+        //When
+        MvcResult mvcResult = this.mockMvc.perform(get("/api/exchange-rate/history/monthly/{date}", today.format(DateTimeFormatter.ofPattern("yyyy/MM")))
+                .accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        this.mockMvc.perform(asyncDispatch(mvcResult))
+                .andDo(print())
+
+                //Then
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andExpect(content().string(containsString("\"requestedDate\":\"2020-02-05\",\"baseCurrency\":\"USD\",\"targetCurrency\":\"BRL\"")));
+    }
+
     @Test
     void shouldReturnBadRequestOnInvalidDateAtMonthlyHistory() throws Exception {
         //Given
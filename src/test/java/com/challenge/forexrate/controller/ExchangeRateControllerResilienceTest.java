@@ -0,0 +1,143 @@
+package com.challenge.forexrate.controller;
+
+import com.github.tomakehurst.wiremock.client.WireMock;
+import io.exchangeratesapi.api.client.ForeignExchangeRateClientConfiguration;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cloud.contract.wiremock.AutoConfigureWireMock;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.getRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.okJson;
+import static com.github.tomakehurst.wiremock.client.WireMock.serviceUnavailable;
+import static com.github.tomakehurst.wiremock.client.WireMock.stubFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.verify;
+import static com.github.tomakehurst.wiremock.stubbing.Scenario.STARTED;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@AutoConfigureMockMvc
+@AutoConfigureWireMock(port = 0)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@TestPropertySource(properties = {
+        "exchangeratesapi.url=http://localhost:${wiremock.server.port}",
+        "feign.client.config.foreignExchangeRateService.read-timeout=300",
+        "exchangeratesapi.retry.max-attempts=2",
+        "exchangeratesapi.retry.initial-backoff-millis=10",
+        "exchangeratesapi.retry.max-backoff-millis=20",
+        "exchangeratesapi.circuit-breaker.sliding-window-size=2",
+        "exchangeratesapi.circuit-breaker.minimum-number-of-calls=2"
+})
+class ExchangeRateControllerResilienceTest {
+
+    private static final String HISTORY_RESPONSE = "{\"rates\":{\"2020-02-03\":{\"BRL\":4.2626061811},\"2020-02-05\":{\"BRL\":4.2287943391},\"2020-01-31\":{\"BRL\":4.2668295331},\"2020-01-30\":{\"BRL\":4.2466225406},\"2020-02-04\":{\"BRL\":4.2273714699}},\"start_at\":\"2020-01-30\",\"base\":\"USD\",\"end_at\":\"2020-02-05\"}";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private CircuitBreaker upstreamCircuitBreaker;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        WireMock.reset();
+        upstreamCircuitBreaker.reset();
+    }
+
+    @Test
+    void shouldRetryTransientUpstreamOutage() throws Exception {
+        //Given
+        double retriesBefore = meterRegistry.get(ForeignExchangeRateClientConfiguration.RETRY_COUNTER_NAME).counter().count();
+
+        stubFor(WireMock.get(urlPathEqualTo("/history"))
+                .inScenario("transient outage")
+                .whenScenarioStateIs(STARTED)
+                .willReturn(serviceUnavailable())
+                .willSetStateTo("recovered"));
+        stubFor(WireMock.get(urlPathEqualTo("/history"))
+                .inScenario("transient outage")
+                .whenScenarioStateIs("recovered")
+                .willReturn(okJson(HISTORY_RESPONSE)));
+
+        //When
+        MvcResult mvcResult = this.mockMvc.perform(get("/api/exchange-rate/2020-02-05/USD/BRL"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        this.mockMvc.perform(asyncDispatch(mvcResult))
+                .andDo(print())
+
+                //Then
+                .andExpect(status().isOk());
+
+        verify(2, getRequestedFor(urlPathEqualTo("/history")));
+        assertThat(meterRegistry.get(ForeignExchangeRateClientConfiguration.RETRY_COUNTER_NAME).counter().count()).isEqualTo(retriesBefore + 1);
+    }
+
+    @Test
+    void shouldGiveUpOnSlowUpstreamAfterReadTimeout() throws Exception {
+        //Given
+        stubFor(WireMock.get(urlPathEqualTo("/history"))
+                .willReturn(okJson(HISTORY_RESPONSE).withFixedDelay(1000)));
+
+        //When
+        MvcResult mvcResult = this.mockMvc.perform(get("/api/exchange-rate/2020-03-05/USD/BRL"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        this.mockMvc.perform(asyncDispatch(mvcResult))
+                .andDo(print())
+
+                //Then
+                .andExpect(status().isInternalServerError());
+
+        verify(2, getRequestedFor(urlPathEqualTo("/history")));
+    }
+
+    @Test
+    void shouldFailFastWhileCircuitBreakerIsOpen() throws Exception {
+        //Given
+        String expectedResponse = "{\"errors\":[{\"status\":\"503\",\"title\":\"Upstream unavailable\",\"detail\":\"Exchange rates provider is temporarily unavailable, please retry later\"}]}";
+
+        stubFor(WireMock.get(urlPathEqualTo("/history"))
+                .willReturn(aResponse().withStatus(503)));
+
+        this.mockMvc.perform(asyncDispatch(this.mockMvc.perform(get("/api/exchange-rate/2020-04-06/USD/BRL")).andReturn()))
+                .andExpect(status().isInternalServerError());
+        this.mockMvc.perform(asyncDispatch(this.mockMvc.perform(get("/api/exchange-rate/2020-04-07/USD/BRL")).andReturn()))
+                .andExpect(status().isInternalServerError());
+
+        //When
+        MvcResult mvcResult = this.mockMvc.perform(get("/api/exchange-rate/2020-04-08/USD/BRL"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        this.mockMvc.perform(asyncDispatch(mvcResult))
+                .andDo(print())
+
+                //Then
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(content().json(expectedResponse));
+
+        verify(4, getRequestedFor(urlPathEqualTo("/history")));
+        assertThat(upstreamCircuitBreaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(meterRegistry.get("resilience4j.circuitbreaker.state").tag("state", "open").gauge().value()).isEqualTo(1);
+    }
+}
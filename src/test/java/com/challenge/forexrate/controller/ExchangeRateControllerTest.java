@@ -2,15 +2,27 @@ package com.challenge.forexrate.controller;
 
 import com.challenge.forexrate.entity.ApiUsageLog;
 import com.challenge.forexrate.repository.ApiUsageLogRepository;
+import com.challenge.forexrate.service.ApiUsageLogBatchWriter;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
 import com.github.tomakehurst.wiremock.client.WireMock;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.junit.jupiter.api.Test;
+import org.skyscreamer.jsonassert.JSONAssert;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.metrics.AutoConfigureMetrics;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.cloud.contract.wiremock.AutoConfigureWireMock;
 import org.springframework.test.context.TestPropertySource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.util.DigestUtils;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
@@ -22,11 +34,18 @@ import static com.github.tomakehurst.wiremock.client.WireMock.okJson;
 import static com.github.tomakehurst.wiremock.client.WireMock.stubFor;
 import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.not;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
+@AutoConfigureMetrics
 @AutoConfigureMockMvc
 @AutoConfigureWireMock(port = 0)
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
@@ -39,6 +58,15 @@ class ExchangeRateControllerTest {
     @Autowired
     private ApiUsageLogRepository apiUsageLogRepository;
 
+    @Autowired
+    private ApiUsageLogBatchWriter apiUsageLogBatchWriter;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private ExchangeRateController exchangeRateController;
+
     @Test
     void shouldReturnReport() throws Exception {
         //Given
@@ -58,13 +86,18 @@ class ExchangeRateControllerTest {
                 .willReturn(okJson("{\"rates\":{\"2020-02-03\":{\"BRL\":4.2626061811},\"2020-02-05\":{\"BRL\":4.2287943391},\"2020-01-31\":{\"BRL\":4.2668295331},\"2020-01-30\":{\"BRL\":4.2466225406},\"2020-02-04\":{\"BRL\":4.2273714699}},\"start_at\":\"2020-01-30\",\"base\":\"USD\",\"end_at\":\"2020-02-05\"}")));
 
         //When
-        this.mockMvc.perform(get("/api/exchange-rate/2020-02-05/USD/BRL"))
+        MvcResult mvcResult = this.mockMvc.perform(get("/api/exchange-rate/2020-02-05/USD/BRL"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        this.mockMvc.perform(asyncDispatch(mvcResult))
                 .andDo(print())
 
                 //Then
                 .andExpect(status().isOk())
                 .andExpect(content().json(expectedResponse));
 
+        apiUsageLogBatchWriter.flush();
         LocalDate today = LocalDate.now();
         LocalDateTime startOfToday = LocalDateTime.of(today, LocalTime.of(0, 0));
         LocalDateTime endOfToday = LocalDateTime.of(today, LocalTime.of(23, 59, 59, 999999));
@@ -74,6 +107,108 @@ class ExchangeRateControllerTest {
 
     }
 
+    @Test
+    void shouldReturnReportsOfSeveralTargets() throws Exception {
+        //Given
+        String expectedResponse = "{\"data\":[" +
+                "{\"id\":\"USD_GBP_2019-06-14\",\"type\":\"exchangeratereports\",\"attributes\":{\"rate\":0.79,\"averageRate\":0.78,\"trend\":\"constant\"}}," +
+                "{\"id\":\"USD_JPY_2019-06-14\",\"type\":\"exchangeratereports\",\"attributes\":{\"rate\":108.5,\"averageRate\":108.5,\"trend\":\"descending\"}}]}";
+
+        stubFor(WireMock.get(urlPathEqualTo("/history"))
+                .withQueryParam("start_at", equalTo("2019-06-07"))
+                .withQueryParam("end_at", equalTo("2019-06-14"))
+                .withQueryParam("base", equalTo("USD"))
+                .withQueryParam("symbols", equalTo("GBP,JPY"))
+                .willReturn(okJson("{\"rates\":{\"2019-06-14\":{\"GBP\":0.79,\"JPY\":108.5},\"2019-06-13\":{\"GBP\":0.78,\"JPY\":108.4},\"2019-06-12\":{\"GBP\":0.78,\"JPY\":108.6}},\"start_at\":\"2019-06-07\",\"base\":\"USD\",\"end_at\":\"2019-06-14\"}")));
+
+        //When
+        MvcResult mvcResult = this.mockMvc.perform(get("/api/exchange-rate/2019-06-14/USD").param("targets", "GBP,JPY"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        this.mockMvc.perform(asyncDispatch(mvcResult))
+                .andDo(print())
+
+                //Then
+                .andExpect(status().isOk())
+                .andExpect(content().json(expectedResponse));
+    }
+
+    @Test
+    void shouldStreamReportsOfDateRange() throws Exception {
+        //Given
+        String expectedResponse = "{\"id\":\"USD_CAD_2018-03-01\",\"rate\":1.5,\"averageRate\":1.375,\"trend\":\"ascending\"}\n" +
+                "{\"id\":\"USD_CAD_2018-03-02\",\"rate\":1.625,\"averageRate\":1.4166666666666667,\"trend\":\"undefined\"}";
+
+        stubFor(WireMock.get(urlPathEqualTo("/history"))
+                .withQueryParam("start_at", equalTo("2018-02-22"))
+                .withQueryParam("end_at", equalTo("2018-03-02"))
+                .withQueryParam("base", equalTo("USD"))
+                .withQueryParam("symbols", equalTo("CAD"))
+                .willReturn(okJson("{\"rates\":{\"2018-02-27\":{\"CAD\":1.25},\"2018-02-28\":{\"CAD\":1.5},\"2018-03-01\":{\"CAD\":1.5},\"2018-03-02\":{\"CAD\":1.625}},\"start_at\":\"2018-02-22\",\"base\":\"USD\",\"end_at\":\"2018-03-02\"}")));
+
+        //When
+        MvcResult mvcResult = this.mockMvc.perform(get("/api/exchange-rate/2018-03-01/2018-03-02/USD/CAD").accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        this.mockMvc.perform(asyncDispatch(mvcResult))
+                .andDo(print())
+
+                //Then
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andExpect(content().string(expectedResponse));
+    }
+
+    @Test
+    void shouldStreamReportsOfBulkQueriesInOrder() throws Exception {
+        //Given
+        String expectedReport = "{\"id\":\"EUR_CAD_2017-03-02\",\"rate\":1.4,\"averageRate\":1.375,\"trend\":\"ascending\"}";
+        String expectedError = "{\"errors\":[{\"status\":\"400\",\"title\":\"Invalid date\",\"detail\":\"Text '2017-02-30' could not be parsed: Invalid date 'FEBRUARY 30'\"}]}";
+
+        ApiUsageLog expectedLogs = ApiUsageLog.builder()
+                .baseCurrency("EUR")
+                .targetCurrency("CAD")
+                .requestedDate(LocalDate.of(2017, 3, 2))
+                .build();
+
+        stubFor(WireMock.get(urlPathEqualTo("/history"))
+                .withQueryParam("start_at", equalTo("2017-02-23"))
+                .withQueryParam("end_at", equalTo("2017-03-02"))
+                .withQueryParam("base", equalTo("EUR"))
+                .withQueryParam("symbols", equalTo("CAD"))
+                .willReturn(okJson("{\"rates\":{\"2017-02-28\":{\"CAD\":1.35},\"2017-03-01\":{\"CAD\":1.4},\"2017-03-02\":{\"CAD\":1.4}},\"start_at\":\"2017-02-23\",\"base\":\"EUR\",\"end_at\":\"2017-03-02\"}")));
+
+        //When
+        MvcResult mvcResult = this.mockMvc.perform(post("/api/exchange-rate")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.APPLICATION_NDJSON)
+                        .content("[{\"date\":\"2017-03-02\",\"baseCurrency\":\"EUR\",\"targetCurrency\":\"CAD\"}," +
+                                "{\"date\":\"2017-02-30\",\"baseCurrency\":\"EUR\",\"targetCurrency\":\"CAD\"}]"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String actualResponse = this.mockMvc.perform(asyncDispatch(mvcResult))
+                .andDo(print())
+
+                //Then
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+
+        String[] actualLines = actualResponse.split("\n");
+        assertThat(actualLines).hasSize(2);
+        JSONAssert.assertEquals(expectedReport, actualLines[0], true);
+        JSONAssert.assertEquals(expectedError, actualLines[1], false);
+
+        apiUsageLogBatchWriter.flush();
+        List<ApiUsageLog> actualLogs = apiUsageLogRepository.findByRequestDateTimeBetween(LocalDate.now().atStartOfDay(), LocalDateTime.now());
+        assertThat(actualLogs).usingElementComparatorIgnoringFields("id", "requestDateTime").contains(expectedLogs);
+    }
+
     @Test
     void shouldReturnBadRequestOnInvalidDate() throws Exception {
         //Given
@@ -115,7 +250,11 @@ class ExchangeRateControllerTest {
                 .willReturn(okJson("{\"rates\":{\"2009-12-28\":{\"BRL\":1.735091982},\"2009-12-30\":{\"BRL\":1.7390152044},\"2009-12-31\":{\"BRL\":1.7432319867},\"2009-12-29\":{\"BRL\":1.7344973325}},\"start_at\":\"2009-12-25\",\"base\":\"USD\",\"end_at\":\"2010-01-01\"}")));
 
         //When
-        this.mockMvc.perform(get("/api/exchange-rate/2010-01-01/USD/BRL"))
+        MvcResult mvcResult = this.mockMvc.perform(get("/api/exchange-rate/2010-01-01/USD/BRL"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        this.mockMvc.perform(asyncDispatch(mvcResult))
                 .andDo(print())
 
                 //Then
@@ -138,7 +277,11 @@ class ExchangeRateControllerTest {
                         .withBody("{\"error\":\"Base 'USDA' is not supported.\"}")));
 
         //When
-        this.mockMvc.perform(get("/api/exchange-rate/2010-01-01/USDA/BRL"))
+        MvcResult mvcResult = this.mockMvc.perform(get("/api/exchange-rate/2010-01-01/USDA/BRL"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        this.mockMvc.perform(asyncDispatch(mvcResult))
                 .andDo(print())
 
                 //Then
@@ -161,7 +304,11 @@ class ExchangeRateControllerTest {
                         .withBody("{\"error\":\"Symbols 'BRLA' are invalid.\"}")));
 
         //When
-        this.mockMvc.perform(get("/api/exchange-rate/2010-01-01/USD/BRLA"))
+        MvcResult mvcResult = this.mockMvc.perform(get("/api/exchange-rate/2010-01-01/USD/BRLA"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        this.mockMvc.perform(asyncDispatch(mvcResult))
                 .andDo(print())
 
                 //Then
@@ -184,7 +331,11 @@ class ExchangeRateControllerTest {
                         .withBody("{\"error\":\"Unexpected error\"}")));
 
         //When
-        this.mockMvc.perform(get("/api/exchange-rate/2010-01-01/USD/BRLA"))
+        MvcResult mvcResult = this.mockMvc.perform(get("/api/exchange-rate/2010-01-01/USD/BRLA"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        this.mockMvc.perform(asyncDispatch(mvcResult))
                 .andDo(print())
 
                 //Then
@@ -192,4 +343,239 @@ class ExchangeRateControllerTest {
                 .andExpect(content().json(expectedResponse));
     }
 
-}
\ No newline at end of file
+
+    @Test
+    void shouldExposeReportLatencyHistogramsAndErrorCounts() throws Exception {
+        //Given
+        this.mockMvc.perform(get("/api/exchange-rate/1999-12-31/USD/BRL"))
+                .andExpect(status().isBadRequest());
+
+        //When
+        this.mockMvc.perform(get("/actuator/prometheus"))
+                .andDo(print())
+
+                //Then
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("api_errors_total{error=\"Date out of bounds\",status=\"400\",}")))
+                .andExpect(content().string(containsString("report_requests_seconds_bucket{exception=\"ExchangeRateDateOutOfBoundsException\"")))
+                .andExpect(content().string(containsString("report_phases_seconds_bucket{phase=\"validate\"")))
+                .andExpect(content().string(containsString("executor_queued_tasks{name=\"applicationTaskExecutor\",}")));
+    }
+
+    @Test
+    void shouldReturnReportAsCbor() throws Exception {
+        //Given
+        stubFor(WireMock.get(urlPathEqualTo("/history"))
+                .withQueryParam("start_at", equalTo("2020-01-29"))
+                .withQueryParam("end_at", equalTo("2020-02-05"))
+                .withQueryParam("base", equalTo("USD"))
+                .withQueryParam("symbols", equalTo("CAD"))
+                .willReturn(okJson("{\"rates\":{\"2020-02-03\":{\"CAD\":1.33},\"2020-02-05\":{\"CAD\":1.32},\"2020-02-04\":{\"CAD\":1.33}},\"start_at\":\"2020-01-29\",\"base\":\"USD\",\"end_at\":\"2020-02-05\"}")));
+
+        //When
+        MvcResult mvcResult = this.mockMvc.perform(get("/api/exchange-rate/2020-02-05/USD/CAD").accept(MediaType.APPLICATION_CBOR))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        MvcResult asyncResult = this.mockMvc.perform(asyncDispatch(mvcResult))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+                .andReturn();
+
+        //Then
+        JsonNode actualReport = new CBORMapper().readTree(asyncResult.getResponse().getContentAsByteArray());
+        assertThat(actualReport.get("id").asText()).isEqualTo("USD_CAD_2020-02-05");
+        assertThat(actualReport.get("rate").asDouble()).isEqualTo(1.32);
+        assertThat(actualReport.get("trend").asText()).isEqualTo("constant");
+        assertThat(actualReport.has("links")).isFalse();
+    }
+
+    @Test
+    void shouldAnswerConditionalRequestOfHistoricalReportWithoutComputingIt() throws Exception {
+        //Given
+        stubFor(WireMock.get(urlPathEqualTo("/history"))
+                .withQueryParam("start_at", equalTo("2016-04-27"))
+                .withQueryParam("end_at", equalTo("2016-05-04"))
+                .withQueryParam("base", equalTo("USD"))
+                .withQueryParam("symbols", equalTo("CAD"))
+                .willReturn(okJson("{\"rates\":{\"2016-05-02\":{\"CAD\":1.25},\"2016-05-03\":{\"CAD\":1.26},\"2016-05-04\":{\"CAD\":1.27}},\"start_at\":\"2016-04-27\",\"base\":\"USD\",\"end_at\":\"2016-05-04\"}")));
+
+        MvcResult mvcResult = this.mockMvc.perform(get("/api/exchange-rate/2016-05-04/USD/CAD").accept(MediaType.APPLICATION_CBOR))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String eTag = this.mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "max-age=31536000, public, immutable"))
+                .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT))
+                .andReturn()
+                .getResponse()
+                .getHeader(HttpHeaders.ETAG);
+        long computedReports = meterRegistry.get("report.requests").timers().stream().mapToLong(timer -> timer.count()).sum();
+
+        //When
+        MvcResult conditionalResult = this.mockMvc.perform(get("/api/exchange-rate/2016-05-04/USD/CAD")
+                        .accept(MediaType.APPLICATION_CBOR)
+                        .header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        this.mockMvc.perform(asyncDispatch(conditionalResult))
+                .andDo(print())
+
+                //Then
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, eTag))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "max-age=31536000, public, immutable"))
+                .andExpect(content().string(""));
+        assertThat(eTag).matches("\"[0-9a-f]{32}\"");
+        assertThat(meterRegistry.get("report.requests").timers().stream().mapToLong(timer -> timer.count()).sum()).isEqualTo(computedReports);
+    }
+
+    @Test
+    void shouldTagHistoricalReportsOfEachMediaTypeDifferently() throws Exception {
+        //Given
+        stubFor(WireMock.get(urlPathEqualTo("/history"))
+                .withQueryParam("start_at", equalTo("2016-06-08"))
+                .withQueryParam("end_at", equalTo("2016-06-15"))
+                .withQueryParam("base", equalTo("USD"))
+                .withQueryParam("symbols", equalTo("CAD"))
+                .willReturn(okJson("{\"rates\":{\"2016-06-13\":{\"CAD\":1.26},\"2016-06-14\":{\"CAD\":1.27},\"2016-06-15\":{\"CAD\":1.28}},\"start_at\":\"2016-06-08\",\"base\":\"USD\",\"end_at\":\"2016-06-15\"}")));
+
+        MvcResult cborResult = this.mockMvc.perform(get("/api/exchange-rate/2016-06-15/USD/CAD").accept(MediaType.APPLICATION_CBOR))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String cborETag = this.mockMvc.perform(asyncDispatch(cborResult))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getHeader(HttpHeaders.ETAG);
+
+        //When
+        MvcResult jsonApiResult = this.mockMvc.perform(get("/api/exchange-rate/2016-06-15/USD/CAD")
+                        .header(HttpHeaders.IF_NONE_MATCH, cborETag))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        this.mockMvc.perform(asyncDispatch(jsonApiResult))
+                .andDo(print())
+
+                //Then
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.ETAG))
+                .andExpect(header().string(HttpHeaders.ETAG, not(cborETag)));
+    }
+
+    @Test
+    void shouldAnswerConditionalRequestOfHistoricalDateRange() throws Exception {
+        //Given
+        stubFor(WireMock.get(urlPathEqualTo("/history"))
+                .withQueryParam("start_at", equalTo("2016-02-23"))
+                .withQueryParam("end_at", equalTo("2016-03-02"))
+                .withQueryParam("base", equalTo("USD"))
+                .withQueryParam("symbols", equalTo("CAD"))
+                .willReturn(okJson("{\"rates\":{\"2016-02-29\":{\"CAD\":1.35},\"2016-03-01\":{\"CAD\":1.34},\"2016-03-02\":{\"CAD\":1.34}},\"start_at\":\"2016-02-23\",\"base\":\"USD\",\"end_at\":\"2016-03-02\"}")));
+
+        MvcResult mvcResult = this.mockMvc.perform(get("/api/exchange-rate/2016-03-01/2016-03-02/USD/CAD").accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String eTag = this.mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "max-age=31536000, public, immutable"))
+                .andReturn()
+                .getResponse()
+                .getHeader(HttpHeaders.ETAG);
+
+        //When
+        this.mockMvc.perform(get("/api/exchange-rate/2016-03-01/2016-03-02/USD/CAD")
+                        .accept(MediaType.APPLICATION_NDJSON)
+                        .header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andDo(print())
+
+                //Then
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, eTag))
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    void shouldRetagHistoricalReportsOfAnotherRepresentationVersion() throws Exception {
+        //Given
+        stubFor(WireMock.get(urlPathEqualTo("/history"))
+                .withQueryParam("start_at", equalTo("2016-02-24"))
+                .withQueryParam("end_at", equalTo("2016-03-03"))
+                .withQueryParam("base", equalTo("USD"))
+                .withQueryParam("symbols", equalTo("SEK"))
+                .willReturn(okJson("{\"rates\":{\"2016-03-01\":{\"SEK\":8.55},\"2016-03-02\":{\"SEK\":8.54},\"2016-03-03\":{\"SEK\":8.51}},\"start_at\":\"2016-02-24\",\"base\":\"USD\",\"end_at\":\"2016-03-03\"}")));
+
+        MvcResult mvcResult = this.mockMvc.perform(get("/api/exchange-rate/2016-03-02/2016-03-03/USD/SEK").accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String eTag = this.mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getHeader(HttpHeaders.ETAG);
+        String representationVersion = exchangeRateController.getRepresentationVersion();
+
+        try {
+            exchangeRateController.setRepresentationVersion("next", 10, "upstream");
+
+            //When
+            MvcResult nextResult = this.mockMvc.perform(get("/api/exchange-rate/2016-03-02/2016-03-03/USD/SEK")
+                            .accept(MediaType.APPLICATION_NDJSON)
+                            .header(HttpHeaders.IF_NONE_MATCH, eTag))
+                    .andExpect(request().asyncStarted())
+                    .andReturn();
+            this.mockMvc.perform(asyncDispatch(nextResult))
+                    .andDo(print())
+
+                    //Then
+                    .andExpect(status().isOk())
+                    .andExpect(header().string(HttpHeaders.ETAG, not(eTag)));
+        } finally {
+            ReflectionTestUtils.setField(exchangeRateController, "representationVersion", representationVersion);
+        }
+    }
+
+    @Test
+    void shouldNotAnswerReplayedTagOfInvalidWindow() throws Exception {
+        //Given
+        String uri = "/api/exchange-rate/2016-05-04/USD/NOK";
+        String replayedETag = '"' + DigestUtils.md5DigestAsHex((exchangeRateController.getRepresentationVersion() + "\n" + uri + "?windows=0\nnull").getBytes(StandardCharsets.UTF_8)) + '"';
+
+        //When
+        this.mockMvc.perform(get(uri + "?windows=0")
+                        .header(HttpHeaders.IF_NONE_MATCH, replayedETag))
+                .andDo(print())
+
+                //Then
+                .andExpect(status().isBadRequest());
+        assertThat(findTodayLogsOf("NOK")).isEmpty();
+    }
+
+    @Test
+    void shouldNotAnswerReplayedTagOfInvalidDateRange() throws Exception {
+        //Given
+        String uri = "/api/exchange-rate/2016-03-02/2016-03-01/USD/CHF";
+        String replayedETag = '"' + DigestUtils.md5DigestAsHex((exchangeRateController.getRepresentationVersion() + "\n" + uri + "?null\n" + MediaType.APPLICATION_NDJSON_VALUE).getBytes(StandardCharsets.UTF_8)) + '"';
+
+        //When
+        this.mockMvc.perform(get(uri)
+                        .accept(MediaType.APPLICATION_NDJSON)
+                        .header(HttpHeaders.IF_NONE_MATCH, replayedETag))
+                .andDo(print())
+
+                //Then
+                .andExpect(status().isBadRequest());
+        assertThat(findTodayLogsOf("CHF")).isEmpty();
+    }
+
+    private List<ApiUsageLog> findTodayLogsOf(String targetCurrency) {
+        apiUsageLogBatchWriter.flush();
+        LocalDate today = LocalDate.now();
+        List<ApiUsageLog> logs = apiUsageLogRepository.findByRequestDateTimeBetween(LocalDateTime.of(today, LocalTime.MIN), LocalDateTime.of(today, LocalTime.MAX));
+        logs.removeIf(log -> !targetCurrency.equals(log.getTargetCurrency()));
+        return logs;
+    }
+}
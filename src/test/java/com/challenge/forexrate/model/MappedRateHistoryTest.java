@@ -0,0 +1,104 @@
+package com.challenge.forexrate.model;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+class MappedRateHistoryTest {
+
+    private static final LocalDate FIRST_DATE = LocalDate.of(2020, 2, 3);
+    private static final int FIRST_EPOCH_DAY = Math.toIntExact(FIRST_DATE.toEpochDay());
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void shouldReadAppendedRatesAgainstThePivotCurrency() throws IOException {
+        //Given
+        Map<String, RateSeries> rates = new HashMap<>();
+        rates.put("USD", RateSeries.builder().add(FIRST_DATE, 1.25).add(FIRST_DATE.plusDays(2), 1.5).build());
+        rates.put("BRL", RateSeries.builder().add(FIRST_DATE, 5.0).add(FIRST_DATE.plusDays(2), 6.0).build());
+
+        try (MappedRateHistory history = MappedRateHistory.open(directory.resolve("rates.bin"), 4, 10, FIRST_EPOCH_DAY)) {
+            //When
+            history.append(FIRST_EPOCH_DAY + 2, rates);
+
+            //Then
+            assertThat(history.getLastEpochDay()).isEqualTo(FIRST_EPOCH_DAY + 2);
+            assertThat(history.get(FIRST_EPOCH_DAY, history.indexOf("USD"))).isEqualTo(1.25);
+            assertThat(history.get(FIRST_EPOCH_DAY + 2, history.indexOf("BRL"))).isEqualTo(6.0);
+            assertThat(history.get(FIRST_EPOCH_DAY, history.indexOf("EUR"))).isEqualTo(1);
+            assertThat(history.hasQuotation(FIRST_EPOCH_DAY + 1)).isFalse();
+            assertThat(history.get(FIRST_EPOCH_DAY + 3, history.indexOf("USD"))).isNaN();
+            assertThat(history.indexOf("GBP")).isEqualTo(-1);
+        }
+    }
+
+    @Test
+    void shouldCopyCrossRatesOfTheRequestedDays() throws IOException {
+        //Given
+        Map<String, RateSeries> rates = new HashMap<>();
+        rates.put("USD", RateSeries.builder().add(FIRST_DATE, 1.25).add(FIRST_DATE.plusDays(1), 1.5).build());
+        rates.put("BRL", RateSeries.builder().add(FIRST_DATE, 5.0).add(FIRST_DATE.plusDays(1), 6.0).build());
+        RateSeries brlInUsd = RateSeries.empty(FIRST_DATE.minusDays(1), FIRST_DATE.plusDays(2));
+
+        try (MappedRateHistory history = MappedRateHistory.open(directory.resolve("rates.bin"), 4, 10, FIRST_EPOCH_DAY)) {
+            history.append(FIRST_EPOCH_DAY + 1, rates);
+
+            //When
+            history.copyCrossRates("USD", "BRL", brlInUsd);
+
+            //Then
+            assertThat(brlInUsd.get(FIRST_DATE)).isEqualTo(4.0);
+            assertThat(brlInUsd.get(FIRST_DATE.plusDays(1))).isEqualTo(4.0);
+            assertThat(brlInUsd.get(FIRST_DATE.minusDays(1))).isNaN();
+            assertThat(brlInUsd.get(FIRST_DATE.plusDays(2))).isNaN();
+        }
+    }
+
+    @Test
+    void shouldKeepRatesAndLayoutWhenReopened() throws IOException {
+        //Given
+        Path path = directory.resolve("rates.bin");
+        Map<String, RateSeries> rates = new HashMap<>();
+        rates.put("USD", RateSeries.builder().add(FIRST_DATE, 1.25).build());
+        try (MappedRateHistory history = MappedRateHistory.open(path, 4, 10, FIRST_EPOCH_DAY)) {
+            history.append(FIRST_EPOCH_DAY, rates);
+        }
+
+        //When
+        try (MappedRateHistory history = MappedRateHistory.open(path, 8, 100, FIRST_EPOCH_DAY - 10)) {
+
+            //Then
+            assertThat(history.getFirstEpochDay()).isEqualTo(FIRST_EPOCH_DAY);
+            assertThat(history.getLastEpochDay()).isEqualTo(FIRST_EPOCH_DAY);
+            assertThat(history.get(FIRST_EPOCH_DAY, history.indexOf("USD"))).isEqualTo(1.25);
+        }
+    }
+
+    @Test
+    void shouldRejectDaysAndCurrenciesBeyondItsCapacity() throws IOException {
+        //Given
+        Map<String, RateSeries> rates = new HashMap<>();
+        rates.put("USD", RateSeries.builder().add(FIRST_DATE, 1.25).build());
+        rates.put("BRL", RateSeries.builder().add(FIRST_DATE, 5.0).build());
+
+        try (MappedRateHistory history = MappedRateHistory.open(directory.resolve("rates.bin"), 2, 10, FIRST_EPOCH_DAY)) {
+            //When
+            Throwable fullDays = catchThrowable(() -> history.append(FIRST_EPOCH_DAY + 10, new HashMap<>()));
+            Throwable fullCurrencies = catchThrowable(() -> history.append(FIRST_EPOCH_DAY, rates));
+
+            //Then
+            assertThat(fullDays).isInstanceOf(IllegalStateException.class);
+            assertThat(fullCurrencies).isInstanceOf(IllegalStateException.class);
+        }
+    }
+}
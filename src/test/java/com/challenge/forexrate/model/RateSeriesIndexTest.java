@@ -0,0 +1,102 @@
+package com.challenge.forexrate.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class RateSeriesIndexTest {
+
+    @Test
+    void shouldAnswerEveryWindowLikeAScanOfTheQuotedDays() {
+        //Given
+        LocalDate startDate = LocalDate.of(2020, 1, 1);
+        int startEpochDay = Math.toIntExact(startDate.toEpochDay());
+        Random random = new Random(42);
+        RateSeries.Builder builder = RateSeries.builder();
+        for (int day = 0; day < 120; day++) {
+            if (day % 7 < 5) {
+                builder.add(startEpochDay + day, 4 + random.nextDouble());
+            }
+        }
+        RateSeries rates = builder.build();
+
+        //When
+        RateSeriesIndex index = RateSeriesIndex.of(rates);
+
+        //Then
+        for (int from = startEpochDay - 3; from < startEpochDay + 123; from += 5) {
+            for (int to = from; to < startEpochDay + 123; to += 3) {
+                RateWindowStatistics actualStatistics = index.statistics(from, to);
+                assertScanned(rates, from, to, actualStatistics);
+            }
+        }
+    }
+
+    @Test
+    void shouldGiveTrendOfConsecutiveQuotedDays() {
+        //Given
+        RateSeries rates = RateSeries.builder()
+                .add(LocalDate.of(2020, 2, 3), 1.0)
+                .add(LocalDate.of(2020, 2, 4), 1.1)
+                .add(LocalDate.of(2020, 2, 6), 1.2)
+                .add(LocalDate.of(2020, 2, 7), 1.2)
+                .build();
+        RateSeriesIndex index = RateSeriesIndex.of(rates);
+        int startEpochDay = rates.getStartEpochDay();
+
+        //When
+        RateWindowStatistics ascending = index.statistics(startEpochDay, startEpochDay + 4);
+        RateWindowStatistics undefined = index.statistics(startEpochDay, startEpochDay + 5);
+        RateWindowStatistics constant = index.statistics(startEpochDay + 3, startEpochDay + 5);
+        RateWindowStatistics single = index.statistics(startEpochDay, startEpochDay + 1);
+        RateWindowStatistics empty = index.statistics(startEpochDay + 2, startEpochDay + 3);
+
+        //Then
+        assertThat(ascending.getTrend()).isEqualTo("ascending");
+        assertThat(undefined.getTrend()).isEqualTo("undefined");
+        assertThat(constant.getTrend()).isEqualTo("constant");
+        assertThat(single.getTrend()).isNull();
+        assertThat(single.getVolatility()).isNull();
+        assertThat(empty.getQuotedDays()).isZero();
+        assertThat(empty.getAverageRate()).isNull();
+    }
+
+    private static void assertScanned(RateSeries rates, int from, int to, RateWindowStatistics actualStatistics) {
+        int count = 0;
+        double sum = 0;
+        double min = Double.MAX_VALUE;
+        double max = -Double.MAX_VALUE;
+        for (int epochDay = from; epochDay < to; epochDay++) {
+            double rate = rates.get(epochDay);
+            if (!Double.isNaN(rate)) {
+                count++;
+                sum += rate;
+                min = Math.min(min, rate);
+                max = Math.max(max, rate);
+            }
+        }
+        assertThat(actualStatistics.getQuotedDays()).isEqualTo(count);
+        if (count == 0) {
+            assertThat(actualStatistics.getAverageRate()).isNull();
+            return;
+        }
+        double average = sum / count;
+        double squareDeviations = 0;
+        for (int epochDay = from; epochDay < to; epochDay++) {
+            double rate = rates.get(epochDay);
+            if (!Double.isNaN(rate)) {
+                squareDeviations += (rate - average) * (rate - average);
+            }
+        }
+        assertThat(actualStatistics.getAverageRate()).isCloseTo(average, within(1e-9));
+        assertThat(actualStatistics.getMinimumRate()).isEqualTo(min);
+        assertThat(actualStatistics.getMaximumRate()).isEqualTo(max);
+        assertThat(actualStatistics.getStandardDeviation()).isCloseTo(Math.sqrt(squareDeviations / count), within(1e-9));
+        Trend expectedTrend = rates.trend(from, to);
+        assertThat(actualStatistics.getTrend()).isEqualTo(expectedTrend == null ? null : expectedTrend.getTrendName());
+    }
+}
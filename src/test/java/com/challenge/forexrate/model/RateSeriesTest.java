@@ -0,0 +1,61 @@
+package com.challenge.forexrate.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RateSeriesTest {
+
+    @Test
+    void shouldLayOutRatesByDayWithGapsAsNaN() {
+        //Given
+        LocalDate date = LocalDate.of(2020, 2, 8);
+
+        //When
+        RateSeries rateSeries = RateSeries.builder()
+                .add(date, 3.45)
+                .add(date.minusDays(3), 3.42)
+                .add(date.minusDays(1), 3.44)
+                .build();
+
+        //Then
+        assertThat(rateSeries.getStartEpochDay()).isEqualTo(date.minusDays(3).toEpochDay());
+        assertThat(rateSeries.getEndEpochDay()).isEqualTo(date.toEpochDay());
+        assertThat(rateSeries.get(date.minusDays(3))).isEqualTo(3.42);
+        assertThat(rateSeries.get(date.minusDays(2))).isNaN();
+        assertThat(rateSeries.get(date.minusDays(4))).isNaN();
+        assertThat(rateSeries.getLastRateEpochDay()).isEqualTo(date.toEpochDay());
+    }
+
+    @Test
+    void shouldSkipMissingDaysOnAverageAndTrend() {
+        //Given
+        LocalDate startDate = LocalDate.of(2020, 2, 1);
+        RateSeries rateSeries = RateSeries.empty(startDate, startDate.plusDays(5));
+        rateSeries.set(Math.toIntExact(startDate.toEpochDay()), 3.25);
+        rateSeries.set(Math.toIntExact(startDate.plusDays(3).toEpochDay()), 3.5);
+        rateSeries.set(Math.toIntExact(startDate.plusDays(4).toEpochDay()), 3.75);
+        int fromEpochDay = rateSeries.getStartEpochDay();
+        int toEpochDay = rateSeries.getEndEpochDay() + 1;
+
+        //When
+        double averageRate = rateSeries.average(fromEpochDay, toEpochDay);
+        Trend trend = rateSeries.trend(fromEpochDay, toEpochDay);
+
+        //Then
+        assertThat(averageRate).isEqualTo(3.5);
+        assertThat(trend).isEqualTo(Trend.ASCENDING);
+        assertThat(rateSeries.trend(fromEpochDay, fromEpochDay + 1)).isNull();
+    }
+
+    @Test
+    void shouldParseIsoDateToEpochDay() {
+        //When
+        int epochDay = RateSeries.parseEpochDay("2020-02-29");
+
+        //Then
+        assertThat(epochDay).isEqualTo(LocalDate.of(2020, 2, 29).toEpochDay());
+    }
+}
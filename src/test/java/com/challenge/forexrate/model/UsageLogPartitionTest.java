@@ -0,0 +1,57 @@
+package com.challenge.forexrate.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UsageLogPartitionTest {
+
+    @Test
+    void shouldNameTablesByPeriodStart() {
+        //Given
+        LocalDate date = LocalDate.of(2020, 2, 5);
+
+        //When
+        UsageLogPartition monthly = UsageLogPartition.of(UsageLogPeriod.MONTHLY, date);
+        UsageLogPartition daily = UsageLogPartition.of(UsageLogPeriod.DAILY, date);
+
+        //Then
+        assertThat(monthly.getTableName()).isEqualTo("api_usage_log_202002");
+        assertThat(monthly.getStartDate()).isEqualTo(LocalDate.of(2020, 2, 1));
+        assertThat(monthly.getEndDate()).isEqualTo(LocalDate.of(2020, 3, 1));
+        assertThat(daily.getTableName()).isEqualTo("api_usage_log_20200205");
+        assertThat(daily.getEndDate()).isEqualTo(LocalDate.of(2020, 2, 6));
+    }
+
+    @Test
+    void shouldParseTableNamesOfEitherPeriod() {
+        //When
+        Optional<UsageLogPartition> monthly = UsageLogPartition.ofTableName("API_USAGE_LOG_202002");
+        Optional<UsageLogPartition> daily = UsageLogPartition.ofTableName("api_usage_log_20200205");
+
+        //Then
+        assertThat(monthly).contains(UsageLogPartition.of(UsageLogPeriod.MONTHLY, LocalDate.of(2020, 2, 1)));
+        assertThat(daily).contains(UsageLogPartition.of(UsageLogPeriod.DAILY, LocalDate.of(2020, 2, 5)));
+        assertThat(UsageLogPartition.ofTableName("API_USAGE_LOG")).isEmpty();
+        assertThat(UsageLogPartition.ofTableName("API_USAGE_ROLLUP")).isEmpty();
+        assertThat(UsageLogPartition.ofTableName("api_usage_log_202013")).isEmpty();
+    }
+
+    @Test
+    void shouldOverlapRangesTouchingItsDays() {
+        //Given
+        UsageLogPartition february = UsageLogPartition.of(UsageLogPeriod.MONTHLY, LocalDate.of(2020, 2, 1));
+
+        //Then
+        assertThat(february.overlaps(LocalDateTime.of(2020, 1, 1, 0, 0), LocalDateTime.of(2020, 2, 1, 0, 0))).isTrue();
+        assertThat(february.overlaps(LocalDateTime.of(2020, 2, 29, 23, 59), LocalDateTime.of(2020, 3, 31, 0, 0))).isTrue();
+        assertThat(february.overlaps(LocalDateTime.of(2020, 1, 1, 0, 0), LocalDateTime.of(2020, 1, 31, 23, 59, 59, 999999))).isFalse();
+        assertThat(february.overlaps(LocalDateTime.of(2020, 3, 1, 0, 0), LocalDateTime.of(2020, 3, 31, 0, 0))).isFalse();
+        assertThat(february.overlaps(UsageLogPartition.of(UsageLogPeriod.DAILY, LocalDate.of(2020, 2, 29)))).isTrue();
+        assertThat(february.overlaps(UsageLogPartition.of(UsageLogPeriod.DAILY, LocalDate.of(2020, 3, 1)))).isFalse();
+    }
+}
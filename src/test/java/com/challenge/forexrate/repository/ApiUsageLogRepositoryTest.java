@@ -0,0 +1,107 @@
+package com.challenge.forexrate.repository;
+
+import com.challenge.forexrate.entity.ApiUsageLog;
+import com.challenge.forexrate.model.UsageLogPartition;
+import com.challenge.forexrate.model.UsageLogPeriod;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ApiUsageLogRepositoryTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private ApiUsageLogRepository apiUsageLogRepository;
+    private ApiUsageLogRepository otherInstanceRepository;
+    private long nextId = 1;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource("jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1"));
+        apiUsageLogRepository = buildRepository(jdbcTemplate, UsageLogPeriod.MONTHLY, Duration.ZERO);
+        otherInstanceRepository = buildRepository(jdbcTemplate, UsageLogPeriod.DAILY, Duration.ZERO);
+    }
+
+    @Test
+    void shouldReadLogsWrittenByAnotherInstance() {
+        //Given
+        ApiUsageLog expectedLog = buildApiUsageLog(LocalDateTime.of(2021, 3, 10, 12, 0));
+        otherInstanceRepository.insertAll(Collections.singletonList(expectedLog));
+
+        //When
+        List<ApiUsageLog> actualLogs = apiUsageLogRepository.findByRequestDateTimeBetween(LocalDateTime.of(2021, 3, 1, 0, 0), LocalDateTime.of(2021, 3, 31, 23, 59));
+
+        //Then
+        assertThat(actualLogs).containsExactly(expectedLog);
+    }
+
+    @Test
+    void shouldRescanPartitionsForReadsAtMostOncePerInterval() {
+        //Given
+        ApiUsageLogRepository slowlyRefreshedRepository = buildRepository(jdbcTemplate, UsageLogPeriod.MONTHLY, Duration.ofHours(1));
+        otherInstanceRepository.insertAll(Collections.singletonList(buildApiUsageLog(LocalDateTime.of(2021, 3, 10, 12, 0))));
+
+        //When
+        List<ApiUsageLog> actualLogs = slowlyRefreshedRepository.findByRequestDateTimeBetween(LocalDateTime.of(2021, 3, 1, 0, 0), LocalDateTime.of(2021, 3, 31, 23, 59));
+
+        //Then
+        assertThat(actualLogs).isEmpty();
+        assertThat(slowlyRefreshedRepository.findPartitionsEndingBy(LocalDate.of(2021, 4, 1))).hasSize(1);
+    }
+
+    @Test
+    void shouldNotOverlapPartitionsCreatedByAnotherInstance() {
+        //Given
+        otherInstanceRepository.insertAll(Collections.singletonList(buildApiUsageLog(LocalDateTime.of(2021, 3, 10, 12, 0))));
+
+        //When
+        apiUsageLogRepository.insertAll(Collections.singletonList(buildApiUsageLog(LocalDateTime.of(2021, 3, 15, 12, 0))));
+
+        //Then
+        assertThat(apiUsageLogRepository.findPartitions(LocalDateTime.of(2021, 3, 1, 0, 0), LocalDateTime.of(2021, 3, 31, 23, 59))).containsExactly(
+                UsageLogPartition.of(UsageLogPeriod.DAILY, LocalDate.of(2021, 3, 10)),
+                UsageLogPartition.of(UsageLogPeriod.DAILY, LocalDate.of(2021, 3, 15)));
+    }
+
+    @Test
+    void shouldExpirePartitionsCreatedAndDroppedByAnotherInstance() {
+        //Given
+        UsageLogPartition january = UsageLogPartition.of(UsageLogPeriod.DAILY, LocalDate.of(2021, 1, 15));
+        otherInstanceRepository.insertAll(Collections.singletonList(buildApiUsageLog(LocalDateTime.of(2021, 1, 15, 10, 0))));
+
+        //When
+        List<UsageLogPartition> expiredPartitions = apiUsageLogRepository.findPartitionsEndingBy(LocalDate.of(2021, 2, 8));
+        otherInstanceRepository.dropPartition(january);
+
+        //Then
+        assertThat(expiredPartitions).containsExactly(january);
+        assertThat(apiUsageLogRepository.findPartitionsEndingBy(LocalDate.of(2021, 2, 8))).isEmpty();
+    }
+
+    private static ApiUsageLogRepository buildRepository(JdbcTemplate jdbcTemplate, UsageLogPeriod period, Duration refreshInterval) {
+        ApiUsageLogRepository apiUsageLogRepository = new ApiUsageLogRepository(jdbcTemplate);
+        apiUsageLogRepository.setPeriod(period);
+        apiUsageLogRepository.setRefreshInterval(refreshInterval);
+        apiUsageLogRepository.loadPartitions();
+        return apiUsageLogRepository;
+    }
+
+    private ApiUsageLog buildApiUsageLog(LocalDateTime requestDateTime) {
+        return ApiUsageLog.builder()
+                .id(nextId++)
+                .requestDateTime(requestDateTime)
+                .requestedDate(requestDateTime.toLocalDate())
+                .baseCurrency("EUR")
+                .targetCurrency("USD")
+                .build();
+    }
+}
@@ -0,0 +1,86 @@
+package com.challenge.forexrate.service;
+
+import com.challenge.forexrate.entity.ApiUsageLog;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+class ApiUsageLogArchiveWriterTest {
+
+    @Test
+    void shouldReadBackLogsOfSeveralRowGroups() throws IOException {
+        //Given
+        List<ApiUsageLog> expectedLogs = new ArrayList<>();
+        LocalDateTime requestDateTime = LocalDateTime.of(2020, 2, 5, 10, 15, 30, 123456000);
+        String[] targetCurrencies = {"BRL", "GBP", "JPY"};
+        for (int index = 0; index < ApiUsageLogArchiveWriter.ROW_GROUP_SIZE + 10; index++) {
+            expectedLogs.add(ApiUsageLog.builder()
+                    .id(1000L + index)
+                    .requestDateTime(requestDateTime.plusSeconds(index / 3))
+                    .requestedDate(LocalDate.of(2019, 6, 14).minusDays(index % 40))
+                    .baseCurrency("USD")
+                    .targetCurrency(targetCurrencies[index % targetCurrencies.length])
+                    .build());
+        }
+
+        //When
+        ByteArrayOutputStream archive = new ByteArrayOutputStream();
+        try (ApiUsageLogArchiveWriter archiveWriter = new ApiUsageLogArchiveWriter(archive)) {
+            for (ApiUsageLog apiUsageLog : expectedLogs) {
+                archiveWriter.write(apiUsageLog);
+            }
+        }
+        List<ApiUsageLog> actualLogs = new ArrayList<>();
+        ApiUsageLogArchiveReader.read(new ByteArrayInputStream(archive.toByteArray()), actualLogs::add);
+
+        //Then
+        assertThat(actualLogs).isEqualTo(expectedLogs);
+    }
+
+    @Test
+    void shouldReadEmptyArchive() throws IOException {
+        //Given
+        ByteArrayOutputStream archive = new ByteArrayOutputStream();
+        new ApiUsageLogArchiveWriter(archive).close();
+
+        //When
+        List<ApiUsageLog> actualLogs = new ArrayList<>();
+        ApiUsageLogArchiveReader.read(new ByteArrayInputStream(archive.toByteArray()), actualLogs::add);
+
+        //Then
+        assertThat(actualLogs).isEmpty();
+    }
+
+    @Test
+    void shouldFailToReadTruncatedArchive() throws IOException {
+        //Given
+        ByteArrayOutputStream archive = new ByteArrayOutputStream();
+        try (ApiUsageLogArchiveWriter archiveWriter = new ApiUsageLogArchiveWriter(archive)) {
+            archiveWriter.write(ApiUsageLog.builder()
+                    .id(1L)
+                    .requestDateTime(LocalDateTime.of(2020, 2, 5, 10, 15))
+                    .requestedDate(LocalDate.of(2020, 2, 5))
+                    .baseCurrency("USD")
+                    .targetCurrency("BRL")
+                    .build());
+        }
+        byte[] truncatedArchive = new byte[archive.size() / 2];
+        System.arraycopy(archive.toByteArray(), 0, truncatedArchive, 0, truncatedArchive.length);
+
+        //When
+        Throwable throwable = catchThrowable(() -> ApiUsageLogArchiveReader.read(new ByteArrayInputStream(truncatedArchive), apiUsageLog -> {
+        }));
+
+        //Then
+        assertThat(throwable).isInstanceOf(IOException.class);
+    }
+}
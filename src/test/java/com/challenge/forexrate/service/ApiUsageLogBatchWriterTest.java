@@ -0,0 +1,207 @@
+package com.challenge.forexrate.service;
+
+import com.challenge.forexrate.entity.ApiUsageLog;
+import com.challenge.forexrate.entity.ApiUsageRollupId;
+import com.challenge.forexrate.model.UsageGranularity;
+import com.challenge.forexrate.repository.ApiUsageLogRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ApiUsageLogBatchWriterTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+    @Mock
+    private ApiUsageLogRepository apiUsageLogRepository;
+    @Captor
+    private ArgumentCaptor<List<ApiUsageLog>> batchCaptor;
+    @Captor
+    private ArgumentCaptor<Collection<Map.Entry<ApiUsageRollupId, Long>>> rollupCaptor;
+    private MeterRegistry meterRegistry;
+    private ApiUsageLogBatchWriter apiUsageLogBatchWriter;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        apiUsageLogBatchWriter = new ApiUsageLogBatchWriter(jdbcTemplate, apiUsageLogRepository, TransactionOperations.withoutTransaction(), meterRegistry);
+        apiUsageLogBatchWriter.setCapacity(3);
+        apiUsageLogBatchWriter.setBatchSize(2);
+        apiUsageLogBatchWriter.setLinger(Duration.ofMillis(200));
+    }
+
+    @Test
+    void shouldDropWhenQueueIsFull() {
+        //Given
+        for (int i = 0; i < 3; i++) {
+            apiUsageLogBatchWriter.write(buildApiUsageLog());
+        }
+
+        //When
+        boolean accepted = apiUsageLogBatchWriter.write(buildApiUsageLog());
+
+        //Then
+        assertThat(accepted).isFalse();
+        assertThat(meterRegistry.get("usage.log.writer.dropped").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("usage.log.writer.queue.size").gauge().value()).isEqualTo(3);
+    }
+
+    @Test
+    void shouldQueueLogsOfBulkWriteThatFitInQueue() {
+        //Given
+        apiUsageLogBatchWriter.write(buildApiUsageLog());
+
+        //When
+        int queued = apiUsageLogBatchWriter.writeAll(Arrays.asList(buildApiUsageLog(), buildApiUsageLog(), buildApiUsageLog()));
+
+        //Then
+        assertThat(queued).isEqualTo(2);
+        assertThat(meterRegistry.get("usage.log.writer.dropped").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("usage.log.writer.queue.size").gauge().value()).isEqualTo(3);
+    }
+
+    @Test
+    void shouldFlushInBatchesWithPooledIds() {
+        //Given
+        List<ApiUsageLog> apiUsageLogs = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            ApiUsageLog apiUsageLog = buildApiUsageLog();
+            apiUsageLogs.add(apiUsageLog);
+            apiUsageLogBatchWriter.write(apiUsageLog);
+        }
+
+        when(jdbcTemplate.queryForObject(ApiUsageLogBatchWriter.NEXT_ID_BLOCK_SQL, Long.class)).thenReturn(51L);
+
+        //When
+        apiUsageLogBatchWriter.flush();
+
+        //Then
+        verify(apiUsageLogRepository, times(2)).createPartitions(any());
+        verify(apiUsageLogRepository, times(2)).insertAll(batchCaptor.capture());
+        verify(jdbcTemplate, times(1)).queryForObject(ApiUsageLogBatchWriter.NEXT_ID_BLOCK_SQL, Long.class);
+        assertThat(batchCaptor.getAllValues()).extracting(List::size).containsExactly(2, 1);
+        assertThat(apiUsageLogs).extracting(ApiUsageLog::getId).containsExactly(51L, 52L, 53L);
+        assertThat(meterRegistry.get("usage.log.writer.written").counter().count()).isEqualTo(3);
+        assertThat(meterRegistry.get("usage.log.writer.queue.size").gauge().value()).isZero();
+    }
+
+    @Test
+    void shouldMergeHourlyAndDailyRollupsOfBatch() {
+        //Given
+        LocalDateTime requestDateTime = LocalDateTime.of(2020, 2, 8, 10, 15);
+        apiUsageLogBatchWriter.write(buildApiUsageLog(requestDateTime));
+        apiUsageLogBatchWriter.write(buildApiUsageLog(requestDateTime.plusMinutes(30)));
+        apiUsageLogBatchWriter.write(buildApiUsageLog(requestDateTime.plusHours(1)));
+
+        when(jdbcTemplate.queryForObject(ApiUsageLogBatchWriter.NEXT_ID_BLOCK_SQL, Long.class)).thenReturn(1L);
+
+        //When
+        apiUsageLogBatchWriter.flush();
+
+        //Then
+        verify(jdbcTemplate, times(2)).batchUpdate(eq(ApiUsageLogBatchWriter.MERGE_ROLLUP_SQL), rollupCaptor.capture(), anyInt(), any(ParameterizedPreparedStatementSetter.class));
+        Map<ApiUsageRollupId, Long> requestCounts = new HashMap<>();
+        rollupCaptor.getAllValues().forEach(rollups -> rollups.forEach(rollup -> requestCounts.merge(rollup.getKey(), rollup.getValue(), Long::sum)));
+        assertThat(requestCounts).containsOnly(
+                entry(buildApiUsageRollupId(UsageGranularity.HOURLY, LocalDateTime.of(2020, 2, 8, 10, 0)), 2L),
+                entry(buildApiUsageRollupId(UsageGranularity.HOURLY, LocalDateTime.of(2020, 2, 8, 11, 0)), 1L),
+                entry(buildApiUsageRollupId(UsageGranularity.DAILY, LocalDateTime.of(2020, 2, 8, 0, 0)), 3L));
+    }
+
+    @Test
+    void shouldKeepDrainingAfterUnexpectedFailureOfBatch() throws InterruptedException {
+        //Given
+        when(jdbcTemplate.queryForObject(ApiUsageLogBatchWriter.NEXT_ID_BLOCK_SQL, Long.class))
+                .thenThrow(new IllegalStateException("Unexpected sequence value"))
+                .thenReturn(1L);
+        apiUsageLogBatchWriter.start();
+
+        try {
+            //When
+            apiUsageLogBatchWriter.writeAll(Arrays.asList(buildApiUsageLog(), buildApiUsageLog()));
+            awaitCount("usage.log.writer.failed", 2);
+            apiUsageLogBatchWriter.writeAll(Arrays.asList(buildApiUsageLog(), buildApiUsageLog()));
+            awaitCount("usage.log.writer.written", 2);
+        } finally {
+            apiUsageLogBatchWriter.stop();
+        }
+
+        //Then
+        assertThat(meterRegistry.get("usage.log.writer.failed").counter().count()).isEqualTo(2);
+        assertThat(meterRegistry.get("usage.log.writer.written").counter().count()).isEqualTo(2);
+        verify(apiUsageLogRepository, times(1)).insertAll(any());
+    }
+
+    @Test
+    void shouldDropLogsWrittenAfterStop() {
+        //Given
+        apiUsageLogBatchWriter.start();
+        apiUsageLogBatchWriter.stop();
+
+        //When
+        boolean accepted = apiUsageLogBatchWriter.write(buildApiUsageLog());
+        int queued = apiUsageLogBatchWriter.writeAll(Arrays.asList(buildApiUsageLog(), buildApiUsageLog()));
+
+        //Then
+        assertThat(accepted).isFalse();
+        assertThat(queued).isZero();
+        assertThat(meterRegistry.get("usage.log.writer.dropped").counter().count()).isEqualTo(3);
+        assertThat(meterRegistry.get("usage.log.writer.queue.size").gauge().value()).isZero();
+        verify(apiUsageLogRepository, never()).insertAll(any());
+    }
+
+    private void awaitCount(String counterName, double count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (meterRegistry.get(counterName).counter().count() < count && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    private ApiUsageRollupId buildApiUsageRollupId(UsageGranularity granularity, LocalDateTime bucketStart) {
+        return new ApiUsageRollupId(granularity, bucketStart, "USD", "BRL", LocalDate.of(2020, 1, 1));
+    }
+
+    private ApiUsageLog buildApiUsageLog() {
+        return buildApiUsageLog(LocalDateTime.now());
+    }
+
+    private ApiUsageLog buildApiUsageLog(LocalDateTime requestDateTime) {
+        return ApiUsageLog.builder()
+                .requestDateTime(requestDateTime)
+                .requestedDate(LocalDate.of(2020, 1, 1))
+                .baseCurrency("USD")
+                .targetCurrency("BRL")
+                .build();
+    }
+}
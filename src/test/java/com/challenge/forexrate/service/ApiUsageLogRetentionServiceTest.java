@@ -0,0 +1,132 @@
+package com.challenge.forexrate.service;
+
+import com.challenge.forexrate.entity.ApiUsageLog;
+import com.challenge.forexrate.model.UsageLogPartition;
+import com.challenge.forexrate.model.UsageLogPeriod;
+import com.challenge.forexrate.repository.ApiUsageLogRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ApiUsageLogRetentionServiceTest {
+
+    private static final LocalDate TODAY = LocalDate.of(2021, 3, 10);
+
+    @Mock
+    private ApiUsageLogRepository apiUsageLogRepository;
+    @TempDir
+    Path archiveDirectory;
+    private MeterRegistry meterRegistry;
+    private ApiUsageLogRetentionService apiUsageLogRetentionService;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        apiUsageLogRetentionService = new ApiUsageLogRetentionService(apiUsageLogRepository, meterRegistry);
+        apiUsageLogRetentionService.setEnabled(true);
+        apiUsageLogRetentionService.setRetention(Duration.ofDays(30));
+        apiUsageLogRetentionService.setArchiveDirectory(archiveDirectory.toString());
+    }
+
+    @Test
+    void shouldArchiveThenDropExpiredPartitions() throws IOException {
+        //Given
+        UsageLogPartition january = UsageLogPartition.of(UsageLogPeriod.MONTHLY, LocalDate.of(2021, 1, 1));
+        ApiUsageLog expectedLog = buildApiUsageLog(LocalDateTime.of(2021, 1, 15, 10, 0));
+
+        when(apiUsageLogRepository.findPartitionsEndingBy(LocalDate.of(2021, 2, 8))).thenReturn(Collections.singletonList(january));
+        doAnswer(invocation -> {
+            Consumer<ApiUsageLog> action = invocation.getArgument(1);
+            action.accept(expectedLog);
+            return null;
+        }).when(apiUsageLogRepository).forEachInPartition(eq(january), any());
+
+        //When
+        List<UsageLogPartition> actualPartitions = apiUsageLogRetentionService.expirePartitions(TODAY);
+
+        //Then
+        assertThat(actualPartitions).containsExactly(january);
+        verify(apiUsageLogRepository).dropPartition(january);
+        List<ApiUsageLog> actualLogs = new ArrayList<>();
+        ApiUsageLogArchiveReader.read(archiveDirectory.resolve("api_usage_log_202101" + ApiUsageLogRetentionService.ARCHIVE_FILE_EXTENSION), actualLogs::add);
+        assertThat(actualLogs).containsExactly(expectedLog);
+        assertThat(meterRegistry.get("usage.log.partitions.archived").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("usage.log.partitions.dropped").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldKeepPartitionThatCouldNotBeArchived() throws IOException {
+        //Given
+        UsageLogPartition firstDay = UsageLogPartition.of(UsageLogPeriod.DAILY, LocalDate.of(2021, 1, 1));
+        UsageLogPartition secondDay = UsageLogPartition.of(UsageLogPeriod.DAILY, LocalDate.of(2021, 1, 2));
+
+        when(apiUsageLogRepository.findPartitionsEndingBy(LocalDate.of(2021, 2, 8))).thenReturn(Arrays.asList(firstDay, secondDay));
+        doThrow(new UncheckedIOException(new IOException("Disk full"))).when(apiUsageLogRepository).forEachInPartition(eq(firstDay), any());
+
+        //When
+        List<UsageLogPartition> actualPartitions = apiUsageLogRetentionService.expirePartitions(TODAY);
+
+        //Then
+        assertThat(actualPartitions).containsExactly(secondDay);
+        verify(apiUsageLogRepository, never()).dropPartition(firstDay);
+        verify(apiUsageLogRepository).dropPartition(secondDay);
+        try (Stream<Path> files = Files.list(archiveDirectory)) {
+            assertThat(files).extracting(file -> file.getFileName().toString()).containsExactly("api_usage_log_20210102" + ApiUsageLogRetentionService.ARCHIVE_FILE_EXTENSION);
+        }
+    }
+
+    @Test
+    void shouldDropWithoutArchivingWhenNoArchiveDirectory() {
+        //Given
+        apiUsageLogRetentionService.setArchiveDirectory("");
+        UsageLogPartition january = UsageLogPartition.of(UsageLogPeriod.MONTHLY, LocalDate.of(2021, 1, 1));
+
+        when(apiUsageLogRepository.findPartitionsEndingBy(LocalDate.of(2021, 2, 8))).thenReturn(Collections.singletonList(january));
+
+        //When
+        apiUsageLogRetentionService.expirePartitions(TODAY);
+
+        //Then
+        verify(apiUsageLogRepository, never()).forEachInPartition(any(), any());
+        verify(apiUsageLogRepository).dropPartition(january);
+    }
+
+    private ApiUsageLog buildApiUsageLog(LocalDateTime requestDateTime) {
+        return ApiUsageLog.builder()
+                .id(1L)
+                .requestDateTime(requestDateTime)
+                .requestedDate(LocalDate.of(2020, 1, 1))
+                .baseCurrency("USD")
+                .targetCurrency("BRL")
+                .build();
+    }
+}
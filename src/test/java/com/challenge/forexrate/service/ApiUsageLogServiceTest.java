@@ -1,19 +1,27 @@
 package com.challenge.forexrate.service;
 
 import com.challenge.forexrate.entity.ApiUsageLog;
+import com.challenge.forexrate.model.ApiUsageLogCursor;
 import com.challenge.forexrate.repository.ApiUsageLogRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.function.Consumer;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -22,11 +30,15 @@ class ApiUsageLogServiceTest {
 
     @Mock
     private ApiUsageLogRepository apiUsageLogRepository;
+    @Mock
+    private ApiUsageLogBatchWriter apiUsageLogBatchWriter;
+    @Captor
+    private ArgumentCaptor<ApiUsageLog> apiUsageLogCaptor;
     private ApiUsageLogService apiUsageLogService;
 
     @BeforeEach
     void setUp() {
-        apiUsageLogService = new ApiUsageLogService(apiUsageLogRepository);
+        apiUsageLogService = new ApiUsageLogService(apiUsageLogRepository, apiUsageLogBatchWriter);
     }
 
     @Test
@@ -37,7 +49,6 @@ class ApiUsageLogServiceTest {
         String targetCurrency = "BRL";
 
         ApiUsageLog expectedApiUsageLog = ApiUsageLog.builder()
-                .requestDateTime(LocalDateTime.now())
                 .requestedDate(date)
                 .baseCurrency(baseCurrency)
                 .targetCurrency(targetCurrency)
@@ -47,33 +58,79 @@ class ApiUsageLogServiceTest {
         apiUsageLogService.save(date, baseCurrency, targetCurrency);
 
         //Then
-        verify(apiUsageLogRepository).save(expectedApiUsageLog);
+        verify(apiUsageLogBatchWriter).write(apiUsageLogCaptor.capture());
+        assertThat(apiUsageLogCaptor.getValue())
+                .usingRecursiveComparison()
+                .ignoringFields("requestDateTime")
+                .isEqualTo(expectedApiUsageLog);
+        assertThat(apiUsageLogCaptor.getValue().getRequestDateTime()).isNotNull();
     }
 
     @Test
     void shouldSearchByRangeDate() {
         //Given
-        LocalDate date = LocalDate.of(2020, 1, 1);
-        String baseCurrency = "USD";
-        String targetCurrency = "BRL";
         LocalDateTime startSearchDateTime = LocalDateTime.of(2020, 1, 1, 0, 0);
         LocalDateTime endSearchDateTime = LocalDateTime.of(2020, 1, 31, 23, 59, 59, 999999);
-        LocalDateTime eventDateTime = LocalDateTime.of(2020, 1, 15, 0, 0);
-        ;
+        ApiUsageLog expectedLog = buildApiUsageLog(LocalDateTime.of(2020, 1, 15, 0, 0));
 
-        ApiUsageLog expectedLog = ApiUsageLog.builder()
-                .requestDateTime(eventDateTime)
-                .requestedDate(date)
-                .baseCurrency(baseCurrency)
-                .targetCurrency(targetCurrency)
-                .build();
+        when(apiUsageLogRepository.findByRequestDateTimeBetween(startSearchDateTime, endSearchDateTime, 10))
+                .thenReturn(Collections.singletonList(expectedLog));
 
-        when(apiUsageLogRepository.findByRequestDateTimeBetween(startSearchDateTime, endSearchDateTime)).thenReturn(Collections.singletonList(expectedLog));
+        //When
+        List<ApiUsageLog> actualLogs = apiUsageLogService.findByRangeDateTime(startSearchDateTime, endSearchDateTime, null, 10);
+
+        //Then
+        assertThat(actualLogs).isEqualTo(Collections.singletonList(expectedLog));
+    }
+
+    @Test
+    void shouldSearchByRangeDateAfterCursor() {
+        //Given
+        LocalDateTime startSearchDateTime = LocalDateTime.of(2020, 1, 1, 0, 0);
+        LocalDateTime endSearchDateTime = LocalDateTime.of(2020, 1, 31, 23, 59, 59, 999999);
+        LocalDateTime afterDateTime = LocalDateTime.of(2020, 1, 15, 0, 0);
+        ApiUsageLog expectedLog = buildApiUsageLog(afterDateTime);
+        ApiUsageLogCursor cursor = ApiUsageLogCursor.decode(new ApiUsageLogCursor(afterDateTime, 7L).encode());
+
+        when(apiUsageLogRepository.findByRequestDateTimeBetweenAfter(startSearchDateTime, endSearchDateTime, afterDateTime, 7L, 10))
+                .thenReturn(Collections.singletonList(expectedLog));
 
         //When
-        List<ApiUsageLog> actualLogs = apiUsageLogService.findByRangeDateTime(startSearchDateTime, endSearchDateTime);
+        List<ApiUsageLog> actualLogs = apiUsageLogService.findByRangeDateTime(startSearchDateTime, endSearchDateTime, cursor, 10);
 
         //Then
         assertThat(actualLogs).isEqualTo(Collections.singletonList(expectedLog));
     }
-}
\ No newline at end of file
+
+    @Test
+    void shouldPassStreamedLogsToAction() {
+        //Given
+        LocalDateTime startSearchDateTime = LocalDateTime.of(2020, 1, 1, 0, 0);
+        LocalDateTime endSearchDateTime = LocalDateTime.of(2020, 1, 31, 23, 59, 59, 999999);
+        ApiUsageLog firstLog = buildApiUsageLog(LocalDateTime.of(2020, 1, 15, 0, 0));
+        ApiUsageLog secondLog = buildApiUsageLog(LocalDateTime.of(2020, 1, 16, 0, 0));
+
+        doAnswer(invocation -> {
+            Consumer<ApiUsageLog> action = invocation.getArgument(2);
+            action.accept(firstLog);
+            action.accept(secondLog);
+            return null;
+        }).when(apiUsageLogRepository).forEachByRequestDateTimeBetween(eq(startSearchDateTime), eq(endSearchDateTime), any());
+
+        //When
+        List<ApiUsageLog> actualLogs = new ArrayList<>();
+        apiUsageLogService.forEachByRangeDateTime(startSearchDateTime, endSearchDateTime, actualLogs::add);
+
+        //Then
+        assertThat(actualLogs).containsExactly(firstLog, secondLog);
+    }
+
+    private ApiUsageLog buildApiUsageLog(LocalDateTime requestDateTime) {
+        return ApiUsageLog.builder()
+                .requestDateTime(requestDateTime)
+                .requestedDate(LocalDate.of(2020, 1, 1))
+                .baseCurrency("USD")
+                .targetCurrency("BRL")
+                .build();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,126 @@
+package com.challenge.forexrate.service;
+
+import com.challenge.forexrate.exception.UnsupportedCurrencyException;
+import com.challenge.forexrate.model.RateSeries;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.exchangeratesapi.api.client.ForeignExchangeRateService;
+import io.exchangeratesapi.api.client.model.CurrencyRateHistory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class CrossRateServiceTest {
+
+    private CrossRateService crossRateService;
+
+    @Mock
+    private RateProvider rateProvider;
+
+    @BeforeEach
+    void setUp() {
+        crossRateService = new CrossRateService(rateProvider, Caffeine.newBuilder().build());
+    }
+
+    @Test
+    void shouldServeEveryPairFromOneFetchOfThePivotTable() {
+        //Given
+        LocalDate startDate = LocalDate.of(2020, 2, 7);
+        LocalDate endDate = LocalDate.of(2020, 2, 8);
+        ForeignExchangeRateService.QueryParams queryParams = ForeignExchangeRateService.QueryParams.builder()
+                .base("EUR")
+                .start_at(startDate)
+                .end_at(endDate)
+                .build();
+
+        Map<String, RateSeries> rates = new HashMap<>();
+        rates.put("USD", RateSeries.builder().add(startDate, 1.25).add(endDate, 1.5).build());
+        rates.put("BRL", RateSeries.builder().add(startDate, 5.0).add(endDate, 6.0).build());
+        rates.put("GBP", RateSeries.builder().add(startDate, 0.75).add(endDate, 0.9).build());
+
+        when(rateProvider.getHistory(queryParams)).thenReturn(CurrencyRateHistory.builder().rates(rates).build());
+
+        //When
+        Map<String, RateSeries> usdRates = crossRateService.getRates(startDate, endDate, "USD", Arrays.asList("BRL", "EUR"));
+        Map<String, RateSeries> gbpRates = crossRateService.getRates(startDate, endDate, "GBP", Collections.singletonList("USD"));
+
+        //Then
+        assertThat(usdRates.get("BRL").get(startDate)).isEqualTo(4.0);
+        assertThat(usdRates.get("BRL").get(endDate)).isEqualTo(4.0);
+        assertThat(usdRates.get("EUR").get(startDate)).isEqualTo(0.8);
+        assertThat(gbpRates.get("USD").get(endDate)).isEqualTo(1.5 / 0.9);
+        verify(rateProvider, times(1)).getHistory(queryParams);
+    }
+
+    @Test
+    void shouldFetchDaysAfterTheLastPublishedOneAgain() {
+        //Given
+        LocalDate startDate = LocalDate.of(2020, 2, 6);
+        LocalDate publishedDate = LocalDate.of(2020, 2, 7);
+        LocalDate endDate = LocalDate.of(2020, 2, 8);
+        ForeignExchangeRateService.QueryParams queryParams = ForeignExchangeRateService.QueryParams.builder()
+                .base("EUR")
+                .start_at(startDate)
+                .end_at(endDate)
+                .build();
+        ForeignExchangeRateService.QueryParams unpublishedQueryParams = ForeignExchangeRateService.QueryParams.builder()
+                .base("EUR")
+                .start_at(endDate)
+                .end_at(endDate)
+                .build();
+
+        when(rateProvider.getHistory(queryParams)).thenReturn(CurrencyRateHistory.builder()
+                .rates(Collections.singletonMap("USD", RateSeries.builder().add(publishedDate, 1.25).build()))
+                .build());
+        when(rateProvider.getHistory(unpublishedQueryParams)).thenReturn(CurrencyRateHistory.builder()
+                .rates(Collections.emptyMap())
+                .build());
+
+        //When
+        crossRateService.getRates(startDate, endDate, "EUR", Collections.singletonList("USD"));
+        RateSeries actualRates = crossRateService.getRates(startDate, endDate, "EUR", Collections.singletonList("USD")).get("USD");
+
+        //Then
+        assertThat(actualRates.get(startDate)).isNaN();
+        assertThat(actualRates.get(publishedDate)).isEqualTo(1.25);
+        assertThat(actualRates.get(endDate)).isNaN();
+        verify(rateProvider, times(1)).getHistory(queryParams);
+        verify(rateProvider, times(1)).getHistory(unpublishedQueryParams);
+    }
+
+    @Test
+    void shouldFailOnCurrencyWithoutQuotation() {
+        //Given
+        LocalDate date = LocalDate.of(2020, 2, 7);
+        ForeignExchangeRateService.QueryParams queryParams = ForeignExchangeRateService.QueryParams.builder()
+                .base("EUR")
+                .start_at(date)
+                .end_at(date)
+                .build();
+
+        when(rateProvider.getHistory(queryParams)).thenReturn(CurrencyRateHistory.builder()
+                .rates(Collections.singletonMap("USD", RateSeries.builder().add(date, 1.25).build()))
+                .build());
+
+        //When
+        Throwable throwable = catchThrowable(() -> crossRateService.getRates(date, date, "USD", Collections.singletonList("BRLA")));
+
+        //Then
+        assertThat(throwable).isInstanceOf(UnsupportedCurrencyException.class)
+                .hasMessage("Used currency 'BRLA' is not supported");
+    }
+}
@@ -0,0 +1,87 @@
+package com.challenge.forexrate.service;
+
+import com.challenge.forexrate.exception.UnsupportedCurrencyException;
+import io.exchangeratesapi.api.client.ForeignExchangeRateService;
+import io.exchangeratesapi.api.client.model.CurrencyRateHistory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.assertj.core.api.Assertions.within;
+
+class EcbFileRateProviderTest {
+
+    private EcbFileRateProvider ecbFileRateProvider;
+
+    @BeforeEach
+    void setUp(@TempDir Path directory) throws Exception {
+        Path path = directory.resolve("eurofxref-hist.csv");
+        Files.write(path, ("Date,USD,BRL,CYP,\r\n" +
+                "2020-02-07,1.0951,4.7,N/A,\r\n" +
+                "2020-02-06,1.0980,4.69,N/A,\r\n" +
+                "2020-02-04,1.1048,4.7,N/A,\r\n").getBytes(StandardCharsets.US_ASCII));
+        ecbFileRateProvider = EcbFileRateProvider.load(path);
+    }
+
+    @Test
+    void shouldDerivePairRatesFromEuroRatesOfPublishedDays() {
+        //Given
+        ForeignExchangeRateService.QueryParams queryParams = ForeignExchangeRateService.QueryParams.builder()
+                .base("USD")
+                .symbols("BRL,EUR")
+                .start_at(LocalDate.of(2020, 2, 4))
+                .end_at(LocalDate.of(2020, 2, 9))
+                .build();
+
+        //When
+        CurrencyRateHistory actualMapping = ecbFileRateProvider.getHistory(queryParams);
+
+        //Then
+        assertThat(actualMapping.getRates()).containsOnlyKeys("BRL", "EUR");
+        assertThat(actualMapping.getRates().get("BRL").get(LocalDate.of(2020, 2, 7))).isCloseTo(4.7 / 1.0951, within(1e-12));
+        assertThat(actualMapping.getRates().get("EUR").get(LocalDate.of(2020, 2, 6))).isCloseTo(1 / 1.0980, within(1e-12));
+        assertThat(actualMapping.getRates().get("BRL").get(LocalDate.of(2020, 2, 5))).isNaN();
+        assertThat(actualMapping.getRates().get("BRL").getLastRateEpochDay()).isEqualTo(LocalDate.of(2020, 2, 7).toEpochDay());
+    }
+
+    @Test
+    void shouldReturnEveryQuotedCurrencyWithoutSymbols() {
+        //Given
+        ForeignExchangeRateService.QueryParams queryParams = ForeignExchangeRateService.QueryParams.builder()
+                .base("EUR")
+                .start_at(LocalDate.of(2020, 2, 4))
+                .end_at(LocalDate.of(2020, 2, 7))
+                .build();
+
+        //When
+        CurrencyRateHistory actualMapping = ecbFileRateProvider.getHistory(queryParams);
+
+        //Then
+        assertThat(actualMapping.getRates()).containsOnlyKeys("USD", "BRL");
+    }
+
+    @Test
+    void shouldFailOnCurrencyWithoutQuotation() {
+        //Given
+        ForeignExchangeRateService.QueryParams queryParams = ForeignExchangeRateService.QueryParams.builder()
+                .base("USD")
+                .symbols("CYP")
+                .start_at(LocalDate.of(2020, 2, 4))
+                .end_at(LocalDate.of(2020, 2, 7))
+                .build();
+
+        //When
+        Throwable throwable = catchThrowable(() -> ecbFileRateProvider.getHistory(queryParams));
+
+        //Then
+        assertThat(throwable).isInstanceOf(UnsupportedCurrencyException.class)
+                .hasMessage("Used currency 'CYP' is not supported");
+    }
+}
@@ -1,41 +1,83 @@
 package com.challenge.forexrate.service;
 
+import com.challenge.forexrate.entity.ExchangeRate;
 import com.challenge.forexrate.exception.ExchangeRateDateNotFoundException;
+import com.challenge.forexrate.exception.ExchangeRateDateOutOfBoundsException;
+import com.challenge.forexrate.exception.InvalidWindowException;
+import com.challenge.forexrate.exception.UnsupportedCurrencyException;
 import com.challenge.forexrate.model.ExchangeRateReport;
+import com.challenge.forexrate.model.RateSeries;
+import com.challenge.forexrate.model.RateWindowStatistics;
+import com.challenge.forexrate.model.ReportQuery;
 import com.challenge.forexrate.model.Trend;
+import com.challenge.forexrate.repository.ExchangeRateRepository;
 import com.challenge.forexrate.validator.ReportRequestDateValidator;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.exchangeratesapi.api.client.AsyncForeignExchangeRateService;
 import io.exchangeratesapi.api.client.ForeignExchangeRateService;
-import io.exchangeratesapi.api.client.model.DateCurrencyMapping;
+import io.exchangeratesapi.api.client.model.CurrencyRateHistory;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.time.DateTimeException;
 import java.time.LocalDate;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.assertj.core.api.Assertions.within;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
 class ExchangeRateServiceTest {
 
     private ExchangeRateService exchangeRateService;
+    private SimpleMeterRegistry meterRegistry;
 
     @Mock
     private ReportRequestDateValidator reportRequestDateValidator;
     @Mock
     private ForeignExchangeRateService foreignExchangeRateService;
+    @Mock
+    private AsyncForeignExchangeRateService asyncForeignExchangeRateService;
+    @Mock
+    private ExchangeRateRepository exchangeRateRepository;
 
     @BeforeEach
     void setUp() {
-        exchangeRateService = new ExchangeRateService(reportRequestDateValidator, foreignExchangeRateService);
+        meterRegistry = new SimpleMeterRegistry();
+        UpstreamHistoryService upstreamHistoryService = new UpstreamHistoryService(foreignExchangeRateService, asyncForeignExchangeRateService, CircuitBreaker.ofDefaults("exchangeratesapi"), meterRegistry);
+        CrossRateService crossRateService = new CrossRateService(upstreamHistoryService, Caffeine.newBuilder().build());
+        ExchangeRateHistoryService exchangeRateHistoryService = new ExchangeRateHistoryService(upstreamHistoryService, crossRateService, exchangeRateRepository, Runnable::run);
+        RateWindowService rateWindowService = new RateWindowService(exchangeRateHistoryService, Caffeine.newBuilder().buildAsync());
+        rateWindowService.setMaximumWindowDays(30);
+        exchangeRateService = new ExchangeRateService(reportRequestDateValidator, exchangeRateHistoryService, rateWindowService, Caffeine.newBuilder().buildAsync(), meterRegistry);
         exchangeRateService.setAverageDaysAmount(5);
     }
 
@@ -67,11 +109,9 @@ class ExchangeRateServiceTest {
                 .end_at(date)
                 .build();
 
-        DateCurrencyMapping dateCurrencyMapping = DateCurrencyMapping.builder()
-                .rates(Collections.emptyMap())
-                .build();
+        CurrencyRateHistory currencyRateHistory = buildCurrencyRateHistory(Collections.emptyMap());
 
-        when(foreignExchangeRateService.getHistory(queryParams)).thenReturn(dateCurrencyMapping);
+        when(foreignExchangeRateService.getHistory(queryParams)).thenReturn(currencyRateHistory);
 
         //When
         Throwable throwable = catchThrowable(() -> exchangeRateService.getReport(date, baseCurrency, targetCurrency));
@@ -97,9 +137,7 @@ class ExchangeRateServiceTest {
         Map<String, Map<String, Double>> rates = new HashMap<>();
         rates.put("2020-02-08", Collections.singletonMap(targetCurrency, 3.45));
 
-        DateCurrencyMapping dateCurrencyMapping = DateCurrencyMapping.builder()
-                .rates(rates)
-                .build();
+        CurrencyRateHistory currencyRateHistory = buildCurrencyRateHistory(rates);
 
         ExchangeRateReport expectedReport = ExchangeRateReport.builder()
                 .id("USD_BRL_2020-02-08")
@@ -107,7 +145,7 @@ class ExchangeRateServiceTest {
                 .rate(3.45)
                 .build();
 
-        when(foreignExchangeRateService.getHistory(queryParams)).thenReturn(dateCurrencyMapping);
+        when(foreignExchangeRateService.getHistory(queryParams)).thenReturn(currencyRateHistory);
 
         //When
         ExchangeRateReport actualReport = exchangeRateService.getReport(date, baseCurrency, targetCurrency);
@@ -116,6 +154,35 @@ class ExchangeRateServiceTest {
         assertThat(actualReport).isEqualTo(expectedReport);
     }
 
+    @Test
+    void shouldTimeReportPhasesAndUpstreamCall() {
+        //Given
+        LocalDate date = LocalDate.of(2020, 2, 8);
+        String baseCurrency = "USD";
+        String targetCurrency = "BRL";
+        ForeignExchangeRateService.QueryParams queryParams = ForeignExchangeRateService.QueryParams.builder()
+                .base(baseCurrency)
+                .symbols(targetCurrency)
+                .start_at(date.minus(7, ChronoUnit.DAYS))
+                .end_at(date)
+                .build();
+
+        CurrencyRateHistory currencyRateHistory = buildCurrencyRateHistory(Collections.singletonMap("2020-02-08", Collections.singletonMap(targetCurrency, 3.45)));
+
+        when(foreignExchangeRateService.getHistory(queryParams)).thenReturn(currencyRateHistory);
+
+        //When
+        exchangeRateService.getReport(date, baseCurrency, targetCurrency);
+        exchangeRateService.getReport(date, baseCurrency, targetCurrency);
+
+        //Then
+        assertThat(meterRegistry.get(ExchangeRateService.REPORT_TIMER_NAME).tag("exception", "none").timer().count()).isEqualTo(2);
+        assertThat(meterRegistry.get(ExchangeRateService.REPORT_PHASE_TIMER_NAME).tag("phase", "validate").timer().count()).isEqualTo(2);
+        assertThat(meterRegistry.get(ExchangeRateService.REPORT_PHASE_TIMER_NAME).tag("phase", "fetch").timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get(ExchangeRateService.REPORT_PHASE_TIMER_NAME).tag("phase", "compute").timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get(UpstreamHistoryService.UPSTREAM_TIMER_NAME).tags("client", "blocking", "status", "200").timer().count()).isEqualTo(1);
+    }
+
     @Test
     void shouldGetAscendingTrendReportExchangeRate() {
         //Given
@@ -137,9 +204,7 @@ class ExchangeRateServiceTest {
         rates.put("2020-02-02", Collections.singletonMap(targetCurrency, 3.41));
         rates.put("2020-02-01", Collections.singletonMap(targetCurrency, 3.40));
 
-        DateCurrencyMapping dateCurrencyMapping = DateCurrencyMapping.builder()
-                .rates(rates)
-                .build();
+        CurrencyRateHistory currencyRateHistory = buildCurrencyRateHistory(rates);
 
         ExchangeRateReport expectedReport = ExchangeRateReport.builder()
                 .id("USD_BRL_2020-02-08")
@@ -148,7 +213,7 @@ class ExchangeRateServiceTest {
                 .trend(Trend.ASCENDING.getTrendName())
                 .build();
 
-        when(foreignExchangeRateService.getHistory(queryParams)).thenReturn(dateCurrencyMapping);
+        when(foreignExchangeRateService.getHistory(queryParams)).thenReturn(currencyRateHistory);
 
         //When
         ExchangeRateReport actualReport = exchangeRateService.getReport(date, baseCurrency, targetCurrency);
@@ -178,9 +243,7 @@ class ExchangeRateServiceTest {
         rates.put("2020-02-02", Collections.singletonMap(targetCurrency, 3.44));
         rates.put("2020-02-01", Collections.singletonMap(targetCurrency, 3.45));
 
-        DateCurrencyMapping dateCurrencyMapping = DateCurrencyMapping.builder()
-                .rates(rates)
-                .build();
+        CurrencyRateHistory currencyRateHistory = buildCurrencyRateHistory(rates);
 
         ExchangeRateReport expectedReport = ExchangeRateReport.builder()
                 .id("USD_BRL_2020-02-08")
@@ -189,7 +252,7 @@ class ExchangeRateServiceTest {
                 .trend(Trend.DESCENDING.getTrendName())
                 .build();
 
-        when(foreignExchangeRateService.getHistory(queryParams)).thenReturn(dateCurrencyMapping);
+        when(foreignExchangeRateService.getHistory(queryParams)).thenReturn(currencyRateHistory);
 
         //When
         ExchangeRateReport actualReport = exchangeRateService.getReport(date, baseCurrency, targetCurrency);
@@ -219,9 +282,7 @@ class ExchangeRateServiceTest {
         rates.put("2020-02-02", Collections.singletonMap(targetCurrency, 3.41));
         rates.put("2020-02-01", Collections.singletonMap(targetCurrency, 3.41));
 
-        DateCurrencyMapping dateCurrencyMapping = DateCurrencyMapping.builder()
-                .rates(rates)
-                .build();
+        CurrencyRateHistory currencyRateHistory = buildCurrencyRateHistory(rates);
 
         ExchangeRateReport expectedReport = ExchangeRateReport.builder()
                 .id("USD_BRL_2020-02-08")
@@ -230,7 +291,7 @@ class ExchangeRateServiceTest {
                 .trend(Trend.CONSTANT.getTrendName())
                 .build();
 
-        when(foreignExchangeRateService.getHistory(queryParams)).thenReturn(dateCurrencyMapping);
+        when(foreignExchangeRateService.getHistory(queryParams)).thenReturn(currencyRateHistory);
 
         //When
         ExchangeRateReport actualReport = exchangeRateService.getReport(date, baseCurrency, targetCurrency);
@@ -260,9 +321,7 @@ class ExchangeRateServiceTest {
         rates.put("2020-02-02", Collections.singletonMap(targetCurrency, 3.40));
         rates.put("2020-02-01", Collections.singletonMap(targetCurrency, 3.39));
 
-        DateCurrencyMapping dateCurrencyMapping = DateCurrencyMapping.builder()
-                .rates(rates)
-                .build();
+        CurrencyRateHistory currencyRateHistory = buildCurrencyRateHistory(rates);
 
         ExchangeRateReport expectedReport = ExchangeRateReport.builder()
                 .id("USD_BRL_2020-02-08")
@@ -271,12 +330,547 @@ class ExchangeRateServiceTest {
                 .trend(Trend.UNDEFINED.getTrendName())
                 .build();
 
-        when(foreignExchangeRateService.getHistory(queryParams)).thenReturn(dateCurrencyMapping);
+        when(foreignExchangeRateService.getHistory(queryParams)).thenReturn(currencyRateHistory);
+
+        //When
+        ExchangeRateReport actualReport = exchangeRateService.getReport(date, baseCurrency, targetCurrency);
+
+        //Then
+        assertThat(actualReport).isEqualTo(expectedReport);
+    }
+
+    @Test
+    void shouldGetReportFromStoredRatesWithoutFetching() {
+        //Given
+        LocalDate date = LocalDate.of(2020, 2, 8);
+        String baseCurrency = "USD";
+        String targetCurrency = "BRL";
+
+        List<ExchangeRate> storedRates = Arrays.asList(
+                new ExchangeRate(LocalDate.of(2020, 2, 1), baseCurrency, targetCurrency, 3.40),
+                new ExchangeRate(LocalDate.of(2020, 2, 2), baseCurrency, targetCurrency, 3.41),
+                new ExchangeRate(LocalDate.of(2020, 2, 3), baseCurrency, targetCurrency, null),
+                new ExchangeRate(LocalDate.of(2020, 2, 4), baseCurrency, targetCurrency, null),
+                new ExchangeRate(LocalDate.of(2020, 2, 5), baseCurrency, targetCurrency, 3.42),
+                new ExchangeRate(LocalDate.of(2020, 2, 6), baseCurrency, targetCurrency, 3.43),
+                new ExchangeRate(LocalDate.of(2020, 2, 7), baseCurrency, targetCurrency, 3.44),
+                new ExchangeRate(LocalDate.of(2020, 2, 8), baseCurrency, targetCurrency, 3.45));
+
+        ExchangeRateReport expectedReport = ExchangeRateReport.builder()
+                .id("USD_BRL_2020-02-08")
+                .averageRate(3.4200000000000004)
+                .rate(3.45)
+                .trend(Trend.ASCENDING.getTrendName())
+                .build();
+
+        when(exchangeRateRepository.findByBaseCurrencyAndTargetCurrencyInAndRateDateBetween(baseCurrency, Collections.singleton(targetCurrency), date.minus(7, ChronoUnit.DAYS), date))
+                .thenReturn(storedRates);
 
         //When
         ExchangeRateReport actualReport = exchangeRateService.getReport(date, baseCurrency, targetCurrency);
 
         //Then
         assertThat(actualReport).isEqualTo(expectedReport);
+        verifyNoInteractions(foreignExchangeRateService);
+    }
+
+    @Test
+    void shouldFetchAndStoreOnlyMissingRates() {
+        //Given
+        LocalDate date = LocalDate.of(2020, 2, 8);
+        String baseCurrency = "USD";
+        String targetCurrency = "BRL";
+
+        List<ExchangeRate> storedRates = Arrays.asList(
+                new ExchangeRate(LocalDate.of(2020, 2, 1), baseCurrency, targetCurrency, 3.40),
+                new ExchangeRate(LocalDate.of(2020, 2, 2), baseCurrency, targetCurrency, 3.41),
+                new ExchangeRate(LocalDate.of(2020, 2, 3), baseCurrency, targetCurrency, null),
+                new ExchangeRate(LocalDate.of(2020, 2, 4), baseCurrency, targetCurrency, null),
+                new ExchangeRate(LocalDate.of(2020, 2, 5), baseCurrency, targetCurrency, 3.42),
+                new ExchangeRate(LocalDate.of(2020, 2, 6), baseCurrency, targetCurrency, 3.43));
+
+        ForeignExchangeRateService.QueryParams queryParams = ForeignExchangeRateService.QueryParams.builder()
+                .base(baseCurrency)
+                .symbols(targetCurrency)
+                .start_at(date.minus(1, ChronoUnit.DAYS))
+                .end_at(date)
+                .build();
+
+        Map<String, Map<String, Double>> rates = new HashMap<>();
+        rates.put("2020-02-08", Collections.singletonMap(targetCurrency, 3.45));
+        rates.put("2020-02-07", Collections.singletonMap(targetCurrency, 3.44));
+
+        CurrencyRateHistory currencyRateHistory = buildCurrencyRateHistory(rates);
+
+        ExchangeRateReport expectedReport = ExchangeRateReport.builder()
+                .id("USD_BRL_2020-02-08")
+                .averageRate(3.4200000000000004)
+                .rate(3.45)
+                .trend(Trend.ASCENDING.getTrendName())
+                .build();
+
+        List<ExchangeRate> expectedStoredRates = Arrays.asList(
+                new ExchangeRate(LocalDate.of(2020, 2, 7), baseCurrency, targetCurrency, 3.44),
+                new ExchangeRate(LocalDate.of(2020, 2, 8), baseCurrency, targetCurrency, 3.45));
+
+        when(exchangeRateRepository.findByBaseCurrencyAndTargetCurrencyInAndRateDateBetween(baseCurrency, Collections.singleton(targetCurrency), date.minus(7, ChronoUnit.DAYS), date))
+                .thenReturn(storedRates);
+        when(foreignExchangeRateService.getHistory(queryParams)).thenReturn(currencyRateHistory);
+
+        //When
+        ExchangeRateReport actualReport = exchangeRateService.getReport(date, baseCurrency, targetCurrency);
+
+        //Then
+        assertThat(actualReport).isEqualTo(expectedReport);
+        verify(exchangeRateRepository).insertAllIfAbsent(expectedStoredRates);
+    }
+
+    @Test
+    void shouldGetCachedReportOnRepeatedRequest() {
+        //Given
+        LocalDate date = LocalDate.of(2020, 2, 8);
+        String baseCurrency = "USD";
+        String targetCurrency = "BRL";
+        ForeignExchangeRateService.QueryParams queryParams = ForeignExchangeRateService.QueryParams.builder()
+                .base(baseCurrency)
+                .symbols(targetCurrency)
+                .start_at(date.minus(7, ChronoUnit.DAYS))
+                .end_at(date)
+                .build();
+
+        CurrencyRateHistory currencyRateHistory = buildCurrencyRateHistory(Collections.singletonMap("2020-02-08", Collections.singletonMap(targetCurrency, 3.45)));
+
+        when(foreignExchangeRateService.getHistory(queryParams)).thenReturn(currencyRateHistory);
+        ExchangeRateReport expectedReport = exchangeRateService.getReport(date, baseCurrency, targetCurrency);
+
+        //When
+        ExchangeRateReport actualReport = exchangeRateService.getReport(date, baseCurrency, targetCurrency);
+
+        //Then
+        assertThat(actualReport).isSameAs(expectedReport);
+        verify(foreignExchangeRateService, times(1)).getHistory(queryParams);
+        verify(exchangeRateRepository, times(1)).findByBaseCurrencyAndTargetCurrencyInAndRateDateBetween(baseCurrency, Collections.singleton(targetCurrency), date.minus(7, ChronoUnit.DAYS), date);
+    }
+
+    @Test
+    void shouldFetchOnceForConcurrentIdenticalRequests() throws Exception {
+        //Given
+        int concurrentRequests = 1000;
+        LocalDate date = LocalDate.of(2020, 2, 8);
+        String baseCurrency = "USD";
+        String targetCurrency = "BRL";
+        ForeignExchangeRateService.QueryParams queryParams = ForeignExchangeRateService.QueryParams.builder()
+                .base(baseCurrency)
+                .symbols(targetCurrency)
+                .start_at(date.minus(7, ChronoUnit.DAYS))
+                .end_at(date)
+                .build();
+
+        CurrencyRateHistory currencyRateHistory = buildCurrencyRateHistory(Collections.singletonMap("2020-02-08", Collections.singletonMap(targetCurrency, 3.45)));
+
+        ExchangeRateReport expectedReport = ExchangeRateReport.builder()
+                .id("USD_BRL_2020-02-08")
+                .averageRate(0.0)
+                .rate(3.45)
+                .build();
+
+        CountDownLatch requestsStarted = new CountDownLatch(concurrentRequests);
+        doAnswer(invocation -> {
+            requestsStarted.countDown();
+            return null;
+        }).when(reportRequestDateValidator).validate(date);
+        when(foreignExchangeRateService.getHistory(queryParams)).thenAnswer(invocation -> {
+            requestsStarted.await();
+            Thread.sleep(100);
+            return currencyRateHistory;
+        });
+
+        //When
+        List<Future<ExchangeRateReport>> actualReports = runConcurrently(concurrentRequests,
+                () -> exchangeRateService.getReport(date, baseCurrency, targetCurrency));
+
+        //Then
+        for (Future<ExchangeRateReport> actualReport : actualReports) {
+            assertThat(actualReport.get()).isEqualTo(expectedReport);
+        }
+        verify(foreignExchangeRateService, times(1)).getHistory(queryParams);
+    }
+
+    @Test
+    void shouldShareFailureWithConcurrentIdenticalRequests() throws Exception {
+        //Given
+        int concurrentRequests = 100;
+        LocalDate date = LocalDate.of(2020, 2, 8);
+        String baseCurrency = "USD";
+        String targetCurrency = "BRL";
+        ForeignExchangeRateService.QueryParams queryParams = ForeignExchangeRateService.QueryParams.builder()
+                .base(baseCurrency)
+                .symbols(targetCurrency)
+                .start_at(date.minus(7, ChronoUnit.DAYS))
+                .end_at(date)
+                .build();
+
+        CountDownLatch requestsStarted = new CountDownLatch(concurrentRequests);
+        doAnswer(invocation -> {
+            requestsStarted.countDown();
+            return null;
+        }).when(reportRequestDateValidator).validate(date);
+        when(foreignExchangeRateService.getHistory(queryParams)).thenAnswer(invocation -> {
+            requestsStarted.await();
+            Thread.sleep(100);
+            throw new IllegalStateException("Upstream unavailable");
+        });
+
+        //When
+        List<Future<ExchangeRateReport>> actualReports = runConcurrently(concurrentRequests,
+                () -> exchangeRateService.getReport(date, baseCurrency, targetCurrency));
+
+        //Then
+        for (Future<ExchangeRateReport> actualReport : actualReports) {
+            assertThat(catchThrowable(actualReport::get))
+                    .isInstanceOf(ExecutionException.class)
+                    .hasCauseInstanceOf(IllegalStateException.class);
+        }
+        verify(foreignExchangeRateService, times(1)).getHistory(queryParams);
+    }
+
+    @Test
+    void shouldGetReportsOfSeveralTargetsWithOneFetch() {
+        //Given
+        LocalDate date = LocalDate.of(2020, 2, 8);
+        String baseCurrency = "USD";
+        ForeignExchangeRateService.QueryParams queryParams = ForeignExchangeRateService.QueryParams.builder()
+                .base(baseCurrency)
+                .symbols("BRL,GBP")
+                .start_at(date.minus(7, ChronoUnit.DAYS))
+                .end_at(date)
+                .build();
+
+        Map<String, Double> secondDayRates = new HashMap<>();
+        secondDayRates.put("BRL", 3.45);
+        secondDayRates.put("GBP", 0.77);
+        Map<String, Double> firstDayRates = new HashMap<>();
+        firstDayRates.put("BRL", 3.44);
+        firstDayRates.put("GBP", 0.78);
+        Map<String, Map<String, Double>> rates = new HashMap<>();
+        rates.put("2020-02-08", secondDayRates);
+        rates.put("2020-02-07", firstDayRates);
+
+        CurrencyRateHistory currencyRateHistory = buildCurrencyRateHistory(rates);
+
+        List<ExchangeRateReport> expectedReports = Arrays.asList(
+                ExchangeRateReport.builder()
+                        .id("USD_GBP_2020-02-08")
+                        .averageRate(0.78)
+                        .rate(0.77)
+                        .build(),
+                ExchangeRateReport.builder()
+                        .id("USD_BRL_2020-02-08")
+                        .averageRate(3.44)
+                        .rate(3.45)
+                        .build());
+
+        when(foreignExchangeRateService.getHistory(queryParams)).thenReturn(currencyRateHistory);
+
+        //When
+        List<ExchangeRateReport> actualReports = exchangeRateService.getReports(date, baseCurrency, Arrays.asList("GBP", "BRL"));
+
+        //Then
+        assertThat(actualReports).isEqualTo(expectedReports);
+        verify(foreignExchangeRateService, times(1)).getHistory(queryParams);
+    }
+
+    @Test
+    void shouldGetReportAsynchronouslyOnceRatesAreFetched() {
+        //Given
+        LocalDate date = LocalDate.of(2020, 2, 8);
+        String baseCurrency = "USD";
+        String targetCurrency = "BRL";
+        ForeignExchangeRateService.QueryParams queryParams = ForeignExchangeRateService.QueryParams.builder()
+                .base(baseCurrency)
+                .symbols(targetCurrency)
+                .start_at(date.minus(7, ChronoUnit.DAYS))
+                .end_at(date)
+                .build();
+
+        Map<String, Map<String, Double>> rates = new HashMap<>();
+        rates.put("2020-02-08", Collections.singletonMap(targetCurrency, 3.45));
+        rates.put("2020-02-07", Collections.singletonMap(targetCurrency, 3.44));
+
+        CompletableFuture<CurrencyRateHistory> history = new CompletableFuture<>();
+
+        ExchangeRateReport expectedReport = ExchangeRateReport.builder()
+                .id("USD_BRL_2020-02-08")
+                .averageRate(3.44)
+                .rate(3.45)
+                .build();
+
+        when(asyncForeignExchangeRateService.getHistory(queryParams)).thenReturn(history);
+
+        //When
+        CompletableFuture<ExchangeRateReport> actualReport = exchangeRateService.getReportAsync(date, baseCurrency, targetCurrency);
+
+        //Then
+        assertThat(actualReport).isNotDone();
+        history.complete(buildCurrencyRateHistory(rates));
+        assertThat(actualReport).isCompletedWithValue(expectedReport);
+        verify(exchangeRateRepository).insertAllIfAbsent(anyList());
+        verifyNoInteractions(foreignExchangeRateService);
+    }
+
+    @Test
+    void shouldAddStatisticsOfRequestedWindowsToReport() {
+        //Given
+        LocalDate date = LocalDate.of(2020, 2, 8);
+        String baseCurrency = "USD";
+        String targetCurrency = "BRL";
+        ForeignExchangeRateService.QueryParams windowQueryParams = ForeignExchangeRateService.QueryParams.builder()
+                .base(baseCurrency)
+                .symbols(targetCurrency)
+                .start_at(date.minus(30, ChronoUnit.DAYS))
+                .end_at(date)
+                .build();
+        ForeignExchangeRateService.QueryParams reportQueryParams = ForeignExchangeRateService.QueryParams.builder()
+                .base(baseCurrency)
+                .symbols(targetCurrency)
+                .start_at(date.minus(7, ChronoUnit.DAYS))
+                .end_at(date)
+                .build();
+
+        Map<String, Map<String, Double>> rates = new HashMap<>();
+        rates.put("2020-02-03", Collections.singletonMap(targetCurrency, 3.40));
+        rates.put("2020-02-04", Collections.singletonMap(targetCurrency, 3.42));
+        rates.put("2020-02-05", Collections.singletonMap(targetCurrency, 3.38));
+        rates.put("2020-02-06", Collections.singletonMap(targetCurrency, 3.44));
+        rates.put("2020-02-07", Collections.singletonMap(targetCurrency, 3.44));
+        rates.put("2020-02-08", Collections.singletonMap(targetCurrency, 3.45));
+
+        when(asyncForeignExchangeRateService.getHistory(windowQueryParams)).thenReturn(CompletableFuture.completedFuture(buildCurrencyRateHistory(rates)));
+        when(asyncForeignExchangeRateService.getHistory(reportQueryParams)).thenReturn(CompletableFuture.completedFuture(buildCurrencyRateHistory(rates)));
+
+        //When
+        ExchangeRateReport actualReport = exchangeRateService.getReportAsync(date, baseCurrency, targetCurrency, Arrays.asList(3, 30)).join();
+
+        //Then
+        assertThat(actualReport.getRate()).isEqualTo(3.45);
+        assertThat(actualReport.getWindows()).containsOnlyKeys(3, 30);
+        RateWindowStatistics shortWindow = actualReport.getWindows().get(3);
+        assertThat(shortWindow.getQuotedDays()).isEqualTo(3);
+        assertThat(shortWindow.getAverageRate()).isCloseTo(3.42, within(1e-9));
+        assertThat(shortWindow.getMinimumRate()).isEqualTo(3.38);
+        assertThat(shortWindow.getMaximumRate()).isEqualTo(3.44);
+        assertThat(shortWindow.getTrend()).isEqualTo("undefined");
+        RateWindowStatistics longWindow = actualReport.getWindows().get(30);
+        assertThat(longWindow.getQuotedDays()).isEqualTo(5);
+        assertThat(longWindow.getAverageRate()).isCloseTo(3.416, within(1e-9));
+    }
+
+    @Test
+    void shouldFailOnWindowLongerThanSupported() {
+        //Given
+        LocalDate date = LocalDate.of(2020, 2, 8);
+
+        //When
+        Throwable throwable = catchThrowable(() -> exchangeRateService.getReportAsync(date, "USD", "BRL", Collections.singletonList(31)));
+
+        //Then
+        assertThat(throwable).isInstanceOf(InvalidWindowException.class)
+                .hasMessage("Window should be between 1 and 30 days");
+        verifyNoInteractions(asyncForeignExchangeRateService);
+    }
+
+    @Test
+    void shouldMergeBulkQueriesOfOverlappingDatesIntoOneFetch() {
+        //Given
+        ForeignExchangeRateService.QueryParams februaryQueryParams = ForeignExchangeRateService.QueryParams.builder()
+                .base("USD")
+                .symbols("BRL,GBP")
+                .start_at(LocalDate.of(2020, 1, 29))
+                .end_at(LocalDate.of(2020, 2, 6))
+                .build();
+        ForeignExchangeRateService.QueryParams marchQueryParams = ForeignExchangeRateService.QueryParams.builder()
+                .base("USD")
+                .symbols("BRL")
+                .start_at(LocalDate.of(2020, 3, 13))
+                .end_at(LocalDate.of(2020, 3, 20))
+                .build();
+
+        Map<String, Map<String, Double>> februaryRates = new HashMap<>();
+        februaryRates.put("2020-02-04", Collections.singletonMap("BRL", 4.2));
+        februaryRates.put("2020-02-05", Collections.singletonMap("BRL", 4.3));
+        februaryRates.put("2020-02-06", Collections.singletonMap("GBP", 0.77));
+
+        when(asyncForeignExchangeRateService.getHistory(februaryQueryParams)).thenReturn(CompletableFuture.completedFuture(buildCurrencyRateHistory(februaryRates)));
+        when(asyncForeignExchangeRateService.getHistory(marchQueryParams)).thenReturn(CompletableFuture.completedFuture(buildCurrencyRateHistory(
+                Collections.singletonMap("2020-03-20", Collections.singletonMap("BRL", 4.9)))));
+
+        List<ReportQuery> queries = Arrays.asList(
+                new ReportQuery("2020-03-20", "USD", "BRL"),
+                new ReportQuery("2020-02-05", "USD", "BRL"),
+                new ReportQuery("2020-02-31", "USD", "BRL"),
+                new ReportQuery("2020-02-06", "USD", "GBP"),
+                new ReportQuery("2020-02-05", "USD", "BRL"));
+
+        //When
+        List<CompletableFuture<ExchangeRateReport>> actualReports = exchangeRateService.getReportsAsync(queries);
+
+        //Then
+        assertThat(actualReports).hasSize(5);
+        assertThat(actualReports.get(0).join().getId()).isEqualTo("USD_BRL_2020-03-20");
+        assertThat(actualReports.get(1).join().getAverageRate()).isEqualTo(4.2);
+        assertThat(catchThrowable(actualReports.get(2)::join)).hasCauseInstanceOf(DateTimeException.class);
+        assertThat(actualReports.get(3).join().getRate()).isEqualTo(0.77);
+        assertThat(actualReports.get(4).join()).isEqualTo(actualReports.get(1).join());
+        verify(asyncForeignExchangeRateService, times(1)).getHistory(februaryQueryParams);
+        verify(asyncForeignExchangeRateService, times(1)).getHistory(marchQueryParams);
+    }
+
+    @Test
+    void shouldFetchTargetsOfFailedBulkFetchOneByOne() {
+        //Given
+        LocalDate date = LocalDate.of(2020, 2, 5);
+        ForeignExchangeRateService.QueryParams.QueryParamsBuilder queryParams = ForeignExchangeRateService.QueryParams.builder()
+                .base("USD")
+                .start_at(date.minus(7, ChronoUnit.DAYS))
+                .end_at(date);
+        CompletableFuture<CurrencyRateHistory> unsupportedCurrency = new CompletableFuture<>();
+        unsupportedCurrency.completeExceptionally(new UnsupportedCurrencyException("Used currency 'BRLA' is not supported"));
+
+        when(asyncForeignExchangeRateService.getHistory(queryParams.symbols("BRL,BRLA").build())).thenReturn(unsupportedCurrency);
+        when(asyncForeignExchangeRateService.getHistory(queryParams.symbols("BRLA").build())).thenReturn(unsupportedCurrency);
+        when(asyncForeignExchangeRateService.getHistory(queryParams.symbols("BRL").build())).thenReturn(CompletableFuture.completedFuture(buildCurrencyRateHistory(
+                Collections.singletonMap("2020-02-05", Collections.singletonMap("BRL", 4.3)))));
+
+        //When
+        List<CompletableFuture<ExchangeRateReport>> actualReports = exchangeRateService.getReportsAsync(Arrays.asList(
+                new ReportQuery("2020-02-05", "USD", "BRL"),
+                new ReportQuery("2020-02-05", "USD", "BRLA")));
+
+        //Then
+        assertThat(actualReports.get(0).join().getRate()).isEqualTo(4.3);
+        assertThat(catchThrowable(actualReports.get(1)::join)).hasCauseInstanceOf(UnsupportedCurrencyException.class);
+    }
+
+    @Test
+    void shouldStreamReportsOfDateRange() {
+        //Given
+        LocalDate startDate = LocalDate.of(2020, 2, 7);
+        LocalDate endDate = LocalDate.of(2020, 2, 9);
+        String baseCurrency = "USD";
+        String targetCurrency = "BRL";
+        ForeignExchangeRateService.QueryParams queryParams = ForeignExchangeRateService.QueryParams.builder()
+                .base(baseCurrency)
+                .symbols(targetCurrency)
+                .start_at(LocalDate.of(2020, 1, 31))
+                .end_at(endDate)
+                .build();
+
+        Map<String, Map<String, Double>> rates = new HashMap<>();
+        rates.put("2020-01-31", Collections.singletonMap(targetCurrency, 3.45));
+        rates.put("2020-02-03", Collections.singletonMap(targetCurrency, 3.41));
+        rates.put("2020-02-04", Collections.singletonMap(targetCurrency, 3.42));
+        rates.put("2020-02-05", Collections.singletonMap(targetCurrency, 3.43));
+        rates.put("2020-02-06", Collections.singletonMap(targetCurrency, 3.44));
+        rates.put("2020-02-07", Collections.singletonMap(targetCurrency, 3.45));
+        rates.put("2020-02-08", Collections.singletonMap(targetCurrency, 3.46));
+
+        CurrencyRateHistory currencyRateHistory = buildCurrencyRateHistory(rates);
+
+        when(foreignExchangeRateService.getHistory(queryParams)).thenReturn(currencyRateHistory);
+
+        //When
+        List<ExchangeRateReport> actualReports = exchangeRateService.getReports(startDate, endDate, baseCurrency, targetCurrency)
+                .collect(Collectors.toList());
+
+        //Then
+        assertThat(actualReports).extracting(ExchangeRateReport::getId)
+                .containsExactly("USD_BRL_2020-02-07", "USD_BRL_2020-02-08");
+        assertThat(actualReports).extracting(ExchangeRateReport::getRate)
+                .containsExactly(3.45, 3.46);
+        assertThat(actualReports.get(0).getAverageRate()).isCloseTo(3.43, within(1e-9));
+        assertThat(actualReports.get(0).getTrend()).isEqualTo(Trend.UNDEFINED.getTrendName());
+        assertThat(actualReports.get(1).getAverageRate()).isCloseTo(3.43, within(1e-9));
+        assertThat(actualReports.get(1).getTrend()).isEqualTo(Trend.ASCENDING.getTrendName());
+    }
+
+    @Test
+    void shouldPrefetchLatestWindowAndCacheReportOfLatestDate() {
+        //Given
+        LocalDate today = LocalDate.now();
+        LocalDate latestDate = today.minus(1, ChronoUnit.DAYS);
+        String baseCurrency = "USD";
+        String targetCurrency = "BRL";
+        ForeignExchangeRateService.QueryParams windowQueryParams = ForeignExchangeRateService.QueryParams.builder()
+                .base(baseCurrency)
+                .symbols(targetCurrency)
+                .start_at(latestDate.minus(7, ChronoUnit.DAYS))
+                .end_at(today)
+                .build();
+        ForeignExchangeRateService.QueryParams reportQueryParams = ForeignExchangeRateService.QueryParams.builder()
+                .base(baseCurrency)
+                .symbols(targetCurrency)
+                .start_at(latestDate.minus(7, ChronoUnit.DAYS))
+                .end_at(latestDate)
+                .build();
+
+        Map<String, Map<String, Double>> rates = new HashMap<>();
+        rates.put(latestDate.toString(), Collections.singletonMap(targetCurrency, 3.45));
+        rates.put(today.toString(), Collections.singletonMap(targetCurrency, 3.46));
+
+        CurrencyRateHistory currencyRateHistory = buildCurrencyRateHistory(rates);
+
+        //the mocked store keeps nothing, so the report of the latest date is fetched again while prefetching
+        when(foreignExchangeRateService.getHistory(windowQueryParams)).thenReturn(currencyRateHistory);
+        when(foreignExchangeRateService.getHistory(reportQueryParams)).thenReturn(currencyRateHistory);
+
+        //When
+        exchangeRateService.prefetch(baseCurrency, Collections.singletonList(targetCurrency));
+        ExchangeRateReport actualReport = exchangeRateService.getReport(latestDate, baseCurrency, targetCurrency);
+
+        //Then
+        assertThat(actualReport.getRate()).isEqualTo(3.45);
+        verify(foreignExchangeRateService, times(1)).getHistory(windowQueryParams);
+        verify(foreignExchangeRateService, times(1)).getHistory(reportQueryParams);
+    }
+
+    @Test
+    void shouldFailOnInvertedDateRange() {
+        //Given
+        LocalDate startDate = LocalDate.of(2020, 2, 9);
+        LocalDate endDate = LocalDate.of(2020, 2, 7);
+
+        //When
+        Throwable throwable = catchThrowable(() -> exchangeRateService.getReports(startDate, endDate, "USD", "BRL"));
+
+        //Then
+        assertThat(throwable).isInstanceOf(ExchangeRateDateOutOfBoundsException.class)
+                .hasMessage("Exchange rate start date 2020-02-09 should not be after end date 2020-02-07");
+    }
+
+    private CurrencyRateHistory buildCurrencyRateHistory(Map<String, Map<String, Double>> ratesByDate) {
+        Map<String, RateSeries.Builder> seriesBuilders = new HashMap<>();
+        ratesByDate.forEach((day, rates) -> rates.forEach((currency, rate) ->
+                seriesBuilders.computeIfAbsent(currency, key -> RateSeries.builder()).add(LocalDate.parse(day), rate)));
+
+        Map<String, RateSeries> rates = new HashMap<>();
+        seriesBuilders.forEach((currency, seriesBuilder) -> rates.put(currency, seriesBuilder.build()));
+        return CurrencyRateHistory.builder()
+                .rates(rates)
+                .build();
+    }
+
+    private <T> List<Future<T>> runConcurrently(int times, Callable<T> task) throws InterruptedException {
+        ExecutorService executorService = Executors.newFixedThreadPool(times);
+        try {
+            List<Future<T>> futures = new ArrayList<>();
+            for (int i = 0; i < times; i++) {
+                futures.add(executorService.submit(task));
+            }
+            executorService.shutdown();
+            executorService.awaitTermination(30, TimeUnit.SECONDS);
+            return futures;
+        } finally {
+            executorService.shutdownNow();
+        }
     }
 }
\ No newline at end of file
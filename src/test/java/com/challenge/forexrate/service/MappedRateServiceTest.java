@@ -0,0 +1,136 @@
+package com.challenge.forexrate.service;
+
+import com.challenge.forexrate.model.MappedRateHistory;
+import com.challenge.forexrate.model.RateSeries;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.exchangeratesapi.api.client.ForeignExchangeRateService;
+import io.exchangeratesapi.api.client.model.CurrencyRateHistory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class MappedRateServiceTest {
+
+    private static final LocalDate FIRST_DATE = LocalDate.of(1999, 1, 4);
+    private static final LocalDate LAST_DATE = LocalDate.of(2021, 3, 1);
+    private static final int CURRENCIES = 32;
+    private static final int CHUNK_DAYS = 365;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final List<ForeignExchangeRateService.QueryParams> queries = new ArrayList<>();
+    private final List<Integer> responseSizes = new ArrayList<>();
+    private final List<Runnable> applicationTasks = new ArrayList<>();
+
+    @TempDir
+    Path directory;
+
+    @Mock
+    private RateProvider rateProvider;
+
+    private MappedRateHistory mappedRateHistory;
+    private MappedRateService mappedRateService;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        mappedRateHistory = MappedRateHistory.open(directory.resolve("rates.bin"), 64, 20000, Math.toIntExact(FIRST_DATE.toEpochDay()));
+        mappedRateService = new MappedRateService(rateProvider, mappedRateHistory, CHUNK_DAYS, applicationTasks::add);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        mappedRateHistory.close();
+    }
+
+    @Test
+    void shouldBackfillAnEmptyHistoryInChunks() {
+        //Given
+        when(rateProvider.getHistory(any())).thenAnswer(invocation -> publishHistory(invocation.getArgument(0)));
+
+        //When
+        mappedRateService.backfill(LAST_DATE);
+
+        //Then
+        assertThat(mappedRateHistory.getLastEpochDay()).isEqualTo(LAST_DATE.toEpochDay());
+        assertThat(queries).hasSizeGreaterThan(20);
+        queries.forEach(queryParams -> assertThat(ChronoUnit.DAYS.between(queryParams.getStart_at(), queryParams.getEnd_at())).isLessThan(CHUNK_DAYS));
+        assertThat(Collections.max(responseSizes)).isBetween(100 * 1024, 512 * 1024);
+
+        int backfillQueries = queries.size();
+        Map<String, RateSeries> rates = mappedRateService.getRates(LocalDate.of(2008, 9, 12), LocalDate.of(2008, 9, 15), "C01", Collections.singletonList("C02"));
+        assertThat(rates.get("C02").get(LocalDate.of(2008, 9, 12))).isEqualTo(rate(2, LocalDate.of(2008, 9, 12)) / rate(1, LocalDate.of(2008, 9, 12)));
+        assertThat(rates.get("C02").get(LocalDate.of(2008, 9, 13))).isNaN();
+        assertThat(queries).hasSize(backfillQueries);
+    }
+
+    @Test
+    void shouldLeaveMissingDaysBeyondOneChunkToTheBackfill() {
+        //When
+        Map<String, RateSeries> rates = mappedRateService.getRates(LocalDate.of(2020, 2, 3), LocalDate.of(2020, 2, 7), "EUR", Collections.singletonList("C01"));
+
+        //Then
+        assertThat(rates.get("C01").get(LocalDate.of(2020, 2, 3))).isNaN();
+        verify(rateProvider, never()).getHistory(any());
+    }
+
+    @Test
+    void shouldAppendAsyncFetchedDaysOnTheApplicationTaskExecutor() throws Exception {
+        //Given
+        when(rateProvider.getHistory(any())).thenAnswer(invocation -> publishHistory(invocation.getArgument(0)));
+        mappedRateService.backfill(LocalDate.of(1999, 3, 1));
+        when(rateProvider.getHistoryAsync(any())).thenAnswer(invocation -> CompletableFuture.completedFuture(publishHistory(invocation.getArgument(0))));
+
+        //When
+        CompletableFuture<Map<String, RateSeries>> rates = mappedRateService.getRatesAsync(LocalDate.of(1999, 3, 1), LocalDate.of(1999, 3, 5), "C01", Collections.singletonList("C02"));
+
+        //Then
+        assertThat(rates).isNotDone();
+        assertThat(mappedRateHistory.getLastEpochDay()).isEqualTo(LocalDate.of(1999, 3, 1).toEpochDay());
+        applicationTasks.forEach(Runnable::run);
+        assertThat(rates.get().get("C02").get(LocalDate.of(1999, 3, 5))).isEqualTo(rate(2, LocalDate.of(1999, 3, 5)) / rate(1, LocalDate.of(1999, 3, 5)));
+        assertThat(mappedRateHistory.getLastEpochDay()).isEqualTo(LocalDate.of(1999, 3, 5).toEpochDay());
+    }
+
+    private CurrencyRateHistory publishHistory(ForeignExchangeRateService.QueryParams queryParams) throws IOException {
+        StringBuilder body = new StringBuilder("{\"rates\":{");
+        for (LocalDate date = queryParams.getStart_at(); !date.isAfter(queryParams.getEnd_at()); date = date.plusDays(1)) {
+            if (date.getDayOfWeek() == DayOfWeek.SATURDAY || date.getDayOfWeek() == DayOfWeek.SUNDAY) {
+                continue;
+            }
+            body.append(body.charAt(body.length() - 1) == '{' ? "" : ",").append('"').append(date).append("\":{");
+            for (int currency = 0; currency < CURRENCIES; currency++) {
+                body.append(currency == 0 ? "" : ",").append(String.format("\"C%02d\":%s", currency, rate(currency, date)));
+            }
+            body.append('}');
+        }
+        body.append(String.format("},\"start_at\":\"%s\",\"base\":\"EUR\",\"end_at\":\"%s\"}", queryParams.getStart_at(), queryParams.getEnd_at()));
+        queries.add(queryParams);
+        responseSizes.add(body.length());
+        return objectMapper.readValue(body.toString(), CurrencyRateHistory.class);
+    }
+
+    private static double rate(int currency, LocalDate date) {
+        return currency + 1 + date.getDayOfYear() / 1000.0;
+    }
+}
@@ -0,0 +1,65 @@
+package com.challenge.forexrate.service;
+
+import com.challenge.forexrate.model.ApiUsagePairCount;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ReportPrefetchServiceTest {
+
+    private ReportPrefetchService reportPrefetchService;
+
+    @Mock
+    private ExchangeRateService exchangeRateService;
+    @Mock
+    private ApiUsageStatisticsService apiUsageStatisticsService;
+
+    @BeforeEach
+    void setUp() {
+        reportPrefetchService = new ReportPrefetchService(exchangeRateService, apiUsageStatisticsService);
+        reportPrefetchService.setConfiguredPairs(Arrays.asList("EUR_USD", "USD_BRL"));
+        reportPrefetchService.setTopPairsLimit(2);
+        reportPrefetchService.setUsageLookback(Duration.ofDays(7));
+    }
+
+    @Test
+    void shouldPrefetchConfiguredAndMostRequestedPairsByBaseCurrency() {
+        //Given
+        when(apiUsageStatisticsService.findTopPairs(any(), any(), eq(2))).thenReturn(Arrays.asList(
+                new ApiUsagePairCount("USD", "BRL", 10L),
+                new ApiUsagePairCount("USD", "GBP", 5L)));
+
+        //When
+        reportPrefetchService.prefetch();
+
+        //Then
+        verify(exchangeRateService).prefetch("EUR", Collections.singletonList("USD"));
+        verify(exchangeRateService).prefetch("USD", Arrays.asList("BRL", "GBP"));
+    }
+
+    @Test
+    void shouldKeepPrefetchingOtherBaseCurrenciesOnFailure() {
+        //Given
+        when(apiUsageStatisticsService.findTopPairs(any(), any(), eq(2))).thenReturn(Collections.emptyList());
+        doThrow(IllegalStateException.class).when(exchangeRateService).prefetch("EUR", Collections.singletonList("USD"));
+
+        //When
+        reportPrefetchService.prefetch();
+
+        //Then
+        verify(exchangeRateService).prefetch("USD", Collections.singletonList("BRL"));
+    }
+}
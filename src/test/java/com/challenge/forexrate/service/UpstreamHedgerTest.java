@@ -0,0 +1,118 @@
+package com.challenge.forexrate.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UpstreamHedgerTest {
+
+    private static final Duration HEDGE_DELAY = Duration.ofMillis(20);
+
+    private SimpleMeterRegistry meterRegistry;
+    private UpstreamHedger upstreamHedger;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @AfterEach
+    void tearDown() {
+        upstreamHedger.close();
+    }
+
+    @Test
+    void shouldAnswerWithTheHedgeWhenTheFirstCallIsSlow() throws Exception {
+        //Given
+        upstreamHedger = new UpstreamHedger(95, HEDGE_DELAY, 10, 1, 1, 1, meterRegistry);
+        upstreamHedger.call(() -> CompletableFuture.completedFuture("warm-up")).get();
+        CompletableFuture<String> slowCall = new CompletableFuture<>();
+        Deque<CompletableFuture<String>> attempts = new ArrayDeque<>(Arrays.asList(slowCall, CompletableFuture.completedFuture("hedge")));
+
+        //When
+        String answer = upstreamHedger.call(attempts::poll).get(1, TimeUnit.SECONDS);
+        slowCall.complete("first");
+
+        //Then
+        assertThat(answer).isEqualTo("hedge");
+        assertThat(attempts).isEmpty();
+        assertThat(meterRegistry.get(UpstreamHedger.HEDGES_FIRED_COUNTER_NAME).counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get(UpstreamHedger.HEDGES_WON_COUNTER_NAME).counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldWaitForThePendingHedgeWhenTheFirstCallFails() throws Exception {
+        //Given
+        upstreamHedger = new UpstreamHedger(95, HEDGE_DELAY, 10, 1, 1, 1, meterRegistry);
+        upstreamHedger.call(() -> CompletableFuture.completedFuture("warm-up")).get();
+        CompletableFuture<String> failingCall = new CompletableFuture<>();
+        CompletableFuture<String> hedge = new CompletableFuture<>();
+        Deque<CompletableFuture<String>> attempts = new ArrayDeque<>(Arrays.asList(failingCall, hedge));
+        CompletableFuture<String> answer = upstreamHedger.call(attempts::poll);
+        awaitCount(UpstreamHedger.HEDGES_FIRED_COUNTER_NAME);
+
+        //When
+        failingCall.completeExceptionally(new IllegalStateException("Upstream error"));
+        hedge.complete("hedge");
+
+        //Then
+        assertThat(answer.get(1, TimeUnit.SECONDS)).isEqualTo("hedge");
+        assertThat(meterRegistry.get(UpstreamHedger.HEDGES_WON_COUNTER_NAME).counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldNotHedgeBeyondItsBudget() throws Exception {
+        //Given
+        upstreamHedger = new UpstreamHedger(95, HEDGE_DELAY, 10, 1, 0.05, 1, meterRegistry);
+        upstreamHedger.call(() -> CompletableFuture.completedFuture("warm-up")).get();
+        CompletableFuture<String> slowCall = new CompletableFuture<>();
+        Deque<CompletableFuture<String>> attempts = new ArrayDeque<>(Arrays.asList(slowCall, CompletableFuture.completedFuture("hedge")));
+
+        //When
+        CompletableFuture<String> answer = upstreamHedger.call(attempts::poll);
+        awaitCount(UpstreamHedger.HEDGES_DENIED_COUNTER_NAME);
+        slowCall.complete("first");
+
+        //Then
+        assertThat(answer.get(1, TimeUnit.SECONDS)).isEqualTo("first");
+        assertThat(attempts).hasSize(1);
+        assertThat(meterRegistry.get(UpstreamHedger.HEDGES_FIRED_COUNTER_NAME).counter().count()).isZero();
+    }
+
+    @Test
+    void shouldNotHedgeTheCallOnceItFailed() throws Exception {
+        //Given
+        upstreamHedger = new UpstreamHedger(95, HEDGE_DELAY, 10, 1, 1, 1, meterRegistry);
+        upstreamHedger.call(() -> CompletableFuture.completedFuture("warm-up")).get();
+        CompletableFuture<String> failingCall = new CompletableFuture<>();
+        Deque<CompletableFuture<String>> attempts = new ArrayDeque<>(Arrays.asList(failingCall, CompletableFuture.completedFuture("hedge")));
+        CompletableFuture<String> answer = upstreamHedger.call(attempts::poll);
+
+        //When
+        failingCall.completeExceptionally(new IllegalStateException("Upstream error"));
+        Thread.sleep(HEDGE_DELAY.toMillis() * 3);
+
+        //Then
+        assertThat(answer).isCompletedExceptionally();
+        assertThat(attempts).hasSize(1);
+        assertThat(meterRegistry.get(UpstreamHedger.HEDGES_FIRED_COUNTER_NAME).counter().count()).isZero();
+        assertThat(meterRegistry.get(UpstreamHedger.HEDGES_DENIED_COUNTER_NAME).counter().count()).isZero();
+    }
+
+    private void awaitCount(String counterName) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+        while (meterRegistry.get(counterName).counter().count() == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.challenge.forexrate.service;
+
+import com.challenge.forexrate.model.RateSeries;
+import io.exchangeratesapi.api.client.AsyncForeignExchangeRateService;
+import io.exchangeratesapi.api.client.ForeignExchangeRateService;
+import io.exchangeratesapi.api.client.model.CurrencyRateHistory;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class UpstreamHistoryServiceTest {
+
+    private static final LocalDate DATE = LocalDate.of(2020, 2, 7);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicInteger blockingCalls = new AtomicInteger();
+    private UpstreamHedger upstreamHedger;
+
+    @Mock
+    private AsyncForeignExchangeRateService asyncForeignExchangeRateService;
+
+    @BeforeEach
+    void setUp() {
+        upstreamHedger = new UpstreamHedger(95, Duration.ofMillis(20), 10, 1, 1, 1, meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        upstreamHedger.close();
+    }
+
+    @Test
+    void shouldNotHedgeBlockingCalls() throws Exception {
+        //Given
+        ForeignExchangeRateService foreignExchangeRateService = queryParams -> {
+            int call = blockingCalls.incrementAndGet();
+            sleep(200);
+            return history(call);
+        };
+        UpstreamHistoryService upstreamHistoryService = new UpstreamHistoryService(foreignExchangeRateService, asyncForeignExchangeRateService,
+                CircuitBreaker.ofDefaults("exchangeratesapi"), meterRegistry);
+        upstreamHistoryService.setUpstreamHedger(upstreamHedger);
+        ForeignExchangeRateService.QueryParams queryParams = ForeignExchangeRateService.QueryParams.builder()
+                .base("EUR")
+                .start_at(DATE)
+                .end_at(DATE)
+                .build();
+        when(asyncForeignExchangeRateService.getHistory(any())).thenReturn(CompletableFuture.completedFuture(history(0)));
+        upstreamHistoryService.getHistoryAsync(queryParams).get(1, TimeUnit.SECONDS);
+
+        //When
+        CurrencyRateHistory history = upstreamHistoryService.getHistory(queryParams);
+
+        //Then
+        assertThat(history.getRates().get("USD").get(DATE)).isEqualTo(1);
+        assertThat(blockingCalls).hasValue(1);
+        assertThat(meterRegistry.get(UpstreamHedger.HEDGES_FIRED_COUNTER_NAME).counter().count()).isZero();
+        assertThat(meterRegistry.get(UpstreamHistoryService.UPSTREAM_TIMER_NAME).tag("client", "blocking").timer().count()).isEqualTo(1);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static CurrencyRateHistory history(double rate) {
+        return CurrencyRateHistory.builder()
+                .rates(Collections.singletonMap("USD", RateSeries.builder().add(DATE, rate).build()))
+                .build();
+    }
+}
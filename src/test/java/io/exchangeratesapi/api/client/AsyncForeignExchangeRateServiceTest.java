@@ -0,0 +1,100 @@
+package io.exchangeratesapi.api.client;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import io.exchangeratesapi.api.client.model.CurrencyRateHistory;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.okJson;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+class AsyncForeignExchangeRateServiceTest {
+
+    private static final int CODEC_BUFFER_LIMIT = 256 * 1024;
+
+    private WireMockServer wireMockServer;
+    private AsyncForeignExchangeRateService asyncForeignExchangeRateService;
+
+    @BeforeEach
+    void setUp() {
+        wireMockServer = new WireMockServer(options().dynamicPort());
+        wireMockServer.start();
+        asyncForeignExchangeRateService = new AsyncForeignExchangeRateService(WebClient.create(wireMockServer.baseUrl()), 1,
+                Duration.ofMillis(10), Duration.ofMillis(10), new SimpleMeterRegistry().counter("retries"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        wireMockServer.stop();
+    }
+
+    @Test
+    void shouldStreamHistoryLargerThanTheCodecBuffer() throws Exception {
+        //Given
+        LocalDate firstDate = LocalDate.of(2010, 1, 1);
+        StringBuilder body = new StringBuilder("{\"rates\":{");
+        for (int day = 0; day < 3000; day++) {
+            body.append(day == 0 ? "" : ",").append('"').append(firstDate.plusDays(day)).append("\":{");
+            for (int currency = 0; currency < 32; currency++) {
+                body.append(currency == 0 ? "" : ",").append(String.format("\"C%02d\":%d.123456", currency, day));
+            }
+            body.append('}');
+        }
+        body.append("},\"start_at\":\"2010-01-01\",\"base\":\"EUR\",\"end_at\":\"2018-03-19\"}");
+        wireMockServer.stubFor(get(urlPathEqualTo("/history")).willReturn(okJson(body.toString())));
+
+        ForeignExchangeRateService.QueryParams queryParams = ForeignExchangeRateService.QueryParams.builder()
+                .start_at(firstDate.plusDays(2000))
+                .end_at(firstDate.plusDays(2009))
+                .base("EUR")
+                .symbols("C01,C31")
+                .build();
+
+        //When
+        CurrencyRateHistory history = asyncForeignExchangeRateService.getHistory(queryParams).get(10, TimeUnit.SECONDS);
+
+        //Then
+        assertThat(body.length()).isGreaterThan(4 * CODEC_BUFFER_LIMIT);
+        assertThat(history.getRates()).containsOnlyKeys("C01", "C31");
+        assertThat(history.getRates().get("C01").get(firstDate.plusDays(2000))).isEqualTo(2000.123456);
+        assertThat(history.getRates().get("C31").get(firstDate.plusDays(2009))).isEqualTo(2009.123456);
+        assertThat(history.getRates().get("C01").get(firstDate.plusDays(1999))).isNaN();
+        assertThat(history.getRates().get("C01").get(firstDate.plusDays(2010))).isNaN();
+    }
+
+    @Test
+    void shouldFailOnTruncatedHistory() {
+        //Given
+        wireMockServer.stubFor(get(urlPathEqualTo("/history"))
+                .willReturn(aResponse().withHeader("Content-Type", "application/json").withBody("{\"rates\":{\"2020-02-05\":{\"BRL\":4.22")));
+
+        ForeignExchangeRateService.QueryParams queryParams = ForeignExchangeRateService.QueryParams.builder()
+                .start_at(LocalDate.of(2020, 2, 5))
+                .end_at(LocalDate.of(2020, 2, 5))
+                .base("EUR")
+                .build();
+
+        //When
+        CompletableFuture<CurrencyRateHistory> history = asyncForeignExchangeRateService.getHistory(queryParams);
+        Throwable thrown = catchThrowable(() -> history.get(10, TimeUnit.SECONDS));
+
+        //Then
+        assertThat(thrown).isInstanceOf(ExecutionException.class)
+                .hasRootCauseInstanceOf(IOException.class);
+    }
+}
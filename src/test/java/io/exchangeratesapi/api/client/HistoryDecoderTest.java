@@ -0,0 +1,60 @@
+package io.exchangeratesapi.api.client;
+
+import feign.Request;
+import feign.Response;
+import io.exchangeratesapi.api.client.model.CurrencyRateHistory;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HistoryDecoderTest {
+
+    private final HistoryDecoder historyDecoder = new HistoryDecoder((response, type) -> {
+        throw new IllegalStateException("Unexpected type " + type);
+    });
+
+    @Test
+    void shouldKeepOnlyRequestedDaysAndCurrencies() throws Exception {
+        //Given
+        String body = "{\"rates\":{" +
+                "\"2020-02-03\":{\"BRL\":4.26,\"GBP\":0.84,\"USD\":1.0}," +
+                "\"2020-02-05\":{\"BRL\":4.22,\"GBP\":0.85,\"USD\":1.0}," +
+                "\"2020-02-06\":{\"BRL\":4.30,\"GBP\":0.86,\"USD\":1.0}}," +
+                "\"start_at\":\"2020-02-03\",\"base\":\"USD\",\"end_at\":\"2020-02-05\"}";
+        Response response = buildResponse("http://localhost/history?start_at=2020-02-03&end_at=2020-02-05&base=USD&symbols=BRL%2CGBP", body);
+
+        //When
+        CurrencyRateHistory actualMapping = (CurrencyRateHistory) historyDecoder.decode(response, CurrencyRateHistory.class);
+
+        //Then
+        assertThat(actualMapping.getRates()).containsOnlyKeys("BRL", "GBP");
+        assertThat(actualMapping.getRates().get("BRL").get(LocalDate.of(2020, 2, 3))).isEqualTo(4.26);
+        assertThat(actualMapping.getRates().get("GBP").get(LocalDate.of(2020, 2, 5))).isEqualTo(0.85);
+        assertThat(actualMapping.getRates().get("BRL").get(LocalDate.of(2020, 2, 6))).isNaN();
+    }
+
+    @Test
+    void shouldKeepEveryCurrencyWithoutSymbols() throws Exception {
+        //Given
+        String body = "{\"rates\":{\"2020-02-05\":{\"BRL\":4.22,\"GBP\":0.85}},\"start_at\":\"2020-02-05\",\"base\":\"EUR\",\"end_at\":\"2020-02-05\"}";
+        Response response = buildResponse("http://localhost/history?start_at=2020-02-05&end_at=2020-02-05&base=EUR", body);
+
+        //When
+        CurrencyRateHistory actualMapping = (CurrencyRateHistory) historyDecoder.decode(response, CurrencyRateHistory.class);
+
+        //Then
+        assertThat(actualMapping.getRates()).containsOnlyKeys("BRL", "GBP");
+    }
+
+    private static Response buildResponse(String url, String body) {
+        return Response.builder()
+                .status(200)
+                .request(Request.create(Request.HttpMethod.GET, url, Collections.emptyMap(), null, StandardCharsets.UTF_8, null))
+                .body(body, StandardCharsets.UTF_8)
+                .build();
+    }
+}